@@ -0,0 +1,121 @@
+plugins {
+    id("java")
+}
+
+repositories {
+    mavenCentral()
+}
+
+val jmhVersion = "1.37"
+val benchmarkModuleCount = 256
+
+dependencies {
+    implementation(project(":core"))
+    implementation(testFixtures(project(":core")))
+    implementation(project(":tag"))
+    implementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    implementation("io.lettuce:lettuce-core:6.6.0.RELEASE")
+    implementation("org.jetbrains:annotations:26.0.2")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+    annotationProcessor(project(":processor"))
+}
+
+// Distinct module classes for the boot benchmarks, each depending on two earlier ones
+val generateBenchmarkModules by tasks.registering {
+    val outputDir = layout.buildDirectory.dir("generated/sources/benchmarkModules/java/main")
+    inputs.property("moduleCount", benchmarkModuleCount)
+    outputs.dir(outputDir)
+
+    doLast {
+        val packageDir = outputDir.get().dir("dev/shiftsad/benchmarks/modules").asFile
+        packageDir.deleteRecursively()
+        packageDir.mkdirs()
+
+        for (i in 0 until benchmarkModuleCount) {
+            val dependsOn = if (i >= 2) "@DependsOn(BenchModule${i / 2}.class)\n" else ""
+            val inject = if (i >= 1) "    @Inject\n    BenchModule${i - 1} previous;\n\n" else ""
+            packageDir.resolve("BenchModule$i.java").writeText(
+                """
+                |package dev.shiftsad.benchmarks.modules;
+                |
+                |import dev.shiftsad.core.modules.BootPriority;
+                |import dev.shiftsad.core.modules.DependsOn;
+                |import dev.shiftsad.core.modules.Inject;
+                |import dev.shiftsad.core.modules.Module;
+                |
+                |${dependsOn}public class BenchModule$i implements Module {
+                |
+                |$inject    @Override
+                |    public void initialize() {
+                |    }
+                |
+                |    @Override
+                |    public void stop() {
+                |    }
+                |
+                |    @Override
+                |    public BootPriority getBootPriority() {
+                |        return BootPriority.NORMAL;
+                |    }
+                |
+                |    @Override
+                |    public String getName() {
+                |        return "BenchModule$i";
+                |    }
+                |}
+                |""".trimMargin()
+            )
+        }
+
+        val instances = (0 until benchmarkModuleCount).joinToString(",\n") { "                new BenchModule$it()" }
+        packageDir.resolve("BenchModules.java").writeText(
+            """
+            |package dev.shiftsad.benchmarks.modules;
+            |
+            |import dev.shiftsad.core.modules.Module;
+            |
+            |import java.util.List;
+            |
+            |public final class BenchModules {
+            |
+            |    public static final int COUNT = $benchmarkModuleCount;
+            |
+            |    private BenchModules() {
+            |    }
+            |
+            |    public static List<Module> create() {
+            |        return List.of(
+            |$instances
+            |        );
+            |    }
+            |}
+            |""".trimMargin()
+        )
+    }
+}
+
+sourceSets.main {
+    java.srcDir(generateBenchmarkModules)
+}
+
+// ./gradlew :benchmarks:jmh [-Pjmh.includes=Regex]
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks and writes the results as JSON."
+
+    val results = layout.buildDirectory.file("results/jmh/results.json")
+    outputs.file(results)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    // The config benchmarks start a Consul stub on this port
+    environment("CONSUL_HOST", "127.0.0.1")
+    environment("CONSUL_PORT", "18500")
+    environment("CONSUL_SNAPSHOT", layout.buildDirectory.file("jmh-consul-snapshot.bin").get().asFile.absolutePath)
+
+    doFirst {
+        results.get().asFile.parentFile.mkdirs()
+    }
+    args("-rf", "json", "-rff", results.get().asFile.absolutePath)
+    (project.findProperty("jmh.includes") as String?)?.let { args(it) }
+}
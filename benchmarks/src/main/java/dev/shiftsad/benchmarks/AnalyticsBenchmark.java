@@ -0,0 +1,89 @@
+package dev.shiftsad.benchmarks;
+
+import dev.shiftsad.core.analytics.AnalyticsBatch;
+import dev.shiftsad.core.analytics.AnalyticsBatchEncoder;
+import dev.shiftsad.core.analytics.AnalyticsRing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code AnalyticsModule} hot path: recording an event into the ring from game
+ * threads while the pipeline drains it, and deflating a full batch of movement samples.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyticsBenchmark {
+
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int BATCH_EVENTS = 4_096;
+
+    @State(Scope.Group)
+    public static class Pipeline {
+
+        private final AnalyticsRing ring = new AnalyticsRing(RING_CAPACITY);
+        private final AnalyticsBatchEncoder encoder = new AnalyticsBatchEncoder(BATCH_EVENTS);
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            encoder.close();
+        }
+    }
+
+    /* Three game threads recording movement, a full ring counts as a dropped event */
+    @Benchmark
+    @Group("pipeline")
+    @GroupThreads(3)
+    public boolean offer(Pipeline pipeline) {
+        return pipeline.ring.offer(2, System.currentTimeMillis(), 1, 2, 0, 0, 10.5, 64, -3.25, 0);
+    }
+
+    @Benchmark
+    @Group("pipeline")
+    @GroupThreads(1)
+    public AnalyticsBatch drain(Pipeline pipeline) {
+        return pipeline.encoder.next(pipeline.ring);
+    }
+
+    @State(Scope.Thread)
+    public static class FullBatch {
+
+        private final AnalyticsRing ring = new AnalyticsRing(BATCH_EVENTS);
+        private final AnalyticsBatchEncoder encoder = new AnalyticsBatchEncoder(BATCH_EVENTS);
+        private final SplittableRandom random = new SplittableRandom(42);
+        private final long[] players = new long[100];
+
+        @Setup(Level.Trial)
+        public void setup() {
+            for (int i = 0; i < players.length; i++) {
+                players[i] = random.nextLong();
+            }
+        }
+
+        /* Refilled outside the measurement, so only the drain and deflate are timed */
+        @Setup(Level.Invocation)
+        public void fill() {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < BATCH_EVENTS; i++) {
+                long player = players[i % players.length];
+                ring.offer(2, now + i / players.length * 50L, player, ~player, 0, 0,
+                        random.nextInt(-200, 200) + 0.5, 64, random.nextInt(-200, 200) + 0.5, 0);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            encoder.close();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public AnalyticsBatch encodeBatch(FullBatch batch) {
+        return batch.encoder.next(batch.ring);
+    }
+}
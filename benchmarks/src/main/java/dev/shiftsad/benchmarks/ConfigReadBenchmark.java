@@ -0,0 +1,77 @@
+package dev.shiftsad.benchmarks;
+
+import dev.shiftsad.core.modules.impl.ConsulConfigModule;
+import dev.shiftsad.core.testing.ConsulStub;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Config reads through {@link ConsulConfigModule} against {@link ConsulStub}: cached
+ * reads of a watched prefix, and a read outside it that goes over HTTP.
+ * Needs {@code CONSUL_HOST} and {@code CONSUL_PORT}, which the {@code jmh} task sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigReadBenchmark {
+
+    private static final String PREFIX = "bench.";
+    private static final int KEY_COUNT = 256;
+
+    private final String[] keys = new String[KEY_COUNT];
+    private ConsulStub stub;
+    private ConsulConfigModule configModule;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = PREFIX + "key" + i;
+            values.put(keys[i], String.valueOf(i));
+        }
+        values.put("uncached.key", "value");
+
+        stub = new ConsulStub(Integer.parseInt(System.getenv("CONSUL_PORT")), values);
+        stub.start();
+        configModule = new ConsulConfigModule(PREFIX);
+        configModule.initialize();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        configModule.stop();
+        stub.stop();
+    }
+
+    private String nextKey() {
+        return keys[next++ & (KEY_COUNT - 1)];
+    }
+
+    @Benchmark
+    public String cachedString() {
+        return configModule.getConfigValue(nextKey());
+    }
+
+    @Benchmark
+    public int cachedInt() {
+        return configModule.getInt(nextKey(), -1);
+    }
+
+    @Benchmark
+    public Map<String, String> cachedPrefix() {
+        return configModule.getConfigValuesByPrefix(PREFIX);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String uncachedString() {
+        return configModule.getConfigValue("uncached.key");
+    }
+}
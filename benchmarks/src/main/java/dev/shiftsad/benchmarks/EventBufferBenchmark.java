@@ -0,0 +1,79 @@
+package dev.shiftsad.benchmarks;
+
+import dev.shiftsad.core.events.EventBuffer;
+import dev.shiftsad.core.events.EventCodec;
+import dev.shiftsad.core.events.EventFrameDecoder;
+import dev.shiftsad.core.events.EventFrameEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding one tick's worth of events with the frame encoder and decoder
+ * the event bus uses, including the copy of the finished frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBufferBenchmark {
+
+    private static final int EVENT_ID = 1;
+
+    private record PlayerMoved(UUID player, double x, double y, double z, String server) {
+    }
+
+    private static final EventCodec<PlayerMoved> CODEC = new EventCodec<>() {
+        @Override
+        public void write(PlayerMoved event, EventBuffer buffer) {
+            buffer.writeUuid(event.player());
+            buffer.writeDouble(event.x());
+            buffer.writeDouble(event.y());
+            buffer.writeDouble(event.z());
+            buffer.writeString(event.server());
+        }
+
+        @Override
+        public PlayerMoved read(EventBuffer buffer) {
+            return new PlayerMoved(buffer.readUuid(), buffer.readDouble(), buffer.readDouble(), buffer.readDouble(), buffer.readString());
+        }
+    };
+
+    @Param({"100", "1000"})
+    public int eventsPerTick;
+
+    private PlayerMoved[] events;
+    private final EventFrameEncoder encoder = new EventFrameEncoder(42, 4096);
+    private final EventFrameDecoder decoder = new EventFrameDecoder();
+    private byte[] frame;
+    private int checksum;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        events = new PlayerMoved[eventsPerTick];
+        for (int i = 0; i < eventsPerTick; i++) {
+            events[i] = new PlayerMoved(UUID.randomUUID(), i, 64, -i, "tag-" + (i % 8));
+        }
+        frame = encodeTick();
+    }
+
+    @Benchmark
+    public byte[] encodeTick() {
+        for (PlayerMoved event : events) {
+            encoder.add(EVENT_ID, CODEC, event);
+        }
+        return encoder.finish();
+    }
+
+    @Benchmark
+    public int decodeTick() {
+        checksum = 0;
+        decoder.open(frame);
+        decoder.readEvents(id -> id == EVENT_ID ? CODEC : null,
+                (event, id) -> checksum += ((PlayerMoved) event).server().length());
+        return checksum;
+    }
+}
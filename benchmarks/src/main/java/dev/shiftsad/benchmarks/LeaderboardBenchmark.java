@@ -0,0 +1,90 @@
+package dev.shiftsad.benchmarks;
+
+import dev.shiftsad.core.leaderboard.LeaderboardEntry;
+import dev.shiftsad.core.leaderboard.LeaderboardView;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The local top of a leaderboard of a million ranked players, as kept by
+ * {@code LeaderboardModule}: applying score changes from anywhere on the board or at
+ * its top, reading the top, and ranking a player from the view.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardBenchmark {
+
+    private static final int PLAYERS = 1_000_000;
+    private static final int TOP_SIZE = 100;
+
+    private UUID[] players;
+    private double[] scores;
+    private int[] topPlayers;
+    private LeaderboardView view;
+    private long version;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        random = new SplittableRandom(42);
+        players = new UUID[PLAYERS];
+        scores = new double[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong());
+            // Long tail, like wins over a season
+            scores[i] = Math.floor(-Math.log(1 - random.nextDouble()) * 20);
+        }
+
+        Integer[] order = new Integer[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        view = new LeaderboardView(TOP_SIZE);
+        Map<UUID, Double> top = new HashMap<>();
+        topPlayers = new int[view.capacity()];
+        for (int i = 0; i < view.capacity(); i++) {
+            topPlayers[i] = order[i];
+            top.put(players[order[i]], scores[order[i]]);
+        }
+        view.load(top, false, version);
+    }
+
+    /* A win anywhere on the board, almost always by a player outside the view */
+    @Benchmark
+    public void applyIncrement() {
+        int player = random.nextInt(PLAYERS);
+        view.apply(++version, players[player], ++scores[player]);
+    }
+
+    /* A win by one of the players in the view, which reorders it */
+    @Benchmark
+    public void applyTopIncrement() {
+        int player = topPlayers[random.nextInt(topPlayers.length)];
+        view.apply(++version, players[player], ++scores[player]);
+    }
+
+    @Benchmark
+    public List<LeaderboardEntry> top10() {
+        return view.top(10);
+    }
+
+    /* A change followed by a read, as a lobby re-rendering after every update would do */
+    @Benchmark
+    public List<LeaderboardEntry> applyTopIncrementThenTop10() {
+        applyTopIncrement();
+        return view.top(10);
+    }
+
+    @Benchmark
+    public LeaderboardEntry rankInView() {
+        return view.entry(players[topPlayers[random.nextInt(TOP_SIZE)]]);
+    }
+}
@@ -0,0 +1,33 @@
+package dev.shiftsad.benchmarks;
+
+import dev.shiftsad.core.util.NameGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static dev.shiftsad.core.util.NameGenerator.WordType.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameGeneratorBenchmark {
+
+    @Benchmark
+    public String serverName() {
+        return NameGenerator.randomName(ANIMALS, COLORS, ADJECTIVE);
+    }
+
+    @Benchmark
+    public String singleWord() {
+        return NameGenerator.randomName(ANIMALS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String serverNameContended() {
+        return NameGenerator.randomName(ANIMALS, COLORS, ADJECTIVE);
+    }
+}
@@ -0,0 +1,109 @@
+package dev.shiftsad.benchmarks;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.IntegerOutput;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of the commands {@code RedisModule} and the modules built on it send, with
+ * the same codecs, into a reused buffer. Measures the client side of a pipelined flush
+ * without a Redis server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisEncodingBenchmark {
+
+    private static final RedisCodec<String, byte[]> BINARY = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+    private static final int PIPELINE_SIZE = 100;
+
+    private ByteBuf buffer;
+    private String key;
+    private String value;
+    private Map<String, String> profile;
+    private byte[] eventFrame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        buffer = PooledByteBufAllocator.DEFAULT.buffer(64 * 1024);
+        key = "profile:" + UUID.randomUUID();
+        value = "x".repeat(64);
+
+        profile = new LinkedHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            profile.put("field" + i, String.valueOf(i * 1000));
+        }
+
+        eventFrame = new byte[1024];
+        ThreadLocalRandom.current().nextBytes(eventFrame);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public int set() {
+        buffer.clear();
+        encodeSet(key, value);
+        return buffer.writerIndex();
+    }
+
+    @Benchmark
+    public int hsetProfile() {
+        buffer.clear();
+        new Command<>(
+                CommandType.HSET,
+                new IntegerOutput<>(StringCodec.UTF8),
+                new CommandArgs<>(StringCodec.UTF8).addKey(key).add(profile)
+        ).encode(buffer);
+        return buffer.writerIndex();
+    }
+
+    @Benchmark
+    public int publishEventFrame() {
+        buffer.clear();
+        new Command<>(
+                CommandType.PUBLISH,
+                new IntegerOutput<>(BINARY),
+                new CommandArgs<>(BINARY).addKey("gameserver:events").addValue(eventFrame)
+        ).encode(buffer);
+        return buffer.writerIndex();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE_SIZE)
+    public int pipelinedSets() {
+        buffer.clear();
+        for (int i = 0; i < PIPELINE_SIZE; i++) {
+            encodeSet(key, value);
+        }
+        return buffer.writerIndex();
+    }
+
+    private void encodeSet(String key, String value) {
+        new Command<>(
+                CommandType.SET,
+                new StatusOutput<>(StringCodec.UTF8),
+                new CommandArgs<>(StringCodec.UTF8).addKey(key).addValue(value)
+        ).encode(buffer);
+    }
+}
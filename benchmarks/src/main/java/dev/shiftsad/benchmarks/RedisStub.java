@@ -0,0 +1,200 @@
+package dev.shiftsad.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal in-process stand-in for Redis speaking RESP2, with just the string, hash and
+ * stream commands the benchmarks need. Stream entries are counted, not kept. Latency
+ * and failures can be injected to stand in for an unhealthy Redis.
+ */
+final class RedisStub {
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> hashes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> streams = new ConcurrentHashMap<>();
+    private final ServerSocket server;
+
+    private volatile long latencyMillis;
+    private volatile double failureRate;
+
+    RedisStub(int port) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    void start() {
+        Thread.ofVirtual().name("redis-stub").start(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    socket.setTcpNoDelay(true);
+                    Thread.ofVirtual().start(() -> serve(socket));
+                } catch (IOException e) {
+                    return; // Closed
+                }
+            }
+        });
+    }
+
+    void stop() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Delays every reply by {@code latencyMillis} and answers a {@code failureRate}
+     * share of commands with an error.
+     */
+    void injectFaults(long latencyMillis, double failureRate) {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * @return entries added to {@code stream} so far
+     */
+    long streamLength(String stream) {
+        AtomicLong length = streams.get(stream);
+        return length == null ? 0 : length.get();
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            List<String> command;
+            while ((command = readCommand(in)) != null) {
+                Thread.sleep(latencyMillis);
+                if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                    writeError(out, "ERR injected failure");
+                } else {
+                    execute(command, out);
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException | InterruptedException ignored) {
+            // Client went away or the stub stopped
+        }
+    }
+
+    private void execute(List<String> command, OutputStream out) throws IOException {
+        switch (command.getFirst().toUpperCase()) {
+            case "PING" -> writeSimple(out, "PONG");
+            case "CLIENT", "SELECT" -> writeSimple(out, "OK");
+            case "GET" -> writeBulk(out, strings.get(command.get(1)));
+            case "SET" -> {
+                strings.put(command.get(1), command.get(2));
+                writeSimple(out, "OK");
+            }
+            case "DEL" -> {
+                long removed = 0;
+                for (String key : command.subList(1, command.size())) {
+                    if (strings.remove(key) != null | hashes.remove(key) != null) {
+                        removed++;
+                    }
+                }
+                writeInteger(out, removed);
+            }
+            case "HSET" -> {
+                Map<String, String> hash = hashes.computeIfAbsent(command.get(1), ignored -> new ConcurrentHashMap<>());
+                long added = 0;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    if (hash.put(command.get(i), command.get(i + 1)) == null) {
+                        added++;
+                    }
+                }
+                writeInteger(out, added);
+            }
+            case "HGETALL" -> {
+                Map<String, String> hash = hashes.getOrDefault(command.get(1), Map.of());
+                out.write(("*" + hash.size() * 2 + "\r\n").getBytes(StandardCharsets.UTF_8));
+                for (Map.Entry<String, String> entry : hash.entrySet()) {
+                    writeBulk(out, entry.getKey());
+                    writeBulk(out, entry.getValue());
+                }
+            }
+            case "XADD" -> {
+                long sequence = streams.computeIfAbsent(command.get(1), ignored -> new AtomicLong()).incrementAndGet();
+                writeBulk(out, System.currentTimeMillis() + "-" + sequence);
+            }
+            case "PUBLISH" -> writeInteger(out, 0);
+            // HELLO included, so clients fall back to RESP2
+            default -> writeError(out, "ERR unknown command '" + command.getFirst() + "'");
+        }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        if (header.charAt(0) != '*') {
+            throw new IOException("Expected an array, got " + header);
+        }
+
+        int count = Integer.parseInt(header.substring(1));
+        List<String> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String length = readLine(in);
+            if (length == null || length.charAt(0) != '$') {
+                throw new IOException("Expected a bulk string, got " + length);
+            }
+            byte[] bytes = in.readNBytes(Integer.parseInt(length.substring(1)) + 2);
+            command.add(new String(bytes, 0, bytes.length - 2, StandardCharsets.UTF_8));
+        }
+        return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\r') {
+                in.read(); // \n
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        return null;
+    }
+
+    private static void writeSimple(OutputStream out, String value) throws IOException {
+        out.write(("+" + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeError(OutputStream out, String message) throws IOException {
+        out.write(("-" + message + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeInteger(OutputStream out, long value) throws IOException {
+        out.write((":" + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBulk(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.write("$-1\r\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write(bytes);
+        out.write("\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,111 @@
+package dev.shiftsad.benchmarks;
+
+import dev.shiftsad.core.modules.impl.ConsulConfigModule;
+import dev.shiftsad.core.modules.impl.RedisModule;
+import dev.shiftsad.core.testing.ConsulStub;
+import net.minestom.server.MinecraftServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads from Consul and Redis stubs with injected faults, through the circuit breakers
+ * and directly. With a slow or failing backend, reads through a breaker settle on the
+ * last known good value once it opens, while direct reads keep paying for every fault.
+ * Reads go through the real modules, wired to the stubs through Consul's {@code redis.host}.
+ * Needs {@code CONSUL_HOST} and {@code CONSUL_PORT}, which the {@code jmh} task sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResilienceBenchmark {
+
+    private static final int REDIS_PORT = 16380;
+    private static final String KEY = "resilience.key";
+    private static final String PROFILE_KEY = "profile:resilience";
+
+    /* healthy, slow (each reply delayed past the slow call threshold) or failing (every reply an error) */
+    @Param({"healthy", "slow", "failing"})
+    public String fault;
+
+    private ConsulStub consulStub;
+    private RedisStub redisStub;
+    private ConsulConfigModule configModule;
+    private RedisModule redisModule;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        consulStub = new ConsulStub(Integer.parseInt(System.getenv("CONSUL_PORT")), Map.of(
+                KEY, "value",
+                "redis.host", "redis://127.0.0.1:" + REDIS_PORT
+        ));
+        consulStub.start();
+        configModule = new ConsulConfigModule();
+        configModule.initialize();
+
+        redisStub = new RedisStub(REDIS_PORT);
+        redisStub.start();
+        // RedisModule schedules its batch flush, the server is never started so it never runs
+        if (MinecraftServer.process() == null) {
+            MinecraftServer.init();
+        }
+        redisModule = new RedisModule(configModule);
+        redisModule.initialize();
+        redisModule.async().hset(PROFILE_KEY, Map.of("coins", "100", "wins", "7")).get();
+
+        // Read once while healthy, so there is a last known good value to fall back to
+        configModule.getConfigValue(KEY);
+        redisRead();
+
+        switch (fault) {
+            case "slow" -> {
+                consulStub.injectFaults(1_500, 0);
+                redisStub.injectFaults(600, 0);
+            }
+            case "failing" -> {
+                consulStub.injectFaults(0, 1);
+                redisStub.injectFaults(0, 1);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redisModule.stop();
+        redisStub.stop();
+        configModule.stop();
+        consulStub.stop();
+    }
+
+    @Benchmark
+    public String consulRead() {
+        return configModule.getConfigValue(KEY);
+    }
+
+    @Benchmark
+    public Object consulReadDirect() {
+        try {
+            return configModule.getConsulClient().getKVValue(KEY).getValue();
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> redisRead() {
+        return redisModule.read(PROFILE_KEY, commands -> commands.hgetall(PROFILE_KEY)).join();
+    }
+
+    @Benchmark
+    public Object redisReadDirect() {
+        try {
+            return redisModule.async().hgetall(PROFILE_KEY).toCompletableFuture().join();
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package dev.shiftsad.benchmarks;
+
+import dev.shiftsad.tag.TagMatch;
+import dev.shiftsad.tag.game.TagGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One match tick of the tag game: every player takes a step, then the tagger looks for
+ * someone to tag. The brute-force benchmarks scan every player's position instead of
+ * the grid, as an all-pairs check would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagGameBenchmark {
+
+    private static final double MIN = -TagMatch.ARENA_SIZE / 2.0;
+    private static final double STEP = 0.2;
+
+    @Param({"50", "200", "1000"})
+    public int players;
+
+    private TagGame game;
+    private int[] slots;
+    private double[] xs;
+    private double[] zs;
+    private double[] headings;
+    private int[] inRange;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        game = new TagGame(MIN, MIN, TagMatch.ARENA_SIZE, players);
+        slots = new int[players];
+        xs = new double[players];
+        zs = new double[players];
+        headings = new double[players];
+        inRange = new int[players];
+
+        for (int i = 0; i < players; i++) {
+            xs[i] = MIN + random.nextDouble(TagMatch.ARENA_SIZE);
+            zs[i] = MIN + random.nextDouble(TagMatch.ARENA_SIZE);
+            headings[i] = random.nextDouble(Math.PI * 2);
+            slots[i] = game.join(xs[i], 40, zs[i]);
+        }
+        // A fresh game hands out slots in join order, so the brute-force scans can index by slot
+        if (slots[players - 1] != players - 1) {
+            throw new IllegalStateException("Unexpected slot order");
+        }
+    }
+
+    @Benchmark
+    public int tick() {
+        moveEveryone(true);
+        return game.tick();
+    }
+
+    @Benchmark
+    public int tickBruteForce() {
+        moveEveryone(false);
+        return nearestBruteForce(game.tagger());
+    }
+
+    @Benchmark
+    public int taggerRange() {
+        return game.playersInRange(game.tagger(), inRange);
+    }
+
+    @Benchmark
+    public int taggerRangeBruteForce() {
+        int tagger = game.tagger();
+        double rangeSquared = TagGame.TAG_RANGE * TagGame.TAG_RANGE;
+        int count = 0;
+        for (int i = 0; i < players; i++) {
+            double dx = xs[i] - xs[tagger];
+            double dz = zs[i] - zs[tagger];
+            if (dx * dx + dz * dz <= rangeSquared) {
+                inRange[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    private void moveEveryone(boolean updateGrid) {
+        for (int i = 0; i < players; i++) {
+            double x = xs[i] + Math.cos(headings[i]) * STEP;
+            double z = zs[i] + Math.sin(headings[i]) * STEP;
+            // Bounce off the arena edge
+            if (x < MIN || x > -MIN || z < MIN || z > -MIN) {
+                headings[i] += Math.PI;
+                continue;
+            }
+            xs[i] = x;
+            zs[i] = z;
+            if (updateGrid) {
+                game.move(slots[i], x, 40, z);
+            }
+        }
+    }
+
+    private int nearestBruteForce(int tagger) {
+        double rangeSquared = TagGame.TAG_RANGE * TagGame.TAG_RANGE;
+        int best = TagGame.NO_PLAYER;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < players; i++) {
+            if (i == tagger) continue;
+            double dx = xs[i] - xs[tagger];
+            double dz = zs[i] - zs[tagger];
+            double distance = dx * dx + dz * dz;
+            if (distance <= rangeSquared && distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
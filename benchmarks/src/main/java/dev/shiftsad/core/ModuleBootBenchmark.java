@@ -0,0 +1,59 @@
+package dev.shiftsad.core;
+
+import dev.shiftsad.benchmarks.modules.BenchModule1;
+import dev.shiftsad.benchmarks.modules.BenchModules;
+import dev.shiftsad.core.modules.wiring.ModuleWirings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Builds the module index and boots {@link BenchModules#COUNT} modules through
+ * {@link MinestomServer}, with generated wiring and with the reflective fallback.
+ * Lives in the core package to reach the boot path without starting Minestom.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ModuleBootBenchmark {
+
+    private static final String SERVER_NAME = "bench";
+    /* Held so the level set below isn't lost when the logger is collected */
+    private static final Logger serverLogger = Logger.getLogger(SERVER_NAME);
+
+    // Every param value runs in its own fork, so the property is set before ModuleWirings loads
+    @Param({"generated", "reflective"})
+    public String wiring;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boolean reflective = "reflective".equals(wiring);
+        System.setProperty("core.wiring.reflective", String.valueOf(reflective));
+        serverLogger.setLevel(java.util.logging.Level.WARNING);
+
+        if ((ModuleWirings.forClass(BenchModule1.class) == null) != reflective) {
+            throw new IllegalStateException("Expected " + wiring + " wiring, was the processor run?");
+        }
+    }
+
+    @Benchmark
+    public MinestomServer index() {
+        return newServer();
+    }
+
+    @Benchmark
+    public MinestomServer boot() {
+        MinestomServer server = newServer();
+        server.loadModulesWithDependencies();
+        return server;
+    }
+
+    private static MinestomServer newServer() {
+        return new MinestomServer(SERVER_NAME, SERVER_NAME, UUID.randomUUID(), 25565, BenchModules.create());
+    }
+}
@@ -0,0 +1,22 @@
+plugins {
+    id("java")
+    id("application")
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(project(":core"))
+    implementation("org.jetbrains:annotations:26.0.2")
+}
+
+application {
+    mainClass.set("dev.shiftsad.bots.BotLoadTest")
+}
+
+// ./gradlew :bots:run --args="--bots=1000 --duration=120"
+tasks.named<JavaExec>("run") {
+    workingDir = rootDir
+}
@@ -0,0 +1,313 @@
+package dev.shiftsad.bots;
+
+import dev.shiftsad.core.events.EventBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One protocol-level client. Logs in offline, walks through configuration, then moves
+ * and chats in play until stopped or kicked.
+ * <p>
+ * Each bot runs two virtual threads: a reader that answers the server and a behaviour
+ * loop that sends a movement packet every client tick.
+ */
+final class Bot {
+
+    private static final Logger logger = Logger.getLogger(Bot.class.getName());
+
+    private static final long CLIENT_TICK_MILLIS = 50;
+    private static final float CHUNKS_PER_TICK = 25;
+
+    private enum State {LOGIN, CONFIGURATION, PLAY}
+
+    /* A bot's own idea of where it stands */
+    static final class Position {
+        double x;
+        double y;
+        double z;
+        double yaw;
+
+        Position(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        double distanceSquared(Position other) {
+            double dx = x - other.x;
+            double dz = z - other.z;
+            return dx * dx + dz * dz;
+        }
+    }
+
+    private final String name;
+    private final UUID uuid;
+    private final BotOptions options;
+    private final LoadStats stats;
+
+    private volatile PacketConnection connection;
+    private volatile State state = State.LOGIN;
+    private volatile boolean running;
+
+    private final Position position = new Position(0, 0, 0);
+    private Position origin;
+    private long connectStartNanos;
+    private volatile long joinedAtNanos;
+
+    private Thread reader;
+    private Thread behaviour;
+
+    Bot(int index, @NotNull BotOptions options, @NotNull LoadStats stats) {
+        this.name = "bot" + index;
+        this.uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+        this.options = options;
+        this.stats = stats;
+    }
+
+    void start() {
+        running = true;
+        reader = Thread.ofVirtual().name(name + "-reader").start(this::run);
+    }
+
+    void stop() {
+        running = false;
+        closeConnection();
+        if (behaviour != null) {
+            behaviour.interrupt();
+        }
+    }
+
+    void awaitTermination() throws InterruptedException {
+        if (reader != null) reader.join();
+        if (behaviour != null) behaviour.join();
+    }
+
+    private void run() {
+        stats.attempted();
+        connectStartNanos = System.nanoTime();
+        try {
+            connection = PacketConnection.open(options.host(), options.port(), stats);
+            if (!running) {
+                closeConnection();
+                return;
+            }
+            login();
+            while (running) {
+                handle(connection.read());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                if (joinedAtNanos == 0) stats.failed();
+                logger.log(Level.FINE, name + " lost its connection", e);
+            }
+        } finally {
+            running = false;
+            closeConnection();
+            if (joinedAtNanos != 0) {
+                stats.left(System.nanoTime() - joinedAtNanos);
+            }
+            if (behaviour != null) {
+                behaviour.interrupt();
+            }
+        }
+    }
+
+    private void login() throws IOException {
+        connection.send(Protocol.Handshake.INTENTION, buffer -> {
+            buffer.writeVarInt(Protocol.VERSION);
+            buffer.writeString(options.host());
+            buffer.writeByte(options.port() >>> 8);
+            buffer.writeByte(options.port());
+            buffer.writeVarInt(Protocol.INTENT_LOGIN);
+        });
+        connection.send(Protocol.Login.HELLO, buffer -> {
+            buffer.writeString(name);
+            buffer.writeUuid(uuid);
+        });
+    }
+
+    private void handle(EventBuffer packet) throws IOException {
+        int id = packet.readVarInt();
+        switch (state) {
+            case LOGIN -> handleLogin(id, packet);
+            case CONFIGURATION -> handleConfiguration(id, packet);
+            case PLAY -> handlePlay(id, packet);
+        }
+    }
+
+    private void handleLogin(int id, EventBuffer packet) throws IOException {
+        switch (id) {
+            case Protocol.Login.SET_COMPRESSION -> connection.enableCompression(packet.readVarInt());
+            case Protocol.Login.LOGIN_SUCCESS -> {
+                connection.send(Protocol.Login.LOGIN_ACKNOWLEDGED, buffer -> {
+                });
+                state = State.CONFIGURATION;
+            }
+            case Protocol.Login.PLUGIN_REQUEST -> {
+                int messageId = packet.readVarInt();
+                connection.send(Protocol.Login.PLUGIN_RESPONSE, buffer -> {
+                    buffer.writeVarInt(messageId);
+                    buffer.writeBoolean(false);
+                });
+            }
+            case Protocol.Login.ENCRYPTION_REQUEST ->
+                    throw new IOException("Server is in online mode, bots can only join offline servers");
+            case Protocol.Login.DISCONNECT -> kicked("login");
+            default -> {
+            }
+        }
+    }
+
+    private void handleConfiguration(int id, EventBuffer packet) throws IOException {
+        switch (id) {
+            case Protocol.Configuration.SELECT_KNOWN_PACKS -> {
+                // Claim every pack the server offers, like a vanilla client, so registries arrive without data
+                List<String> packs = new ArrayList<>();
+                int count = packet.readVarInt();
+                for (int i = 0; i < count * 3; i++) {
+                    packs.add(packet.readString());
+                }
+                connection.send(Protocol.Configuration.KNOWN_PACKS, buffer -> {
+                    buffer.writeVarInt(count);
+                    packs.forEach(buffer::writeString);
+                });
+            }
+            case Protocol.Configuration.KEEP_ALIVE -> {
+                long keepAliveId = packet.readLong();
+                connection.send(Protocol.Configuration.KEEP_ALIVE_RESPONSE, buffer -> buffer.writeLong(keepAliveId));
+            }
+            case Protocol.Configuration.PING -> {
+                int pingId = packet.readInt();
+                connection.send(Protocol.Configuration.PONG, buffer -> buffer.writeInt(pingId));
+            }
+            case Protocol.Configuration.FINISH -> {
+                connection.send(Protocol.Configuration.FINISH_ACKNOWLEDGED, buffer -> {
+                });
+                state = State.PLAY;
+            }
+            case Protocol.Configuration.DISCONNECT -> kicked("configuration");
+            default -> {
+            }
+        }
+    }
+
+    private void handlePlay(int id, EventBuffer packet) throws IOException {
+        switch (id) {
+            case Protocol.Play.KEEP_ALIVE -> {
+                long keepAliveId = packet.readLong();
+                connection.send(Protocol.Play.KEEP_ALIVE_RESPONSE, buffer -> buffer.writeLong(keepAliveId));
+            }
+            case Protocol.Play.PLAYER_POSITION -> teleported(packet);
+            case Protocol.Play.CHUNK_BATCH_FINISHED ->
+                    connection.send(Protocol.Play.CHUNK_BATCH_RECEIVED,
+                            buffer -> buffer.writeInt(Float.floatToIntBits(CHUNKS_PER_TICK)));
+            case Protocol.Play.DISCONNECT -> kicked("play");
+            default -> {
+            }
+        }
+    }
+
+    private void teleported(EventBuffer packet) throws IOException {
+        int teleportId = packet.readVarInt();
+        double x = packet.readDouble();
+        double y = packet.readDouble();
+        double z = packet.readDouble();
+        packet.skip(3 * Double.BYTES + 2 * Float.BYTES);
+        int relative = packet.readInt();
+
+        synchronized (position) {
+            position.x = (relative & 0x01) != 0 ? position.x + x : x;
+            position.y = (relative & 0x02) != 0 ? position.y + y : y;
+            position.z = (relative & 0x04) != 0 ? position.z + z : z;
+        }
+        connection.send(Protocol.Play.ACCEPT_TELEPORTATION, buffer -> buffer.writeVarInt(teleportId));
+        sendPosition();
+
+        if (joinedAtNanos == 0) {
+            joinedAtNanos = System.nanoTime();
+            stats.joined(joinedAtNanos - connectStartNanos);
+            origin = new Position(position.x, position.y, position.z);
+            behaviour = Thread.ofVirtual().name(name + "-behaviour").start(this::behave);
+        }
+    }
+
+    private void behave() {
+        long chatEveryTicks = options.chatEvery().toMillis() / CLIENT_TICK_MILLIS;
+        // Spread chat out so a thousand bots don't all talk on the same tick
+        long chatOffset = chatEveryTicks == 0 ? 0 : ThreadLocalRandom.current().nextLong(chatEveryTicks);
+        long messages = 0;
+
+        try {
+            for (long tick = 0; running; tick++) {
+                if (options.pattern() != MovementPattern.IDLE) {
+                    synchronized (position) {
+                        options.pattern().step(position, origin, tick);
+                    }
+                    sendPosition();
+                }
+                if (chatEveryTicks > 0 && tick % chatEveryTicks == chatOffset) {
+                    chat("load test message " + messages++ + " from " + name);
+                }
+                Thread.sleep(CLIENT_TICK_MILLIS);
+            }
+        } catch (InterruptedException ignored) {
+        } catch (IOException e) {
+            if (running) {
+                logger.log(Level.FINE, name + " failed to send", e);
+                closeConnection();
+            }
+        }
+    }
+
+    private void sendPosition() throws IOException {
+        double x, y, z;
+        synchronized (position) {
+            x = position.x;
+            y = position.y;
+            z = position.z;
+        }
+        connection.send(Protocol.Play.MOVE_PLAYER_POS, buffer -> {
+            buffer.writeDouble(x);
+            buffer.writeDouble(y);
+            buffer.writeDouble(z);
+            buffer.writeByte(0x01); // on ground
+        });
+    }
+
+    private void chat(String message) throws IOException {
+        connection.send(Protocol.Play.CHAT, buffer -> {
+            buffer.writeString(message);
+            buffer.writeLong(System.currentTimeMillis());
+            buffer.writeLong(0); // salt
+            buffer.writeBoolean(false); // unsigned
+            buffer.writeVarInt(0); // no acknowledged messages
+            buffer.writeByte(0);
+            buffer.writeByte(0);
+            buffer.writeByte(0);
+            buffer.writeByte(0); // checksum, 0 skips validation
+        });
+        stats.chatSent();
+    }
+
+    private void kicked(String phase) throws IOException {
+        stats.kicked();
+        throw new IOException(name + " was disconnected during " + phase);
+    }
+
+    private void closeConnection() {
+        PacketConnection current = connection;
+        if (current == null) return;
+        try {
+            current.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package dev.shiftsad.bots;
+
+import dev.shiftsad.core.metrics.Histogram;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Connects a crowd of bots to a running server, holds the load for a while, then
+ * reports join latency, bandwidth per player and the server's tick time.
+ * <p>
+ * Start the server under test first, e.g. {@code ./gradlew :tag:run}, then
+ * {@code ./gradlew :bots:run --args="--bots=1000 --duration=120"}.
+ */
+public class BotLoadTest {
+
+    private static final Logger logger = Logger.getLogger(BotLoadTest.class.getName());
+
+    private static final long NANOS_PER_MILLI = 1_000_000;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        BotOptions options;
+        try {
+            options = BotOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(BotOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        LoadStats stats = new LoadStats();
+        TickTimeScraper scraper = options.metricsUrl().isEmpty() ? null : new TickTimeScraper(options.metricsUrl());
+        List<Bot> bots = new ArrayList<>(options.bots());
+
+        logger.info("Spawning " + options.bots() + " bots against " + options.host() + ":" + options.port()
+                + " at " + options.spawnRate() + "/s, moving " + options.pattern().name().toLowerCase(Locale.ROOT));
+        if (scraper != null) scraper.start();
+
+        long startNanos = System.nanoTime();
+        long spawnIntervalNanos = 1_000_000_000L / options.spawnRate();
+        for (int i = 0; i < options.bots(); i++) {
+            long due = startNanos + i * spawnIntervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / NANOS_PER_MILLI, (int) (wait % NANOS_PER_MILLI));
+            }
+
+            Bot bot = new Bot(i, options, stats);
+            bots.add(bot);
+            bot.start();
+        }
+        logger.info("All bots spawned, holding load for " + options.duration().toSeconds() + "s");
+
+        long holdUntil = System.nanoTime() + options.duration().toNanos();
+        while (System.nanoTime() < holdUntil) {
+            Thread.sleep(Math.min(5_000, Math.max(1, (holdUntil - System.nanoTime()) / NANOS_PER_MILLI)));
+            LoadStats.Snapshot progress = stats.snapshot();
+            logger.info(progress.online() + " online, " + progress.joined() + " joined, "
+                    + progress.failed() + " failed, " + progress.kicked() + " kicked");
+        }
+
+        if (scraper != null) scraper.stop();
+        for (Bot bot : bots) bot.stop();
+        for (Bot bot : bots) bot.awaitTermination();
+
+        LoadStats.Snapshot result = stats.snapshot();
+        TickTimeScraper.Report ticks = scraper == null ? null : scraper.report();
+        System.out.print(summary(options, result, ticks));
+
+        Path report = Path.of(options.reportFile());
+        Files.writeString(report, json(options, result, ticks));
+        logger.info("Report written to " + report.toAbsolutePath());
+
+        if (result.joined() == 0) {
+            System.exit(1);
+        }
+    }
+
+    private static String summary(BotOptions options, LoadStats.Snapshot result, @Nullable TickTimeScraper.Report ticks) {
+        Histogram.Snapshot join = result.joinLatencyNanos();
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%n=== %d bots, %s, %ds ===%n",
+                options.bots(), options.pattern().name().toLowerCase(Locale.ROOT), options.duration().toSeconds()));
+        out.append(String.format(Locale.ROOT, "joined %d/%d, failed %d, kicked %d%n",
+                result.joined(), result.attempted(), result.failed(), result.kicked()));
+        out.append(String.format(Locale.ROOT, "join latency ms: p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                millis(join.valueAt(0.5)), millis(join.valueAt(0.9)), millis(join.valueAt(0.99)), millis(join.max())));
+        out.append(String.format(Locale.ROOT, "bandwidth per player: %.1f KiB/s in, %.1f KiB/s out%n",
+                result.bytesInPerPlayerSecond() / 1024, result.bytesOutPerPlayerSecond() / 1024));
+        out.append(String.format(Locale.ROOT, "totals: %d packets / %d bytes in, %d packets / %d bytes out, %d chat messages%n",
+                result.packetsIn(), result.bytesIn(), result.packetsOut(), result.bytesOut(), result.chatMessages()));
+        if (ticks == null) {
+            out.append("tick time: not scraped\n");
+        } else {
+            out.append(String.format(Locale.ROOT,
+                    "tick time ms: mean %.2f  per-second mean p50 %.2f  p99 %.2f  max %.2f  overruns %d/%d%n",
+                    ticks.meanMillis(), ticks.p50IntervalMillis(), ticks.p99IntervalMillis(),
+                    ticks.maxIntervalMillis(), ticks.overruns(), ticks.ticks()));
+        }
+        return out.toString();
+    }
+
+    private static String json(BotOptions options, LoadStats.Snapshot result, @Nullable TickTimeScraper.Report ticks) {
+        Histogram.Snapshot join = result.joinLatencyNanos();
+        StringBuilder out = new StringBuilder("{\n");
+        out.append(String.format(Locale.ROOT,
+                "  \"options\": {\"bots\": %d, \"spawnRate\": %d, \"durationSeconds\": %d, \"pattern\": \"%s\", \"chatEverySeconds\": %d},%n",
+                options.bots(), options.spawnRate(), options.duration().toSeconds(),
+                options.pattern().name().toLowerCase(Locale.ROOT), options.chatEvery().toSeconds()));
+        out.append(String.format(Locale.ROOT,
+                "  \"bots\": {\"attempted\": %d, \"joined\": %d, \"failed\": %d, \"kicked\": %d},%n",
+                result.attempted(), result.joined(), result.failed(), result.kicked()));
+        out.append(String.format(Locale.ROOT,
+                "  \"joinLatencyMillis\": {\"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"max\": %.3f, \"mean\": %.3f},%n",
+                millis(join.valueAt(0.5)), millis(join.valueAt(0.9)), millis(join.valueAt(0.99)),
+                millis(join.max()), join.mean() / NANOS_PER_MILLI));
+        out.append(String.format(Locale.ROOT,
+                "  \"bandwidthPerPlayer\": {\"bytesInPerSecond\": %.1f, \"bytesOutPerSecond\": %.1f},%n",
+                result.bytesInPerPlayerSecond(), result.bytesOutPerPlayerSecond()));
+        out.append(String.format(Locale.ROOT,
+                "  \"totals\": {\"bytesIn\": %d, \"bytesOut\": %d, \"packetsIn\": %d, \"packetsOut\": %d, \"chatMessages\": %d},%n",
+                result.bytesIn(), result.bytesOut(), result.packetsIn(), result.packetsOut(), result.chatMessages()));
+        if (ticks == null) {
+            out.append("  \"tickMillis\": null\n");
+        } else {
+            out.append(String.format(Locale.ROOT,
+                    "  \"tickMillis\": {\"ticks\": %d, \"mean\": %.3f, \"intervalP50\": %.3f, \"intervalP99\": %.3f, "
+                            + "\"intervalMax\": %.3f, \"overruns\": %d, \"serverP99\": %.3f, \"serverMax\": %.3f}%n",
+                    ticks.ticks(), ticks.meanMillis(), ticks.p50IntervalMillis(), ticks.p99IntervalMillis(),
+                    ticks.maxIntervalMillis(), ticks.overruns(), ticks.serverP99Millis(), ticks.serverMaxMillis()));
+        }
+        return out.append("}\n").toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,91 @@
+package dev.shiftsad.bots;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load test settings, parsed from {@code --key=value} arguments.
+ *
+ * @param host        address of the server under test
+ * @param port        its port
+ * @param bots        how many bots to connect
+ * @param spawnRate   bots connected per second while ramping up
+ * @param duration    how long to hold the full load once every bot is spawned
+ * @param pattern     how the bots move
+ * @param chatEvery   how often each bot chats, or {@link Duration#ZERO} to stay silent
+ * @param metricsUrl  the server's Prometheus endpoint, or empty to skip tick time
+ * @param reportFile  where the JSON report is written
+ */
+record BotOptions(
+        @NotNull String host,
+        int port,
+        int bots,
+        int spawnRate,
+        @NotNull Duration duration,
+        @NotNull MovementPattern pattern,
+        @NotNull Duration chatEvery,
+        @NotNull String metricsUrl,
+        @NotNull String reportFile
+) {
+
+    static final String USAGE = """
+            Usage: bots [--key=value ...]
+              --host=127.0.0.1        server address
+              --port=25565            server port
+              --bots=100              bots to connect
+              --spawn-rate=50         bots connected per second
+              --duration=60           seconds to hold the full load
+              --pattern=random_walk   idle, random_walk or circle
+              --chat-every=10         seconds between chat messages per bot, 0 to disable
+              --metrics=http://127.0.0.1:9464/metrics
+                                      server metrics endpoint, empty to skip tick time
+              --report=bots-report.json
+            """;
+
+    BotOptions {
+        if (bots <= 0) throw new IllegalArgumentException("bots must be greater than 0");
+        if (spawnRate <= 0) throw new IllegalArgumentException("spawn-rate must be greater than 0");
+        if (port <= 0 || port > 65535) throw new IllegalArgumentException("port must be between 1 and 65535");
+        if (duration.isNegative()) throw new IllegalArgumentException("duration must not be negative");
+        if (chatEvery.isNegative()) throw new IllegalArgumentException("chat-every must not be negative");
+    }
+
+    static @NotNull BotOptions parse(String @NotNull [] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        BotOptions options = new BotOptions(
+                values.getOrDefault("host", "127.0.0.1"),
+                Integer.parseInt(values.getOrDefault("port", "25565")),
+                Integer.parseInt(values.getOrDefault("bots", "100")),
+                Integer.parseInt(values.getOrDefault("spawn-rate", "50")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                MovementPattern.valueOf(values.getOrDefault("pattern", "random_walk").toUpperCase(Locale.ROOT)),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("chat-every", "10"))),
+                values.getOrDefault("metrics", "http://127.0.0.1:9464/metrics"),
+                values.getOrDefault("report", "bots-report.json")
+        );
+
+        values.keySet().removeAll(List.of(
+                "host", "port", "bots", "spawn-rate", "duration", "pattern", "chat-every", "metrics", "report"
+        ));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        return options;
+    }
+}
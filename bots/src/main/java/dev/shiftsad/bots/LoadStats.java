@@ -0,0 +1,108 @@
+package dev.shiftsad.bots;
+
+import dev.shiftsad.core.metrics.Histogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by every bot in a run. Updated from the bots' reader and behaviour
+ * threads, so everything is lock-free.
+ */
+final class LoadStats {
+
+    private final Histogram joinLatencyNanos = new Histogram();
+
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder packetsIn = new LongAdder();
+    private final LongAdder packetsOut = new LongAdder();
+    private final LongAdder chatMessages = new LongAdder();
+
+    /* Nanoseconds bots spent in play, to turn byte totals into per-player rates */
+    private final LongAdder playNanos = new LongAdder();
+
+    private final AtomicInteger attempted = new AtomicInteger();
+    private final AtomicInteger joined = new AtomicInteger();
+    private final AtomicInteger online = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger kicked = new AtomicInteger();
+
+    void packetSent(int bytes) {
+        bytesOut.add(bytes);
+        packetsOut.increment();
+    }
+
+    void packetReceived(int bytes) {
+        bytesIn.add(bytes);
+        packetsIn.increment();
+    }
+
+    void chatSent() {
+        chatMessages.increment();
+    }
+
+    void attempted() {
+        attempted.incrementAndGet();
+    }
+
+    void joined(long latencyNanos) {
+        joinLatencyNanos.record(latencyNanos);
+        joined.incrementAndGet();
+        online.incrementAndGet();
+    }
+
+    void left(long playedNanos) {
+        playNanos.add(playedNanos);
+        online.decrementAndGet();
+    }
+
+    void failed() {
+        failed.incrementAndGet();
+    }
+
+    void kicked() {
+        kicked.incrementAndGet();
+    }
+
+    int online() {
+        return online.get();
+    }
+
+    @NotNull Snapshot snapshot() {
+        return new Snapshot(
+                attempted.get(), joined.get(), online.get(), failed.get(), kicked.get(),
+                joinLatencyNanos.snapshot(),
+                bytesIn.sum(), bytesOut.sum(), packetsIn.sum(), packetsOut.sum(),
+                chatMessages.sum(), playNanos.sum()
+        );
+    }
+
+    record Snapshot(
+            int attempted,
+            int joined,
+            int online,
+            int failed,
+            int kicked,
+            @NotNull Histogram.Snapshot joinLatencyNanos,
+            long bytesIn,
+            long bytesOut,
+            long packetsIn,
+            long packetsOut,
+            long chatMessages,
+            long playNanos
+    ) {
+
+        /**
+         * Bytes per second per player in play, averaged over the time bots spent joined.
+         */
+        double bytesInPerPlayerSecond() {
+            return playNanos == 0 ? 0 : bytesIn / (playNanos / 1e9);
+        }
+
+        double bytesOutPerPlayerSecond() {
+            return playNanos == 0 ? 0 : bytesOut / (playNanos / 1e9);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package dev.shiftsad.bots;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a bot moves around its spawn point, one step per client tick.
+ */
+enum MovementPattern {
+
+    /* Stays put, only answering keep-alives */
+    IDLE {
+        @Override
+        void step(Bot.Position position, Bot.Position origin, long tick) {
+        }
+    },
+
+    /* Picks a new heading now and then, staying within 16 blocks of spawn */
+    RANDOM_WALK {
+        @Override
+        void step(Bot.Position position, Bot.Position origin, long tick) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (tick % 20 == 0 || position.distanceSquared(origin) > 16 * 16) {
+                position.yaw = position.distanceSquared(origin) > 16 * 16
+                        ? Math.atan2(origin.z - position.z, origin.x - position.x)
+                        : random.nextDouble(Math.PI * 2);
+            }
+            position.x += Math.cos(position.yaw) * WALK_SPEED;
+            position.z += Math.sin(position.yaw) * WALK_SPEED;
+        }
+    },
+
+    /* Walks a circle of radius 8 around spawn */
+    CIRCLE {
+        @Override
+        void step(Bot.Position position, Bot.Position origin, long tick) {
+            double angle = tick * WALK_SPEED / 8;
+            position.x = origin.x + Math.cos(angle) * 8;
+            position.z = origin.z + Math.sin(angle) * 8;
+        }
+    };
+
+    /* Blocks per tick, a little under vanilla walking speed */
+    private static final double WALK_SPEED = 0.2;
+
+    abstract void step(Bot.Position position, Bot.Position origin, long tick);
+}
@@ -0,0 +1,187 @@
+package dev.shiftsad.bots;
+
+import dev.shiftsad.core.events.EventBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A bot's TCP connection, framing packets with length prefixes and zlib compression
+ * once the server enables it. Packets are encoded with {@link EventBuffer}, whose
+ * big-endian numbers, VarInts and strings match the Minecraft wire format.
+ * <p>
+ * {@link #read()} must only be called by the bot's reader thread. {@link #send} may be
+ * called from any thread.
+ */
+final class PacketConnection implements Closeable {
+
+    private static final int MAX_PACKET_SIZE = 8 * 1024 * 1024;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final LoadStats stats;
+
+    private final EventBuffer payload = new EventBuffer(256);
+    private final EventBuffer frame = new EventBuffer(256);
+    private final EventBuffer incoming = new EventBuffer(0);
+    private final Deflater deflater = new Deflater();
+    private final Inflater inflater = new Inflater();
+    private byte[] deflated = new byte[256];
+
+    private volatile int compressionThreshold = -1;
+
+    private PacketConnection(Socket socket, LoadStats stats) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 8 * 1024);
+        this.stats = stats;
+    }
+
+    static @NotNull PacketConnection open(@NotNull String host, int port, @NotNull LoadStats stats) throws IOException {
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), 5_000);
+        return new PacketConnection(socket, stats);
+    }
+
+    void enableCompression(int threshold) {
+        compressionThreshold = threshold;
+    }
+
+    /**
+     * Writes packet {@code id} with the body written by {@code body}, and flushes it.
+     */
+    synchronized void send(int id, @NotNull Consumer<EventBuffer> body) throws IOException {
+        payload.clear();
+        payload.writeVarInt(id);
+        body.accept(payload);
+        byte[] data = payload.toByteArray();
+
+        frame.clear();
+        int threshold = compressionThreshold;
+        if (threshold < 0) {
+            frame.writeVarInt(data.length);
+            frame.writeBytes(data, 0, data.length);
+        } else if (data.length < threshold) {
+            frame.writeVarInt(data.length + 1);
+            frame.writeVarInt(0);
+            frame.writeBytes(data, 0, data.length);
+        } else {
+            int compressedLength = deflate(data);
+            frame.writeVarInt(varIntSize(data.length) + compressedLength);
+            frame.writeVarInt(data.length);
+            frame.writeBytes(deflated, 0, compressedLength);
+        }
+
+        byte[] bytes = frame.toByteArray();
+        out.write(bytes);
+        out.flush();
+        stats.packetSent(bytes.length);
+    }
+
+    /**
+     * Blocks until the next packet arrives.
+     *
+     * @return a buffer positioned at the packet id, valid until the next call
+     */
+    @NotNull EventBuffer read() throws IOException {
+        int length = readVarInt();
+        if (length <= 0 || length > MAX_PACKET_SIZE) {
+            throw new IOException("Bad packet length " + length);
+        }
+
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("Connection closed mid-packet");
+        }
+        stats.packetReceived(length + varIntSize(length));
+
+        incoming.wrap(bytes);
+        if (compressionThreshold < 0) {
+            return incoming;
+        }
+
+        int dataLength = incoming.readVarInt();
+        if (dataLength == 0) {
+            return incoming;
+        }
+        if (dataLength > MAX_PACKET_SIZE) {
+            throw new IOException("Bad uncompressed length " + dataLength);
+        }
+
+        byte[] data = new byte[dataLength];
+        inflater.reset();
+        inflater.setInput(bytes, incoming.readIndex(), bytes.length - incoming.readIndex());
+        try {
+            if (inflater.inflate(data) != dataLength) {
+                throw new IOException("Packet inflated to the wrong size");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed packet", e);
+        }
+        incoming.wrap(data);
+        return incoming;
+    }
+
+    /**
+     * Closes the socket, unblocking the reader. The zlib streams are left to their
+     * cleaners since a sender may still be using the deflater.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private int deflate(byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == deflated.length) {
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            }
+            length += deflater.deflate(deflated, length, deflated.length - length);
+        }
+        return length;
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Connection closed");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarInt is too long");
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,68 @@
+package dev.shiftsad.bots;
+
+/**
+ * Packet ids of the Java Edition 1.21.5 protocol (770) used by the bots, matching the
+ * Minestom version the servers run. Only what a bot needs to join, stay connected,
+ * move and chat is listed.
+ */
+final class Protocol {
+
+    static final int VERSION = 770;
+
+    /* Handshake intent asking to log in */
+    static final int INTENT_LOGIN = 2;
+
+    static final class Handshake {
+        static final int INTENTION = 0x00;
+    }
+
+    static final class Login {
+        // Clientbound
+        static final int DISCONNECT = 0x00;
+        static final int ENCRYPTION_REQUEST = 0x01;
+        static final int LOGIN_SUCCESS = 0x02;
+        static final int SET_COMPRESSION = 0x03;
+        static final int PLUGIN_REQUEST = 0x04;
+
+        // Serverbound
+        static final int HELLO = 0x00;
+        static final int PLUGIN_RESPONSE = 0x02;
+        static final int LOGIN_ACKNOWLEDGED = 0x03;
+    }
+
+    static final class Configuration {
+        // Clientbound
+        static final int DISCONNECT = 0x02;
+        static final int FINISH = 0x03;
+        static final int KEEP_ALIVE = 0x04;
+        static final int PING = 0x05;
+        static final int SELECT_KNOWN_PACKS = 0x0E;
+
+        // Serverbound
+        static final int FINISH_ACKNOWLEDGED = 0x03;
+        static final int KEEP_ALIVE_RESPONSE = 0x04;
+        static final int PONG = 0x05;
+        static final int KNOWN_PACKS = 0x07;
+    }
+
+    static final class Play {
+        // Clientbound
+        static final int CHUNK_BATCH_FINISHED = 0x0B;
+        static final int DISCONNECT = 0x1C;
+        static final int KEEP_ALIVE = 0x26;
+        static final int PLAYER_POSITION = 0x41;
+
+        // Serverbound
+        static final int ACCEPT_TELEPORTATION = 0x00;
+        static final int CHAT = 0x08;
+        static final int CHUNK_BATCH_RECEIVED = 0x0A;
+        static final int KEEP_ALIVE_RESPONSE = 0x1B;
+        static final int MOVE_PLAYER_POS = 0x1D;
+    }
+
+    private Protocol() {
+        throw new UnsupportedOperationException(
+                "Protocol is a constants class and should not be instantiated"
+        );
+    }
+}
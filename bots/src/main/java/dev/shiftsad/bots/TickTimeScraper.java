@@ -0,0 +1,174 @@
+package dev.shiftsad.bots;
+
+import dev.shiftsad.core.metrics.Histogram;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Polls the server's {@code /metrics} endpoint once a second and derives tick times for
+ * the polling window from the deltas of {@code gameserver_tick_seconds}.
+ * <p>
+ * The server's quantiles cover its whole lifetime, including the idle time before the
+ * bots arrived, so they're only reported as-is alongside the windowed numbers.
+ */
+final class TickTimeScraper {
+
+    private static final Logger logger = Logger.getLogger(TickTimeScraper.class.getName());
+
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final HttpRequest request;
+
+    /* Mean tick time of each poll interval, in microseconds */
+    private final Histogram intervalMeanMicros = new Histogram();
+
+    private volatile Thread poller;
+    private @Nullable Map<String, Double> first;
+    private @Nullable Map<String, Double> last;
+    private @Nullable Map<String, Double> previous;
+
+    TickTimeScraper(@NotNull String metricsUrl) {
+        this.request = HttpRequest.newBuilder(URI.create(metricsUrl))
+                .timeout(Duration.ofSeconds(2))
+                .GET()
+                .build();
+    }
+
+    void start() {
+        poller = Thread.ofVirtual().name("tick-scraper").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                poll();
+                try {
+                    Thread.sleep(POLL_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops polling after one last scrape, so the window covers the whole run.
+     */
+    void stop() throws InterruptedException {
+        Thread current = poller;
+        if (current == null) return;
+        current.interrupt();
+        current.join();
+        poll();
+    }
+
+    synchronized @Nullable Report report() {
+        if (first == null || last == null || first == last) {
+            return null;
+        }
+
+        double ticks = last.getOrDefault("gameserver_tick_seconds_count", 0.0)
+                - first.getOrDefault("gameserver_tick_seconds_count", 0.0);
+        double seconds = last.getOrDefault("gameserver_tick_seconds_sum", 0.0)
+                - first.getOrDefault("gameserver_tick_seconds_sum", 0.0);
+        double overruns = last.getOrDefault("gameserver_tick_overruns_total", 0.0)
+                - first.getOrDefault("gameserver_tick_overruns_total", 0.0);
+
+        Histogram.Snapshot intervals = intervalMeanMicros.snapshot();
+        return new Report(
+                (long) ticks,
+                ticks == 0 ? 0 : seconds / ticks * 1_000,
+                intervals.valueAt(0.5) / 1_000.0,
+                intervals.valueAt(0.99) / 1_000.0,
+                intervals.max() / 1_000.0,
+                (long) overruns,
+                last.getOrDefault("gameserver_tick_seconds{quantile=\"0.99\"}", 0.0) * 1_000,
+                last.getOrDefault("gameserver_tick_seconds_max", 0.0) * 1_000
+        );
+    }
+
+    private void poll() {
+        Map<String, Double> samples;
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                logger.warning("Metrics endpoint answered " + response.statusCode());
+                return;
+            }
+            samples = parse(response.body());
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to scrape " + request.uri(), e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        synchronized (this) {
+            if (first == null) {
+                first = samples;
+            }
+            if (previous != null) {
+                double ticks = samples.getOrDefault("gameserver_tick_seconds_count", 0.0)
+                        - previous.getOrDefault("gameserver_tick_seconds_count", 0.0);
+                double seconds = samples.getOrDefault("gameserver_tick_seconds_sum", 0.0)
+                        - previous.getOrDefault("gameserver_tick_seconds_sum", 0.0);
+                if (ticks > 0) {
+                    intervalMeanMicros.record((long) (seconds / ticks * 1_000_000));
+                }
+            }
+            previous = samples;
+            last = samples;
+        }
+    }
+
+    private static Map<String, Double> parse(String body) {
+        Map<String, Double> samples = new HashMap<>();
+        for (String line : body.split("\n")) {
+            if (line.isEmpty() || line.startsWith("#") || !line.startsWith("gameserver_tick_")) {
+                continue;
+            }
+            int separator = line.lastIndexOf(' ');
+            if (separator < 0) continue;
+            try {
+                samples.put(line.substring(0, separator), Double.parseDouble(line.substring(separator + 1)));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Server tick times over the load test, in milliseconds.
+     *
+     * @param ticks            ticks the server ran during the window
+     * @param meanMillis       mean tick time over the window
+     * @param p50IntervalMillis median of the per-second mean tick times
+     * @param p99IntervalMillis 99th percentile of the per-second mean tick times
+     * @param maxIntervalMillis worst per-second mean tick time
+     * @param overruns         ticks longer than the tick budget during the window
+     * @param serverP99Millis  the server's lifetime p99, as exported
+     * @param serverMaxMillis  the server's lifetime longest tick, as exported
+     */
+    record Report(
+            long ticks,
+            double meanMillis,
+            double p50IntervalMillis,
+            double p99IntervalMillis,
+            double maxIntervalMillis,
+            long overruns,
+            double serverP99Millis,
+            double serverMaxMillis
+    ) {
+    }
+}
@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("java-test-fixtures")
 }
 
 repositories {
@@ -9,9 +10,29 @@ repositories {
 dependencies {
     implementation("net.minestom:minestom-snapshots:1_21_5-aa17002536")
     implementation("com.ecwid.consul:consul-api:1.4.5")
+    implementation("org.apache.httpcomponents:httpclient:4.5.5")
+    implementation("com.google.code.gson:gson:2.11.0")
     implementation("io.lettuce:lettuce-core:6.6.0.RELEASE")
     implementation("org.jetbrains:annotations:26.0.2")
     implementation("io.projectreactor:reactor-core:3.8.0-M3")
     compileOnly("org.projectlombok:lombok:1.18.38")
+    annotationProcessor("org.projectlombok:lombok:1.18.38")
+    annotationProcessor(project(":processor"))
     implementation("org.hibernate.orm:hibernate-core:7.0.0.Final")
+
+    testImplementation(platform("org.junit:junit-bom:5.11.0"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testRuntimeOnly("com.h2database:h2:2.3.232")
+
+    testFixturesImplementation("org.jetbrains:annotations:26.0.2")
+}
+
+tasks.test {
+    useJUnitPlatform()
+
+    // The config tests start a Consul stub on this port
+    environment("CONSUL_HOST", "127.0.0.1")
+    environment("CONSUL_PORT", "18501")
+    environment("CONSUL_SNAPSHOT", layout.buildDirectory.file("test-consul-snapshot.bin").get().asFile.absolutePath)
 }
@@ -1,9 +1,13 @@
 package dev.shiftsad.core;
 
+import dev.shiftsad.core.async.TickExecutor;
 import dev.shiftsad.core.exceptions.ModuleDependencyException;
+import dev.shiftsad.core.metrics.MetricsRegistry;
 import dev.shiftsad.core.modules.DependsOn;
 import dev.shiftsad.core.modules.Inject;
 import dev.shiftsad.core.modules.Module;
+import dev.shiftsad.core.modules.wiring.ModuleWiring;
+import dev.shiftsad.core.modules.wiring.ModuleWirings;
 
 import lombok.Getter;
 import net.minestom.server.MinecraftServer;
@@ -11,7 +15,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -23,10 +36,23 @@ public class MinestomServer {
     private final @NotNull UUID uuid;
     private final int port;
 
+    /* Read by Minestom when it initializes, defaults to a single thread ticking every instance */
+    private static final String DISPATCHER_THREADS_PROPERTY = "minestom.dispatcher-threads";
+    /* Read by Minestom when it initializes, its own hook would stop the server before modules drain */
+    private static final String SHUTDOWN_ON_SIGNAL_PROPERTY = "minestom.shutdown-on-signal";
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(10);
+
     private static Logger logger;
     private final List<Module> modules;
     private final Map<Class<? extends Module>, Module> moduleMap;
     private final Set<Module> loadedModules;
+    /* One per module whose initialization started, so concurrent loads of a module share it */
+    private final Map<Module, CompletableFuture<Void>> moduleLoads = new ConcurrentHashMap<>();
+    /* One per module requested through loadModuleAsync, so concurrent requests share one boot */
+    private final Map<Module, CompletableFuture<Module>> moduleRequests = new ConcurrentHashMap<>();
+    private final AtomicBoolean stopping = new AtomicBoolean();
 
     protected MinestomServer(
             @NotNull String game,
@@ -39,112 +65,220 @@ public class MinestomServer {
         this.name = name;
         this.uuid = uuid;
         this.port = port;
-        this.modules = modules;
-        this.moduleMap = new HashMap<>();
-        this.loadedModules = new HashSet<>();
+        this.modules = List.copyOf(modules);
+        this.loadedModules = ConcurrentHashMap.newKeySet();
 
-        // Build module map for quick lookup
+        // Index every module by its own class first, then by each supertype, so lookups never scan
+        Map<Class<? extends Module>, Module> index = new HashMap<>();
         for (Module module : modules) {
-            moduleMap.put(module.getClass(), module);
+            index.put(module.getClass(), module);
         }
+        for (Module module : modules) {
+            for (Class<? extends Module> supertype : supertypesOf(module)) {
+                index.putIfAbsent(supertype, module);
+            }
+        }
+        // Never written again, so any thread can read it without locking
+        this.moduleMap = Map.copyOf(index);
 
         logger = Logger.getLogger(name);
     }
 
     public void start() {
+        // Tick instances on every core unless told otherwise, so matches run in parallel
+        if (System.getProperty(DISPATCHER_THREADS_PROPERTY) == null) {
+            System.setProperty(DISPATCHER_THREADS_PROPERTY, String.valueOf(Runtime.getRuntime().availableProcessors()));
+        }
+        if (System.getProperty(SHUTDOWN_ON_SIGNAL_PROPERTY) == null) {
+            System.setProperty(SHUTDOWN_ON_SIGNAL_PROPERTY, "false");
+        }
         var server = MinecraftServer.init();
         loadModulesWithDependencies();
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name(name + "-shutdown").unstarted(this::stop));
         server.start("localhost", port);
     }
 
-    private void loadModulesWithDependencies() {
-        List<Module> modulesToLoad = modules.stream()
-                .filter(module -> module.getBootPriority().getValue() > 0)
-                .collect(Collectors.toList());
+    /**
+     * Drains and stops every loaded module, then Minestom. Runs on JVM shutdown, e.g.
+     * on SIGTERM during a rolling deploy, and only once however often it's called.
+     * <p>
+     * First {@link Module#drain()} is called on every module, lowest boot priority
+     * first, so the server leaves discovery before game modules turn players away,
+     * and in-flight work gets up to {@link #DRAIN_TIMEOUT} to finish. Then modules are
+     * stopped in reverse dependency order, each as soon as every module depending on
+     * it has stopped, independent ones in parallel, for up to {@link #STOP_TIMEOUT}.
+     */
+    public void stop() {
+        if (!stopping.compareAndSet(false, true)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        drainModules(start + DRAIN_TIMEOUT.toNanos());
+        stopModules(System.nanoTime() + STOP_TIMEOUT.toNanos());
+        MinecraftServer.stopCleanly();
+        logger.info("Shut down in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
 
-        List<Module> loadOrder = resolveDependencies(modulesToLoad);
+    private void drainModules(long deadlineNanos) {
+        List<Module> loaded = new ArrayList<>(loadedModules);
+        loaded.sort(Comparator.comparingInt(module -> module.getBootPriority().getValue()));
+
+        Map<Module, CompletableFuture<Void>> drains = new LinkedHashMap<>();
+        for (Module module : loaded) {
+            try {
+                drains.put(module, module.drain().exceptionally(error -> {
+                    logger.log(Level.WARNING, "Module " + module.getName() + " failed to drain", error);
+                    return null;
+                }));
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Module " + module.getName() + " failed to drain", e);
+            }
+        }
 
-        for (Module module : loadOrder) {
-            loadModule(module);
+        try {
+            CompletableFuture.allOf(drains.values().toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Drain failures are already handled", e);
+        } catch (TimeoutException e) {
+            StringJoiner pending = new StringJoiner(", ");
+            drains.forEach((module, drain) -> {
+                if (!drain.isDone()) pending.add(module.getName());
+            });
+            logger.warning("Drain deadline passed, stopping anyway: " + pending);
         }
     }
 
-    private List<Module> resolveDependencies(List<Module> modulesToLoad) {
-        List<Module> resolved = new ArrayList<>();
-        Set<Module> resolving = new HashSet<>();
-        Set<Module> unresolved = new HashSet<>(modulesToLoad);
+    private void stopModules(long deadlineNanos) {
+        // Reversed graph: a module waits for every loaded module that depends on it
+        Map<Module, Set<Module>> dependents = new HashMap<>();
+        for (Module module : loadedModules) {
+            dependents.putIfAbsent(module, new HashSet<>());
+            for (Module dependency : dependenciesOf(module)) {
+                if (loadedModules.contains(dependency)) {
+                    dependents.computeIfAbsent(dependency, ignored -> new HashSet<>()).add(module);
+                }
+            }
+        }
 
-        for (Module module : modulesToLoad) {
-            resolveDependency(module, resolved, resolving, unresolved);
+        boolean finished = new ModuleBootEngine(logger, dependents, this::stopModule).shutdown(deadlineNanos);
+        if (!finished) {
+            logger.warning("Stop deadline passed with modules still stopping");
         }
+    }
 
-        return resolved.stream()
-                .sorted(Comparator.comparingInt((Module a) -> a.getBootPriority().getValue()).reversed())
+    private void stopModule(Module module) {
+        logger.info("Stopping module " + module.getName());
+        module.stop();
+        loadedModules.remove(module);
+        moduleLoads.remove(module);
+        moduleRequests.remove(module);
+    }
+
+    void loadModulesWithDependencies() {
+        List<Module> bootModules = modules.stream()
+                .filter(module -> module.getBootPriority().getValue() > 0)
                 .collect(Collectors.toList());
+
+        new ModuleBootEngine(logger, dependencyGraphOf(bootModules), this::loadModule).boot();
     }
 
-    private void resolveDependency(
-            Module module,
-            List<Module> resolved,
-            Set<Module> resolving,
-            Set<Module> unresolved
-    ) {
-        if (resolved.contains(module)) {
-            return;
-        }
+    /**
+     * @return {@code roots} and everything they need, even modules that wouldn't boot on their own,
+     * each mapped to its direct dependencies
+     */
+    private Map<Module, Set<Module>> dependencyGraphOf(Collection<Module> roots) {
+        Map<Module, Set<Module>> graph = new HashMap<>();
+        Deque<Module> queue = new ArrayDeque<>(roots);
+
+        while (!queue.isEmpty()) {
+            Module module = queue.poll();
+            if (graph.containsKey(module)) {
+                continue;
+            }
 
-        if (resolving.contains(module)) {
-            throw new ModuleDependencyException(
-                    "Circular dependency detected involving module: " +
-                            module.getName()
-            );
+            Set<Module> dependencies = dependenciesOf(module);
+            graph.put(module, dependencies);
+            queue.addAll(dependencies);
         }
+        return graph;
+    }
 
-        resolving.add(module);
+    private Set<Module> dependenciesOf(Module module) {
+        Set<Module> dependencies = new HashSet<>();
 
-        // Get dependencies from annotation
-        DependsOn dependsOn = module.getClass().getAnnotation(DependsOn.class);
-        if (dependsOn != null) {
-            for (Class<? extends Module> depClass : dependsOn.value()) {
-                Module dependency = findModuleByClass(depClass);
-                if (dependency == null) {
-                    throw new ModuleDependencyException(
-                            "Module " + module.getName() +
-                                    " depends on " + depClass.getSimpleName() +
-                                    " but it's not registered"
-                    );
-                }
-
-                if (unresolved.contains(dependency)) {
-                    resolveDependency(dependency, resolved, resolving, unresolved);
-                }
+        for (Class<? extends Module> depClass : dependencyTypesOf(module)) {
+            Module dependency = findModuleByClass(depClass);
+            if (dependency == null) {
+                throw new ModuleDependencyException(
+                        "Module " + module.getName() +
+                                " depends on " + depClass.getSimpleName() +
+                                " but it's not registered"
+                );
             }
+            dependencies.add(dependency);
         }
 
-        resolving.remove(module);
-        unresolved.remove(module);
-        resolved.add(module);
+        dependencies.remove(module);
+        return dependencies;
     }
 
+    /**
+     * Initializes {@code module} unless it already was. If another thread is already
+     * initializing it, waits for that thread instead of initializing it twice.
+     */
     private void loadModule(Module module) {
-        if (loadedModules.contains(module)) {
-            return; // Already loaded
+        CompletableFuture<Void> load = new CompletableFuture<>();
+        CompletableFuture<Void> existing = moduleLoads.putIfAbsent(module, load);
+        if (existing != null) {
+            try {
+                existing.join();
+            } catch (CompletionException e) {
+                throw new ModuleDependencyException("Module " + module.getName() + " failed to load", e.getCause());
+            }
+            return;
         }
 
+        try {
+            initializeModule(module);
+            load.complete(null);
+        } catch (Throwable t) {
+            // Forget the failure so the module can be loaded again later
+            moduleLoads.remove(module, load);
+            load.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    private void initializeModule(Module module) {
         logger.info("Loading module " + module.getName());
-        var time = System.currentTimeMillis();
+        var time = System.nanoTime();
 
         injectDependencies(module);
         module.initialize();
 
         loadedModules.add(module);
+        long elapsed = System.nanoTime() - time;
+        MetricsRegistry.shared().histogram(
+                "gameserver_module_init_seconds", "Time spent initializing each module",
+                MetricsRegistry.NANOS_TO_SECONDS, "module", module.getName()
+        ).record(elapsed);
         logger.info(
                 "Loaded module " + module.getName() +
-                        " in " + (System.currentTimeMillis() - time) + " ms"
+                        " in " + elapsed / 1_000_000 + " ms"
         );
     }
 
     private void injectDependencies(Module module) {
+        ModuleWiring<Module> wiring = wiringOf(module);
+        if (wiring != null) {
+            wiring.inject(module, this::resolveInjection);
+            return;
+        }
+
         Class<?> clazz = module.getClass();
 
         while (clazz != null && clazz != Object.class) {
@@ -166,16 +300,7 @@ public class MinestomServer {
             }
 
             Class<?> fieldType = field.getType();
-
-            Module dependency = null;
-            if (Module.class.isAssignableFrom(fieldType)) {
-                @SuppressWarnings("unchecked")
-                Class<? extends Module> moduleClass =
-                        (Class<? extends Module>) fieldType;
-                dependency = findModuleByClass(moduleClass);
-            }
-
-            if (dependency == null) {
+            if (!Module.class.isAssignableFrom(fieldType)) {
                 throw new ModuleDependencyException(
                         "Cannot inject dependency of type " +
                                 fieldType.getSimpleName() +
@@ -184,15 +309,9 @@ public class MinestomServer {
                 );
             }
 
-            if (!loadedModules.contains(dependency)) {
-                loadModule(dependency);
-            }
-
-            field.set(module, dependency);
-            logger.info(
-                    "Injected " + dependency.getName() +
-                            " into " + module.getName()
-            );
+            @SuppressWarnings("unchecked")
+            Class<? extends Module> moduleClass = (Class<? extends Module>) fieldType;
+            field.set(module, resolveInjection(module, moduleClass));
 
         } catch (IllegalAccessException e) {
             throw new ModuleDependencyException(
@@ -203,33 +322,145 @@ public class MinestomServer {
         }
     }
 
+    private @NotNull Module resolveInjection(Module module, Class<? extends Module> moduleClass) {
+        Module dependency = findModuleByClass(moduleClass);
+        if (dependency == null) {
+            throw new ModuleDependencyException(
+                    "Cannot inject dependency of type " +
+                            moduleClass.getSimpleName() +
+                            " into module " + module.getName() +
+                            ". No matching module found."
+            );
+        }
+
+        if (!loadedModules.contains(dependency)) {
+            loadModule(dependency);
+        }
+
+        logger.info(
+                "Injected " + dependency.getName() +
+                        " into " + module.getName()
+        );
+        return dependency;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static @Nullable ModuleWiring<Module> wiringOf(Module module) {
+        return (ModuleWiring<Module>) ModuleWirings.forClass(module.getClass());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Class<? extends Module>> dependencyTypesOf(Module module) {
+        ModuleWiring<Module> wiring = wiringOf(module);
+        if (wiring != null) {
+            return wiring.dependencies();
+        }
+
+        List<Class<? extends Module>> dependencyTypes = new ArrayList<>();
+        DependsOn dependsOn = module.getClass().getAnnotation(DependsOn.class);
+        if (dependsOn != null) {
+            dependencyTypes.addAll(List.of(dependsOn.value()));
+        }
+
+        Class<?> clazz = module.getClass();
+        while (clazz != null && clazz != Object.class) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Inject.class) && Module.class.isAssignableFrom(field.getType())) {
+                    dependencyTypes.add((Class<? extends Module>) field.getType());
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return dependencyTypes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Class<? extends Module>> supertypesOf(Module module) {
+        ModuleWiring<Module> wiring = wiringOf(module);
+        if (wiring != null) {
+            return wiring.supertypes();
+        }
+
+        List<Class<? extends Module>> supertypes = new ArrayList<>();
+        Deque<Class<?>> queue = new ArrayDeque<>(List.of(module.getClass()));
+        while (!queue.isEmpty()) {
+            Class<?> clazz = queue.poll();
+            if (!Module.class.isAssignableFrom(clazz) || supertypes.contains(clazz)) {
+                continue;
+            }
+            supertypes.add((Class<? extends Module>) clazz);
+            if (clazz.getSuperclass() != null) {
+                queue.add(clazz.getSuperclass());
+            }
+            queue.addAll(List.of(clazz.getInterfaces()));
+        }
+        return supertypes;
+    }
+
     public @Nullable Module findModule(Class<? extends Module> moduleClass) {
         return findModuleByClass(moduleClass);
     }
 
     private @Nullable Module findModuleByClass(Class<? extends Module> moduleClass) {
-        Module exactMatch = moduleMap.get(moduleClass);
-        if (exactMatch != null) {
-            return exactMatch;
-        }
-
-        return modules.stream()
-                .filter(module -> moduleClass.isAssignableFrom(module.getClass()))
-                .findFirst()
-                .orElse(null);
+        return moduleMap.get(moduleClass);
     }
 
+    /**
+     * Loads a module and its dependencies, blocking until they're initialized.
+     * Prefer {@link #loadModuleAsync(Class)}, especially on the tick thread.
+     */
     public void loadModule(Class<? extends Module> moduleClass) {
+        TickExecutor.shared().reportBlocking("MinestomServer.loadModule");
+        try {
+            loadModuleAsync(moduleClass).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Loads a module on demand, typically one with {@link dev.shiftsad.core.modules.BootPriority#NONE}
+     * that doesn't boot with the server. Its dependencies that aren't loaded yet are
+     * booted in parallel, as at startup, on virtual threads, and the caller never blocks.
+     * Concurrent requests for the same module share one load, and a module is never
+     * initialized twice, even when requested while the server is still booting.
+     *
+     * @return a future completed with the module, on a loader thread, once it's initialized.
+     * If loading fails, the next request tries again
+     * @throws ModuleDependencyException if no such module is registered
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Module> @NotNull CompletableFuture<T> loadModuleAsync(@NotNull Class<T> moduleClass) {
         Module module = findModuleByClass(moduleClass);
         if (module == null) {
             throw new ModuleDependencyException(
                     "Module " + moduleClass.getSimpleName() + " not found"
             );
         }
+        if (loadedModules.contains(module)) {
+            return CompletableFuture.completedFuture((T) module);
+        }
 
-        if (module.getBootPriority().getValue() == 0) {
-            loadModule(module);
+        CompletableFuture<Module> request = new CompletableFuture<>();
+        CompletableFuture<Module> existing = moduleRequests.putIfAbsent(module, request);
+        if (existing != null) {
+            return (CompletableFuture<T>) existing;
         }
+
+        Thread.ofVirtual().name("module-loader-" + module.getName()).start(() -> {
+            try {
+                // Dependencies already loaded are part of the graph but return right away
+                new ModuleBootEngine(logger, dependencyGraphOf(List.of(module)), this::loadModule).boot();
+                request.complete(module);
+            } catch (Throwable t) {
+                moduleRequests.remove(module, request);
+                request.completeExceptionally(t);
+            }
+        });
+        return (CompletableFuture<T>) request;
     }
 
     public boolean isModuleLoaded(Class<? extends Module> moduleClass) {
@@ -237,6 +468,10 @@ public class MinestomServer {
         return module != null && loadedModules.contains(module);
     }
 
+    public static Builder builder() {
+        return new Builder();
+    }
+
     public static class Builder {
         private String game;
         private String name;
@@ -0,0 +1,275 @@
+package dev.shiftsad.core;
+
+import dev.shiftsad.core.exceptions.ModuleDependencyException;
+import dev.shiftsad.core.modules.Module;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Boots a module dependency graph concurrently.
+ * <p>
+ * Every module is started on its own virtual thread as soon as all of its
+ * dependencies have finished initializing. When several modules become ready
+ * at the same time they are dispatched in {@link dev.shiftsad.core.modules.BootPriority}
+ * order. The first failure cancels every module still running and aborts the boot.
+ * <p>
+ * Given the reversed graph, each module mapped to the modules depending on it, and a
+ * loader that stops modules, {@link #shutdown(long)} stops modules in parallel the same way.
+ */
+final class ModuleBootEngine {
+
+    private static final Comparator<Module> PRIORITY_ORDER =
+            Comparator.comparingInt((Module module) -> module.getBootPriority().getValue()).reversed();
+
+    private final Logger logger;
+    private final Map<Module, Set<Module>> dependencies;
+    private final Consumer<Module> loader;
+
+    private final Map<Module, List<Module>> dependents = new HashMap<>();
+    private final Map<Module, Timing> timings = new ConcurrentHashMap<>();
+
+    /**
+     * @param logger       logger used for the critical path report
+     * @param dependencies every module to boot mapped to the modules it needs first
+     * @param loader       performs the actual load of a single module
+     */
+    ModuleBootEngine(
+            @NotNull Logger logger,
+            @NotNull Map<Module, Set<Module>> dependencies,
+            @NotNull Consumer<Module> loader
+    ) {
+        this.logger = logger;
+        this.dependencies = dependencies;
+        this.loader = loader;
+
+        for (Module module : dependencies.keySet()) {
+            dependents.put(module, new ArrayList<>());
+        }
+        for (Map.Entry<Module, Set<Module>> entry : dependencies.entrySet()) {
+            for (Module dependency : entry.getValue()) {
+                List<Module> list = dependents.get(dependency);
+                if (list == null) {
+                    throw new ModuleDependencyException(
+                            "Module " + entry.getKey().getName() +
+                                    " depends on " + dependency.getName() +
+                                    " but it's not part of the boot graph"
+                    );
+                }
+                list.add(entry.getKey());
+            }
+        }
+
+        checkForCycles();
+    }
+
+    void boot() {
+        if (dependencies.isEmpty()) {
+            return;
+        }
+
+        long bootStart = System.nanoTime();
+        runAll(true, Long.MAX_VALUE);
+        report(bootStart, "Booted");
+    }
+
+    /**
+     * Like {@link #boot()}, but a failing module is logged and its dependents still run,
+     * and modules still running at {@code deadlineNanos} are interrupted and left behind.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} to give up at
+     * @return false if the deadline passed first
+     */
+    boolean shutdown(long deadlineNanos) {
+        if (dependencies.isEmpty()) {
+            return true;
+        }
+
+        long start = System.nanoTime();
+        boolean finished = runAll(false, deadlineNanos);
+        report(start, "Stopped");
+        return finished;
+    }
+
+    private boolean runAll(boolean failFast, long deadlineNanos) {
+        Map<Module, Integer> pending = new HashMap<>();
+        PriorityQueue<Module> ready = new PriorityQueue<>(PRIORITY_ORDER);
+
+        for (Map.Entry<Module, Set<Module>> entry : dependencies.entrySet()) {
+            pending.put(entry.getKey(), entry.getValue().size());
+            if (entry.getValue().isEmpty()) {
+                ready.add(entry.getKey());
+            }
+        }
+
+        BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        Map<Module, Future<?>> running = new HashMap<>();
+        int finished = 0;
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            while (finished < dependencies.size()) {
+                while (!ready.isEmpty()) {
+                    Module module = ready.poll();
+                    running.put(module, executor.submit(() -> run(module, completions)));
+                }
+
+                Completion completion;
+                try {
+                    completion = deadlineNanos == Long.MAX_VALUE
+                            ? completions.take()
+                            : completions.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel(running);
+                    throw new ModuleDependencyException("Interrupted while booting modules", e);
+                }
+
+                if (completion == null) {
+                    cancel(running);
+                    return false;
+                }
+
+                running.remove(completion.module());
+                if (completion.error() != null) {
+                    if (failFast) {
+                        cancel(running);
+                        throw new ModuleDependencyException(
+                                "Failed to load module " + completion.module().getName(),
+                                completion.error()
+                        );
+                    }
+                    logger.log(Level.WARNING, "Module " + completion.module().getName() + " failed", completion.error());
+                }
+
+                finished++;
+                for (Module dependent : dependents.get(completion.module())) {
+                    if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return true;
+    }
+
+    private void run(Module module, BlockingQueue<Completion> completions) {
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            loader.accept(module);
+        } catch (Throwable t) {
+            error = t;
+        }
+        timings.put(module, new Timing(start, System.nanoTime()));
+        completions.add(new Completion(module, error));
+    }
+
+    private void cancel(Map<Module, Future<?>> running) {
+        for (Map.Entry<Module, Future<?>> entry : running.entrySet()) {
+            entry.getValue().cancel(true);
+            logger.warning("Cancelled module " + entry.getKey().getName() + " while it was still running");
+        }
+        running.clear();
+    }
+
+    private void checkForCycles() {
+        Map<Module, Integer> pending = new HashMap<>();
+        Deque<Module> queue = new ArrayDeque<>();
+
+        for (Map.Entry<Module, Set<Module>> entry : dependencies.entrySet()) {
+            pending.put(entry.getKey(), entry.getValue().size());
+            if (entry.getValue().isEmpty()) {
+                queue.add(entry.getKey());
+            }
+        }
+
+        int visited = 0;
+        while (!queue.isEmpty()) {
+            Module module = queue.poll();
+            visited++;
+            for (Module dependent : dependents.get(module)) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    queue.add(dependent);
+                }
+            }
+        }
+
+        if (visited != dependencies.size()) {
+            StringJoiner involved = new StringJoiner(", ");
+            pending.forEach((module, count) -> {
+                if (count > 0) involved.add(module.getName());
+            });
+            throw new ModuleDependencyException(
+                    "Circular dependency detected involving modules: " + involved
+            );
+        }
+    }
+
+    /**
+     * Logs the chain of modules that gated the run. Starting from the module that
+     * finished last, it walks back through the dependency that finished last at each step.
+     */
+    private void report(long bootStart, String verb) {
+        Module last = null;
+        for (Module module : timings.keySet()) {
+            if (last == null || timings.get(module).end() > timings.get(last).end()) {
+                last = module;
+            }
+        }
+        if (last == null) {
+            return;
+        }
+
+        Deque<Module> path = new ArrayDeque<>();
+        for (Module current = last; current != null; ) {
+            path.addFirst(current);
+            Module gate = null;
+            for (Module dependency : dependencies.get(current)) {
+                if (!timings.containsKey(dependency)) {
+                    continue; // Never ran, the shutdown deadline passed first
+                }
+                if (gate == null || timings.get(dependency).end() > timings.get(gate).end()) {
+                    gate = dependency;
+                }
+            }
+            current = gate;
+        }
+
+        StringJoiner chain = new StringJoiner(" -> ");
+        for (Module module : path) {
+            chain.add(module.getName() + " (" + millis(timings.get(module).duration()) + " ms)");
+        }
+
+        logger.info(
+                verb + " " + timings.size() + " modules in " +
+                        millis(timings.get(last).end() - bootStart) + " ms, critical path: " + chain
+        );
+        for (Map.Entry<Module, Timing> entry : timings.entrySet()) {
+            Timing timing = entry.getValue();
+            logger.fine(
+                    entry.getKey().getName() + " waited " + millis(timing.start() - bootStart) +
+                            " ms, ran " + millis(timing.duration()) + " ms"
+            );
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private record Completion(Module module, Throwable error) {
+    }
+
+    private record Timing(long start, long end) {
+        long duration() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package dev.shiftsad.core.analytics;
+
+/**
+ * Events drained from an {@link AnalyticsRing} and deflated, ready to be added to a stream.
+ *
+ * @param count    events in the batch
+ * @param rawBytes size of the events before compression
+ * @param data     the events in the ring's drained format, deflated
+ */
+public record AnalyticsBatch(int count, int rawBytes, byte[] data) {
+}
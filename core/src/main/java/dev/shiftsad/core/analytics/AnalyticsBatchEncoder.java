@@ -0,0 +1,61 @@
+package dev.shiftsad.core.analytics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Drains an {@link AnalyticsRing} into deflated {@link AnalyticsBatch}es, reusing its
+ * buffers and deflater from batch to batch. Not thread-safe, it's meant to be the
+ * ring's single consumer.
+ */
+public final class AnalyticsBatchEncoder {
+
+    private final ByteBuffer raw;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed;
+
+    /**
+     * @param maxEvents most events put in one batch
+     */
+    public AnalyticsBatchEncoder(int maxEvents) {
+        if (maxEvents <= 0) throw new IllegalArgumentException("maxEvents must be greater than 0");
+        this.raw = ByteBuffer.allocate(maxEvents * AnalyticsRing.EVENT_BYTES);
+        this.compressed = new byte[raw.capacity() / 4];
+    }
+
+    /**
+     * @return the next batch, or {@code null} if the ring is empty
+     */
+    public @Nullable AnalyticsBatch next(@NotNull AnalyticsRing ring) {
+        raw.clear();
+        int count = ring.drainTo(raw);
+        if (count == 0) {
+            return null;
+        }
+        raw.flip();
+        int rawBytes = raw.remaining();
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return new AnalyticsBatch(count, rawBytes, Arrays.copyOf(compressed, length));
+    }
+
+    /**
+     * Frees the deflater's native memory. The encoder can't be used afterwards.
+     */
+    public void close() {
+        deflater.end();
+    }
+}
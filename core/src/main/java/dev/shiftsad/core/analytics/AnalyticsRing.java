@@ -0,0 +1,158 @@
+package dev.shiftsad.core.analytics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring of gameplay events, written by any number of threads and
+ * read by one.
+ * <p>
+ * Events have a fixed shape and are stored field by field in preallocated arrays, so
+ * {@link #offer} never allocates. Each slot has a sequence number that says whether
+ * it's free to write or ready to read: producers claim a position with a CAS and
+ * publish the slot once written, the consumer frees it once read. A full ring rejects
+ * new events instead of waiting for room.
+ * <p>
+ * Drained events are written as {@link #EVENT_BYTES} big-endian bytes each: type
+ * (byte), time in millis (long), subject and other id (two longs each), x, y, z
+ * (doubles) and value (long).
+ */
+public final class AnalyticsRing {
+
+    public static final int EVENT_BYTES = 1 + 8 + 16 + 16 + 3 * 8 + 8;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    /* Only written by the consumer */
+    private volatile long tail;
+
+    private final byte[] types;
+    private final long[] times;
+    private final long[] subjectMost;
+    private final long[] subjectLeast;
+    private final long[] otherMost;
+    private final long[] otherLeast;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final long[] values;
+
+    /**
+     * @param capacity a power of two
+     */
+    public AnalyticsRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+
+        this.types = new byte[capacity];
+        this.times = new long[capacity];
+        this.subjectMost = new long[capacity];
+        this.subjectLeast = new long[capacity];
+        this.otherMost = new long[capacity];
+        this.otherLeast = new long[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.zs = new double[capacity];
+        this.values = new long[capacity];
+    }
+
+    /**
+     * @return whether the event was stored, {@code false} if the ring is full
+     */
+    public boolean offer(
+            int type,
+            long timeMillis,
+            long subjectMost,
+            long subjectLeast,
+            long otherMost,
+            long otherLeast,
+            double x,
+            double y,
+            double z,
+            long value
+    ) {
+        long position;
+        int index;
+        while (true) {
+            position = head.get();
+            index = (int) position & mask;
+            long available = sequences.getAcquire(index) - position;
+            if (available == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                return false; // The consumer hasn't freed this slot yet
+            }
+            // Another producer took this position, try the next one
+        }
+
+        types[index] = (byte) type;
+        times[index] = timeMillis;
+        this.subjectMost[index] = subjectMost;
+        this.subjectLeast[index] = subjectLeast;
+        this.otherMost[index] = otherMost;
+        this.otherLeast[index] = otherLeast;
+        xs[index] = x;
+        ys[index] = y;
+        zs[index] = z;
+        values[index] = value;
+        sequences.setRelease(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Moves as many events as fit into {@code out}, oldest first. Only one thread may drain.
+     *
+     * @return events drained
+     */
+    public int drainTo(@NotNull ByteBuffer out) {
+        int drained = 0;
+        long position = tail;
+        while (out.remaining() >= EVENT_BYTES) {
+            int index = (int) position & mask;
+            if (sequences.getAcquire(index) != position + 1) {
+                break; // Empty, or the next event is still being written
+            }
+
+            out.put(types[index])
+                    .putLong(times[index])
+                    .putLong(subjectMost[index])
+                    .putLong(subjectLeast[index])
+                    .putLong(otherMost[index])
+                    .putLong(otherLeast[index])
+                    .putDouble(xs[index])
+                    .putDouble(ys[index])
+                    .putDouble(zs[index])
+                    .putLong(values[index]);
+            sequences.setRelease(index, position + capacity);
+            position++;
+            drained++;
+        }
+        tail = position;
+        return drained;
+    }
+
+    /**
+     * @return events waiting to be drained, approximately while producers are writing
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, head.get() - tail));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
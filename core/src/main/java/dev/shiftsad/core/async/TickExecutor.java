@@ -0,0 +1,181 @@
+package dev.shiftsad.core.async;
+
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.thread.TickThread;
+import net.minestom.server.timer.ExecutionType;
+import net.minestom.server.timer.TaskSchedule;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs blocking I/O off the tick thread and hands the results back to it.
+ * <p>
+ * Tasks run on virtual threads. Their futures are not completed where the task ends
+ * but queued, and completed together on the tick thread at the start of the next tick,
+ * so callbacks chained onto them may touch game state without synchronization. Futures
+ * therefore only complete while the server is ticking, and not at all before Minestom
+ * is initialized.
+ * <p>
+ * Blocking module APIs call {@link #reportBlocking(String)}, which counts and logs calls
+ * made from a tick thread so they can be moved to their async variants.
+ */
+public final class TickExecutor {
+
+    private static final Logger logger = Logger.getLogger(TickExecutor.class.getName());
+    private static final TickExecutor SHARED = new TickExecutor();
+
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("tick-async-", 0).factory()
+    );
+    private final Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+    private final Map<String, LongAdder> blockingCalls = new ConcurrentHashMap<>();
+
+    private volatile Thread tickThread;
+    private volatile boolean installed;
+
+    private TickExecutor() {
+    }
+
+    /**
+     * @return the executor shared by every module
+     */
+    public static @NotNull TickExecutor shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs {@code task} on a virtual thread.
+     *
+     * @return a future completed on the tick thread at the start of the tick after the task ends
+     */
+    public <T> @NotNull CompletableFuture<T> supply(@NotNull Callable<T> task) {
+        install();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        workers.execute(() -> {
+            try {
+                T result = task.call();
+                completions.add(() -> future.complete(result));
+            } catch (Throwable e) {
+                completions.add(() -> future.completeExceptionally(e));
+            }
+        });
+        return future;
+    }
+
+    public @NotNull CompletableFuture<Void> run(@NotNull Runnable task) {
+        return supply(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Hands the result of an already running operation, e.g. a Redis command, to the tick thread.
+     *
+     * @return a future completed on the tick thread at the start of the tick after {@code stage} completes
+     */
+    public <T> @NotNull CompletableFuture<T> onTick(@NotNull CompletionStage<T> stage) {
+        install();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        stage.whenComplete((result, error) -> completions.add(error == null
+                ? () -> future.complete(result)
+                : () -> future.completeExceptionally(error)));
+        return future;
+    }
+
+    /**
+     * @return {@code true} if the caller is the thread running server ticks, or one of
+     * the dispatcher threads ticking instances and running their event listeners
+     */
+    public boolean isTickThread() {
+        Thread current = Thread.currentThread();
+        return current == tickThread || current instanceof TickThread;
+    }
+
+    /**
+     * Records a blocking call to {@code operation} if the caller is a tick thread.
+     * The first call of each operation is logged with its stack trace, then every
+     * time its count reaches a power of two.
+     */
+    public void reportBlocking(@NotNull String operation) {
+        install();
+        if (!isTickThread()) {
+            return;
+        }
+
+        LongAdder counter = blockingCalls.computeIfAbsent(operation, ignored -> {
+            LongAdder created = new LongAdder();
+            MetricsRegistry.shared().counter(
+                    "gameserver_tick_blocking_calls_total", "Blocking calls made on the tick thread, by operation",
+                    created::sum, "operation", operation
+            );
+            return created;
+        });
+        counter.increment();
+        long count = counter.sum();
+        if (Long.bitCount(count) == 1) {
+            logger.log(
+                    Level.WARNING,
+                    "Blocking call " + operation + " on the tick thread (" + count + " so far), use its async variant",
+                    new Throwable("Called from")
+            );
+        }
+    }
+
+    /**
+     * @return how many times each operation blocked the tick thread
+     */
+    public @NotNull Map<String, Long> getBlockingCalls() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        blockingCalls.forEach((operation, counter) -> snapshot.put(operation, counter.sum()));
+        return snapshot;
+    }
+
+    private void install() {
+        if (installed) {
+            return;
+        }
+
+        synchronized (this) {
+            if (installed) {
+                return;
+            }
+            // Nothing ticks before Minestom is initialized, e.g. in benchmarks, try again on the next call
+            if (MinecraftServer.process() == null) {
+                return;
+            }
+
+            MinecraftServer.getSchedulerManager().submitTask(() -> {
+                tickThread = Thread.currentThread();
+                drain();
+                return TaskSchedule.nextTick();
+            }, ExecutionType.TICK_START);
+            installed = true;
+        }
+    }
+
+    private void drain() {
+        Runnable completion;
+        while ((completion = completions.poll()) != null) {
+            try {
+                completion.run();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Async completion failed", e);
+            }
+        }
+    }
+}
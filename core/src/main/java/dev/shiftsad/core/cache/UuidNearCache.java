@@ -0,0 +1,189 @@
+package dev.shiftsad.core.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Bounded in-process cache keyed by UUID, stored as two primitive longs so lookups
+ * neither box nor hash a {@link UUID} object.
+ * <p>
+ * Entries expire a fixed time after being written. When the cache is full, an entry
+ * is evicted using the CLOCK algorithm, an approximation of least-recently-used that
+ * only needs one flag per entry. The table uses open addressing with linear probing
+ * and is kept at most half full. All operations are guarded by the instance lock.
+ *
+ * @param <V> the cached value type
+ */
+public final class UuidNearCache<V> {
+
+    private final int maxSize;
+    private final long expireAfterWriteNanos;
+    private final int mask;
+
+    private final long[] mostBits;
+    private final long[] leastBits;
+    private final Object[] values;
+    private final long[] expiresAt;
+    private final boolean[] referenced;
+
+    private int size;
+    private int clockHand;
+    private long evictions;
+
+    /**
+     * @param maxSize               maximum number of entries kept
+     * @param expireAfterWriteNanos how long an entry stays valid after being written
+     */
+    public UuidNearCache(int maxSize, long expireAfterWriteNanos) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize * 2 - 1)) << 1;
+        this.maxSize = maxSize;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.mask = capacity - 1;
+        this.mostBits = new long[capacity];
+        this.leastBits = new long[capacity];
+        this.values = new Object[capacity];
+        this.expiresAt = new long[capacity];
+        this.referenced = new boolean[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized @Nullable V get(@NotNull UUID key) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (slot < 0) {
+            return null;
+        }
+
+        if (expiresAt[slot] - System.nanoTime() <= 0) {
+            removeSlot(slot);
+            return null;
+        }
+
+        referenced[slot] = true;
+        return (V) values[slot];
+    }
+
+    public synchronized void put(@NotNull UUID key, @NotNull V value) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+
+        int slot = find(most, least);
+        if (slot < 0) {
+            if (size >= maxSize) {
+                evictOne();
+            }
+
+            slot = indexFor(most, least);
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            mostBits[slot] = most;
+            leastBits[slot] = least;
+            size++;
+        }
+
+        values[slot] = value;
+        expiresAt[slot] = System.nanoTime() + expireAfterWriteNanos;
+        referenced[slot] = true;
+    }
+
+    public synchronized boolean remove(@NotNull UUID key) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (slot < 0) {
+            return false;
+        }
+
+        removeSlot(slot);
+        return true;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return how many entries were dropped to make room for new ones
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    private int find(long most, long least) {
+        int slot = indexFor(most, least);
+        while (values[slot] != null) {
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void evictOne() {
+        long now = System.nanoTime();
+        while (true) {
+            int slot = clockHand;
+            clockHand = (clockHand + 1) & mask;
+
+            if (values[slot] == null) {
+                continue;
+            }
+            if (referenced[slot] && expiresAt[slot] - now > 0) {
+                referenced[slot] = false;
+                continue;
+            }
+
+            removeSlot(slot);
+            evictions++;
+            return;
+        }
+    }
+
+    /**
+     * Empties {@code slot} and shifts back the entries of the probe run after it,
+     * so lookups never stop early on the hole.
+     */
+    private void removeSlot(int slot) {
+        values[slot] = null;
+        size--;
+
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int home = indexFor(mostBits[next], leastBits[next]);
+            // Move the entry if its home isn't cyclically within (hole, next]
+            boolean movable = hole <= next
+                    ? home <= hole || home > next
+                    : home <= hole && home > next;
+            if (movable) {
+                mostBits[hole] = mostBits[next];
+                leastBits[hole] = leastBits[next];
+                values[hole] = values[next];
+                expiresAt[hole] = expiresAt[next];
+                referenced[hole] = referenced[next];
+                values[next] = null;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private int indexFor(long most, long least) {
+        long hash = most ^ least;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,85 @@
+package dev.shiftsad.core.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A group of KV writes sent to Consul's transaction endpoint in as few requests as possible.
+ * <p>
+ * Consul caps how many operations a single transaction may hold, so batches larger than
+ * {@link #MAX_OPERATIONS} are split. Each chunk is applied atomically on its own; a failed
+ * chunk does not roll back the chunks before it.
+ */
+public final class ConfigBatch {
+
+    /* Operation limit of a single Consul transaction */
+    public static final int MAX_OPERATIONS = 64;
+
+    @Getter
+    @AllArgsConstructor
+    public enum Verb {
+        SET("set"),
+        CAS("cas"),
+        DELETE("delete"),
+        DELETE_CAS("delete-cas"),
+        DELETE_TREE("delete-tree");
+
+        private final String consulName;
+    }
+
+    /**
+     * @param value the value to write, {@code null} for deletes
+     * @param index the modify index to check for {@code CAS} verbs, {@code 0} otherwise
+     */
+    public record Operation(@NotNull Verb verb, @NotNull String key, @Nullable String value, long index) {
+    }
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    public ConfigBatch set(@NotNull String key, @NotNull String value) {
+        operations.add(new Operation(Verb.SET, key, value, 0));
+        return this;
+    }
+
+    /**
+     * Sets {@code key} only if its modify index is still {@code index}. An index of
+     * {@code 0} only succeeds if the key doesn't exist yet.
+     */
+    public ConfigBatch cas(@NotNull String key, @NotNull String value, long index) {
+        operations.add(new Operation(Verb.CAS, key, value, index));
+        return this;
+    }
+
+    public ConfigBatch delete(@NotNull String key) {
+        operations.add(new Operation(Verb.DELETE, key, null, 0));
+        return this;
+    }
+
+    public ConfigBatch deleteCas(@NotNull String key, long index) {
+        operations.add(new Operation(Verb.DELETE_CAS, key, null, index));
+        return this;
+    }
+
+    public ConfigBatch deleteTree(@NotNull String prefix) {
+        operations.add(new Operation(Verb.DELETE_TREE, prefix, null, 0));
+        return this;
+    }
+
+    public @NotNull List<Operation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+}
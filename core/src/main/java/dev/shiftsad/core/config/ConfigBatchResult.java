@@ -0,0 +1,33 @@
+package dev.shiftsad.core.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Outcome of a {@link ConfigBatch}, one result per operation in submission order.
+ */
+public record ConfigBatchResult(@NotNull List<OperationResult> results) {
+
+    /**
+     * @param error why the operation wasn't applied, {@code null} on success
+     */
+    public record OperationResult(@NotNull ConfigBatch.Operation operation, boolean success, @Nullable String error) {
+    }
+
+    public boolean isSuccess() {
+        for (OperationResult result : results) {
+            if (!result.success()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public @NotNull List<OperationResult> failures() {
+        return results.stream()
+                .filter(result -> !result.success())
+                .toList();
+    }
+}
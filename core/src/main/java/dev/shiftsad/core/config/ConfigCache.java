@@ -0,0 +1,111 @@
+package dev.shiftsad.core.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process copy of the config prefixes being watched.
+ * <p>
+ * Reads are plain map lookups and safe from any thread. Each prefix is replaced
+ * as a whole by its watcher, and listeners are told about every key that changed.
+ */
+public final class ConfigCache {
+
+    private static final Logger logger = Logger.getLogger(ConfigCache.class.getName());
+
+    private final Map<String, ConfigEntry> entries = new ConcurrentHashMap<>();
+    private final Set<String> prefixes = ConcurrentHashMap.newKeySet();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * @return whether {@code key} falls under a prefix held by this cache
+     */
+    public boolean covers(@NotNull String key) {
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public @Nullable ConfigEntry get(@NotNull String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * @return every cached key under {@code prefix}, keyed by the full key
+     */
+    public @NotNull Map<String, ConfigEntry> getByPrefix(@NotNull String prefix) {
+        Map<String, ConfigEntry> result = new HashMap<>();
+        for (Map.Entry<String, ConfigEntry> entry : entries.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    public void subscribe(@NotNull String prefix, @NotNull ConfigListener listener) {
+        subscriptions.add(new Subscription(prefix, listener));
+    }
+
+    public void unsubscribe(@NotNull ConfigListener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener() == listener);
+    }
+
+    /**
+     * Replaces everything under {@code prefix} with {@code fresh} and notifies
+     * listeners of each key that was created, changed or deleted.
+     *
+     * @param fresh the current values under the prefix, keyed by the full key
+     */
+    public void replace(@NotNull String prefix, @NotNull Map<String, ConfigEntry> fresh) {
+        prefixes.add(prefix);
+
+        for (Map.Entry<String, ConfigEntry> entry : fresh.entrySet()) {
+            ConfigEntry previous = entries.put(entry.getKey(), entry.getValue());
+            String oldValue = previous == null ? null : previous.value();
+            if (!entry.getValue().value().equals(oldValue)) {
+                notify(entry.getKey(), oldValue, entry.getValue().value());
+            }
+        }
+
+        Iterator<Map.Entry<String, ConfigEntry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ConfigEntry> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix) && !fresh.containsKey(entry.getKey())) {
+                iterator.remove();
+                notify(entry.getKey(), entry.getValue().value(), null);
+            }
+        }
+    }
+
+    /**
+     * Drops {@code prefix} from the cache without notifying listeners.
+     */
+    public void evict(@NotNull String prefix) {
+        prefixes.remove(prefix);
+        entries.keySet().removeIf(key -> key.startsWith(prefix) && !covers(key));
+    }
+
+    private void notify(String key, @Nullable String oldValue, @Nullable String newValue) {
+        for (Subscription subscription : subscriptions) {
+            if (!key.startsWith(subscription.prefix())) continue;
+            try {
+                subscription.listener().onChange(key, oldValue, newValue);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Config listener failed for key " + key, e);
+            }
+        }
+    }
+
+    private record Subscription(String prefix, ConfigListener listener) {
+    }
+}
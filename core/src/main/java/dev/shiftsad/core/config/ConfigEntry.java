@@ -0,0 +1,81 @@
+package dev.shiftsad.core.config;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A cached config value with its typed forms parsed once, when the value
+ * arrives, so typed reads never parse or box.
+ */
+public final class ConfigEntry {
+
+    private final @NotNull String value;
+    private final long modifyIndex;
+
+    private final boolean isLong;
+    private final long longValue;
+    private final boolean isDouble;
+    private final double doubleValue;
+    private final boolean isBoolean;
+    private final boolean booleanValue;
+
+    public ConfigEntry(@NotNull String value, long modifyIndex) {
+        this.value = value;
+        this.modifyIndex = modifyIndex;
+
+        String trimmed = value.trim();
+
+        long parsedLong = 0;
+        boolean longOk;
+        try {
+            parsedLong = Long.parseLong(trimmed);
+            longOk = true;
+        } catch (NumberFormatException e) {
+            longOk = false;
+        }
+        this.isLong = longOk;
+        this.longValue = parsedLong;
+
+        double parsedDouble = 0;
+        boolean doubleOk;
+        try {
+            parsedDouble = Double.parseDouble(trimmed);
+            doubleOk = true;
+        } catch (NumberFormatException e) {
+            doubleOk = false;
+        }
+        this.isDouble = doubleOk;
+        this.doubleValue = parsedDouble;
+
+        this.isBoolean = trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("false");
+        this.booleanValue = trimmed.equalsIgnoreCase("true");
+    }
+
+    public @NotNull String value() {
+        return value;
+    }
+
+    /**
+     * @return the Consul modify index of this value, {@code 0} when unknown
+     */
+    public long modifyIndex() {
+        return modifyIndex;
+    }
+
+    public long longValue(long fallback) {
+        return isLong ? longValue : fallback;
+    }
+
+    public int intValue(int fallback) {
+        return isLong && longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE
+                ? (int) longValue
+                : fallback;
+    }
+
+    public double doubleValue(double fallback) {
+        return isDouble ? doubleValue : fallback;
+    }
+
+    public boolean booleanValue(boolean fallback) {
+        return isBoolean ? booleanValue : fallback;
+    }
+}
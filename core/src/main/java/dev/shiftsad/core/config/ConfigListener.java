@@ -0,0 +1,16 @@
+package dev.shiftsad.core.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+@FunctionalInterface
+public interface ConfigListener {
+    /**
+     * Called from the watcher thread after the cache has been updated.
+     *
+     * @param key      the full key that changed
+     * @param oldValue the previous value, {@code null} if the key was created
+     * @param newValue the new value, {@code null} if the key was deleted
+     */
+    void onChange(@NotNull String key, @Nullable String oldValue, @Nullable String newValue);
+}
@@ -0,0 +1,143 @@
+package dev.shiftsad.core.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact on-disk copy of watched config prefixes, used to boot without waiting on Consul.
+ * <p>
+ * Layout, big-endian: magic, format version, prefix count, then for each prefix its
+ * name, the Consul index it was read at and its entries (key, modify index, value).
+ * Strings are UTF-8 prefixed by their length. Files are replaced atomically, so a
+ * reader never sees a partial write.
+ */
+public final class ConfigSnapshot {
+
+    private static final int MAGIC = 0x47534346; // GSCF
+    private static final short FORMAT_VERSION = 1;
+
+    private ConfigSnapshot() {
+        throw new UnsupportedOperationException(
+                "ConfigSnapshot is a utility class and should not be instantiated"
+        );
+    }
+
+    /**
+     * @param index   the Consul index the entries were read at
+     * @param entries the entries under the prefix, keyed by the full key
+     */
+    public record Prefix(long index, @NotNull Map<String, ConfigEntry> entries) {
+    }
+
+    /**
+     * Memory-maps and reads a snapshot.
+     *
+     * @return the prefixes in the snapshot, or {@code null} if there is no readable
+     * snapshot of the current format at {@code path}
+     */
+    public static @Nullable Map<String, Prefix> read(@NotNull Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 6 || buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) {
+                return null;
+            }
+
+            int prefixCount = buffer.getInt();
+            Map<String, Prefix> prefixes = new HashMap<>(prefixCount * 2);
+            for (int i = 0; i < prefixCount; i++) {
+                String prefix = readString(buffer);
+                long index = buffer.getLong();
+                int entryCount = buffer.getInt();
+
+                Map<String, ConfigEntry> entries = new HashMap<>(entryCount * 2);
+                for (int j = 0; j < entryCount; j++) {
+                    String key = readString(buffer);
+                    long modifyIndex = buffer.getLong();
+                    entries.put(key, new ConfigEntry(readString(buffer), modifyIndex));
+                }
+                prefixes.put(prefix, new Prefix(index, entries));
+            }
+            return prefixes;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null; // Truncated or corrupt, Consul will be asked instead
+        }
+    }
+
+    /**
+     * Writes a snapshot next to {@code path} and atomically moves it in place.
+     */
+    public static void write(@NotNull Path path, @NotNull Map<String, Prefix> prefixes) throws IOException {
+        int size = 4 + 2 + 4;
+        for (Map.Entry<String, Prefix> prefix : prefixes.entrySet()) {
+            size += 4 + utf8Length(prefix.getKey()) + 8 + 4;
+            for (Map.Entry<String, ConfigEntry> entry : prefix.getValue().entries().entrySet()) {
+                size += 4 + utf8Length(entry.getKey()) + 8 + 4 + utf8Length(entry.getValue().value());
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(FORMAT_VERSION);
+        buffer.putInt(prefixes.size());
+        for (Map.Entry<String, Prefix> prefix : prefixes.entrySet()) {
+            writeString(buffer, prefix.getKey());
+            buffer.putLong(prefix.getValue().index());
+            buffer.putInt(prefix.getValue().entries().size());
+            for (Map.Entry<String, ConfigEntry> entry : prefix.getValue().entries().entrySet()) {
+                writeString(buffer, entry.getKey());
+                buffer.putLong(entry.getValue().modifyIndex());
+                writeString(buffer, entry.getValue().value());
+            }
+        }
+        buffer.flip();
+
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,99 @@
+package dev.shiftsad.core.discovery;
+
+import com.ecwid.consul.v1.health.model.HealthService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A game server as registered in the Consul service catalog.
+ * <p>
+ * Every server is registered under {@link #SERVICE_NAME}, with its game, port and
+ * capacity encoded as {@code key:value} tags so they can be filtered on by Consul.
+ * Its player count changes too often for a tag and is kept in the service metadata.
+ *
+ * @param address the address to connect to, empty when the server uses its agent's address
+ * @param players players online when the server last reported
+ */
+public record ServerInfo(
+        @NotNull String id,
+        @NotNull String game,
+        @NotNull String address,
+        int port,
+        int capacity,
+        int players
+) {
+
+    public static final String SERVICE_NAME = "game-server";
+
+    private static final String GAME_TAG = "game:";
+    private static final String PORT_TAG = "port:";
+    private static final String CAPACITY_TAG = "capacity:";
+    private static final String PLAYERS_META = "players";
+
+    public static @NotNull String gameTag(@NotNull String game) {
+        return GAME_TAG + game;
+    }
+
+    public @NotNull List<String> toTags() {
+        return List.of(gameTag(game), PORT_TAG + port, CAPACITY_TAG + capacity);
+    }
+
+    public @NotNull Map<String, String> toMeta() {
+        return Map.of(PLAYERS_META, String.valueOf(players));
+    }
+
+    /**
+     * @return places left before the server is full, never negative
+     */
+    public int freeSlots() {
+        return Math.max(0, capacity - players);
+    }
+
+    /**
+     * @return the server described by {@code entry}, or {@code null} if it isn't tagged with a game
+     */
+    public static @Nullable ServerInfo fromHealthService(@NotNull HealthService entry) {
+        HealthService.Service service = entry.getService();
+        String game = null;
+        int port = service.getPort() == null ? 0 : service.getPort();
+        int capacity = 0;
+
+        if (service.getTags() != null) {
+            for (String tag : service.getTags()) {
+                if (tag.startsWith(GAME_TAG)) {
+                    game = tag.substring(GAME_TAG.length());
+                } else if (tag.startsWith(PORT_TAG)) {
+                    port = parseInt(tag.substring(PORT_TAG.length()), port);
+                } else if (tag.startsWith(CAPACITY_TAG)) {
+                    capacity = parseInt(tag.substring(CAPACITY_TAG.length()), capacity);
+                }
+            }
+        }
+
+        if (game == null) {
+            return null;
+        }
+
+        int players = 0;
+        if (service.getMeta() != null && service.getMeta().containsKey(PLAYERS_META)) {
+            players = parseInt(service.getMeta().get(PLAYERS_META), players);
+        }
+
+        String address = service.getAddress();
+        if ((address == null || address.isEmpty()) && entry.getNode() != null) {
+            address = entry.getNode().getAddress();
+        }
+        return new ServerInfo(service.getId(), game, address == null ? "" : address, port, capacity, players);
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
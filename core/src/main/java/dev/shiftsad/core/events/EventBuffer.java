@@ -0,0 +1,207 @@
+package dev.shiftsad.core.events;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Growable big-endian byte buffer used by {@link EventCodec}s to write and read events.
+ * <p>
+ * Writes append at the end, reads consume from the read position. Instances are reused
+ * across events and ticks, so encoding an event doesn't allocate once the buffer has grown
+ * to fit. Not thread-safe.
+ */
+public final class EventBuffer {
+
+    private byte[] bytes;
+    private int writeIndex;
+    private int readIndex;
+
+    public EventBuffer() {
+        this(256);
+    }
+
+    public EventBuffer(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    /**
+     * Points this buffer at {@code data} for reading, without copying it.
+     */
+    public void wrap(byte @NotNull [] data) {
+        this.bytes = data;
+        this.readIndex = 0;
+        this.writeIndex = data.length;
+    }
+
+    public void clear() {
+        writeIndex = 0;
+        readIndex = 0;
+    }
+
+    public int size() {
+        return writeIndex;
+    }
+
+    /**
+     * Drops everything written after the first {@code size} bytes.
+     */
+    public void truncate(int size) {
+        if (size < 0 || size > writeIndex) {
+            throw new IllegalArgumentException("Can't truncate " + writeIndex + " bytes to " + size);
+        }
+        writeIndex = size;
+        readIndex = Math.min(readIndex, size);
+    }
+
+    public byte @NotNull [] toByteArray() {
+        return Arrays.copyOf(bytes, writeIndex);
+    }
+
+    public int readableBytes() {
+        return writeIndex - readIndex;
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        bytes[writeIndex++] = (byte) value;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(4);
+        bytes[writeIndex++] = (byte) (value >>> 24);
+        bytes[writeIndex++] = (byte) (value >>> 16);
+        bytes[writeIndex++] = (byte) (value >>> 8);
+        bytes[writeIndex++] = (byte) value;
+    }
+
+    public void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    public void writeDouble(double value) {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            bytes[writeIndex++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[writeIndex++] = (byte) value;
+    }
+
+    public void writeUuid(@NotNull UUID uuid) {
+        writeLong(uuid.getMostSignificantBits());
+        writeLong(uuid.getLeastSignificantBits());
+    }
+
+    public void writeString(@NotNull String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(encoded.length);
+        writeBytes(encoded, 0, encoded.length);
+    }
+
+    public void writeBytes(byte @NotNull [] source, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(source, offset, bytes, writeIndex, length);
+        writeIndex += length;
+    }
+
+    /**
+     * Overwrites a 4 byte int at {@code index}, used to backfill lengths.
+     */
+    public void setInt(int index, int value) {
+        bytes[index] = (byte) (value >>> 24);
+        bytes[index + 1] = (byte) (value >>> 16);
+        bytes[index + 2] = (byte) (value >>> 8);
+        bytes[index + 3] = (byte) value;
+    }
+
+    public int readByte() {
+        checkReadable(1);
+        return bytes[readIndex++];
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public int readInt() {
+        checkReadable(4);
+        int value = (bytes[readIndex] & 0xFF) << 24
+                | (bytes[readIndex + 1] & 0xFF) << 16
+                | (bytes[readIndex + 2] & 0xFF) << 8
+                | (bytes[readIndex + 3] & 0xFF);
+        readIndex += 4;
+        return value;
+    }
+
+    public long readLong() {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    public double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IllegalStateException("VarInt is too long");
+            }
+            b = readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public @NotNull UUID readUuid() {
+        return new UUID(readLong(), readLong());
+    }
+
+    public @NotNull String readString() {
+        int length = readVarInt();
+        checkReadable(length);
+        String value = new String(bytes, readIndex, length, StandardCharsets.UTF_8);
+        readIndex += length;
+        return value;
+    }
+
+    public void skip(int length) {
+        checkReadable(length);
+        readIndex += length;
+    }
+
+    public int readIndex() {
+        return readIndex;
+    }
+
+    public void readIndex(int readIndex) {
+        this.readIndex = readIndex;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (writeIndex + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, writeIndex + extra));
+        }
+    }
+
+    private void checkReadable(int length) {
+        if (length < 0 || readIndex + length > writeIndex) {
+            throw new IllegalStateException("Not enough bytes to read " + length + " at " + readIndex);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dev.shiftsad.core.events;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Binary encoding of one event type. Implementations must read exactly what they wrote.
+ *
+ * @param <T> the event type
+ */
+public interface EventCodec<T> {
+    void write(@NotNull T event, @NotNull EventBuffer buffer);
+
+    @NotNull T read(@NotNull EventBuffer buffer);
+}
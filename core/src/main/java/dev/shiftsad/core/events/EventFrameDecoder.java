@@ -0,0 +1,56 @@
+package dev.shiftsad.core.events;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Reads frames written by {@link EventFrameEncoder}, without copying them.
+ * <p>
+ * Call {@link #open} with a frame, then {@link #readEvents} unless the origin it returns
+ * says the frame should be ignored. Not thread-safe.
+ */
+public final class EventFrameDecoder {
+
+    private final EventBuffer buffer = new EventBuffer(0);
+
+    /**
+     * Starts reading {@code frame}.
+     *
+     * @return the origin id of the server that sent it
+     */
+    public long open(byte @NotNull [] frame) {
+        buffer.wrap(frame);
+        return buffer.readLong();
+    }
+
+    /**
+     * Decodes every event of the {@linkplain #open opened} frame whose type has a codec,
+     * and hands it to {@code handler} along with its type id. Events of other types are skipped.
+     *
+     * @param codecs the codec of each type id, or {@code null} for unknown ones
+     * @throws IllegalStateException if the frame is malformed
+     */
+    public void readEvents(
+            @NotNull IntFunction<@Nullable EventCodec<?>> codecs,
+            @NotNull ObjIntConsumer<Object> handler
+    ) {
+        int count = buffer.readInt();
+        for (int i = 0; i < count; i++) {
+            int id = buffer.readVarInt();
+            int length = buffer.readInt();
+            EventCodec<?> codec = codecs.apply(id);
+            if (codec == null) {
+                buffer.skip(length);
+                continue;
+            }
+
+            int end = buffer.readIndex() + length;
+            Object event = codec.read(buffer);
+            buffer.readIndex(end);
+            handler.accept(event, id);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package dev.shiftsad.core.events;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Encodes events into one frame, the message the event bus sends once per tick.
+ * <p>
+ * Wire format of a frame: origin id (long), event count (int), then for each event
+ * its type id (varint), payload length (int) and payload. The length lets readers skip
+ * events of types they don't know, so servers running different versions can share a
+ * channel. Read frames with {@link EventFrameDecoder}.
+ * <p>
+ * The buffer is reused from frame to frame. Not thread-safe.
+ */
+public final class EventFrameEncoder {
+
+    private static final int COUNT_INDEX = 8;
+
+    private final long origin;
+    private final EventBuffer buffer;
+    private int count;
+
+    /**
+     * @param origin id of the sending server, written at the start of every frame
+     */
+    public EventFrameEncoder(long origin, int initialCapacity) {
+        this.origin = origin;
+        this.buffer = new EventBuffer(initialCapacity);
+    }
+
+    /**
+     * Appends {@code event} to the current frame, starting one if needed. If
+     * {@code codec} throws, whatever it wrote is dropped and the frame is left as it was.
+     */
+    public <T> void add(int id, @NotNull EventCodec<? super T> codec, @NotNull T event) {
+        if (count == 0) {
+            buffer.clear();
+            buffer.writeLong(origin);
+            buffer.writeInt(0); // Event count, filled in by finish
+        }
+
+        int start = buffer.size();
+        try {
+            buffer.writeVarInt(id);
+            int lengthIndex = buffer.size();
+            buffer.writeInt(0);
+            codec.write(event, buffer);
+            buffer.setInt(lengthIndex, buffer.size() - lengthIndex - 4);
+        } catch (RuntimeException e) {
+            // Drop what the codec wrote, or it'd corrupt the events added before it
+            buffer.truncate(start);
+            throw e;
+        }
+        count++;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Completes the current frame. The next {@link #add} starts a new one.
+     *
+     * @return the encoded frame
+     */
+    public byte @NotNull [] finish() {
+        if (count == 0) {
+            throw new IllegalStateException("The frame has no events");
+        }
+
+        buffer.setInt(COUNT_INDEX, count);
+        count = 0;
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,15 @@
+package dev.shiftsad.core.exceptions;
+
+/**
+ * Thrown when a call to a backing service was refused or abandoned by its circuit
+ * breaker, bulkhead or timeout, and there was no last known good result to use instead.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,23 @@
+package dev.shiftsad.core.handoff;
+
+/**
+ * @param sent              snapshots written for players leaving this server
+ * @param prefetched        arrivals whose snapshot was already fetched when they joined
+ * @param fetched           arrivals whose snapshot had to be fetched while they joined
+ * @param missing           arrivals announced to this server whose snapshot was gone or unreadable
+ * @param p50Millis         median time from the snapshot being taken to the player joining here
+ * @param p99Millis         99th percentile of the same
+ * @param maxMillis         slowest handoff seen
+ * @param meanSnapshotBytes mean encoded size of the snapshots sent
+ */
+public record HandoffStats(
+        long sent,
+        long prefetched,
+        long fetched,
+        long missing,
+        double p50Millis,
+        double p99Millis,
+        double maxMillis,
+        long meanSnapshotBytes
+) {
+}
@@ -0,0 +1,39 @@
+package dev.shiftsad.core.handoff;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Everything a server hands over about a player moving to another server, as typed
+ * sections such as an inventory or party. Sections are encoded with the codecs
+ * registered in a {@link SnapshotCodec}.
+ *
+ * @param source          id of the server the player left
+ * @param createdAtMillis wall clock time the snapshot was taken
+ */
+public record PlayerSnapshot(
+        @NotNull UUID playerId,
+        @NotNull String source,
+        long createdAtMillis,
+        @NotNull List<Object> sections
+) {
+
+    public PlayerSnapshot {
+        sections = List.copyOf(sections);
+    }
+
+    /**
+     * @return the section of type {@code type}, or {@code null} if the snapshot has none
+     */
+    public <T> @Nullable T get(@NotNull Class<T> type) {
+        for (Object section : sections) {
+            if (section.getClass() == type) {
+                return type.cast(section);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package dev.shiftsad.core.handoff;
+
+import dev.shiftsad.core.events.EventBuffer;
+import dev.shiftsad.core.events.EventCodec;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary encoding of {@link PlayerSnapshot}s.
+ * <p>
+ * Format: format version (byte), player id, source (string), creation time (long),
+ * section count (varint), then for each section its type id (varint), payload length
+ * (int) and payload. Unknown section ids are skipped, so servers running different
+ * versions can hand players to each other and keep the sections both understand.
+ */
+public final class SnapshotCodec {
+
+    public static final int FORMAT_VERSION = 1;
+    /* Section type ids must be below this */
+    public static final int MAX_SECTION_TYPES = 256;
+
+    private final EventCodec<?>[] codecs = new EventCodec<?>[MAX_SECTION_TYPES];
+    private final Map<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a section type. Every server handing players to each other must use
+     * the same id for it.
+     *
+     * @param id a stable id below {@link #MAX_SECTION_TYPES}
+     */
+    public <T> void register(int id, @NotNull Class<T> type, @NotNull EventCodec<T> codec) {
+        if (id < 0 || id >= MAX_SECTION_TYPES) {
+            throw new IllegalArgumentException("Section id must be between 0 and " + (MAX_SECTION_TYPES - 1));
+        }
+        if (codecs[id] != null) {
+            throw new IllegalStateException("Section id " + id + " is already registered");
+        }
+
+        codecs[id] = codec;
+        ids.put(type, id);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a section's type isn't registered
+     */
+    @SuppressWarnings("unchecked")
+    public byte @NotNull [] encode(@NotNull PlayerSnapshot snapshot) {
+        EventBuffer buffer = new EventBuffer(256);
+        buffer.writeByte(FORMAT_VERSION);
+        buffer.writeUuid(snapshot.playerId());
+        buffer.writeString(snapshot.source());
+        buffer.writeLong(snapshot.createdAtMillis());
+        buffer.writeVarInt(snapshot.sections().size());
+
+        for (Object section : snapshot.sections()) {
+            Integer id = ids.get(section.getClass());
+            if (id == null) {
+                throw new IllegalArgumentException("Section type " + section.getClass().getName() + " isn't registered");
+            }
+
+            buffer.writeVarInt(id);
+            int lengthIndex = buffer.size();
+            buffer.writeInt(0);
+            ((EventCodec<Object>) codecs[id]).write(section, buffer);
+            buffer.setInt(lengthIndex, buffer.size() - lengthIndex - 4);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code data} was written by another format version
+     * @throws IllegalStateException    if {@code data} is truncated or malformed
+     */
+    public @NotNull PlayerSnapshot decode(byte @NotNull [] data) {
+        EventBuffer buffer = new EventBuffer(0);
+        buffer.wrap(data);
+        int version = buffer.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot format version " + version);
+        }
+
+        UUID playerId = buffer.readUuid();
+        String source = buffer.readString();
+        long createdAtMillis = buffer.readLong();
+        int count = buffer.readVarInt();
+
+        List<Object> sections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = buffer.readVarInt();
+            int length = buffer.readInt();
+            if (length < 0 || length > buffer.readableBytes()) {
+                throw new IllegalStateException("Section " + id + " is truncated, expected " + length + " bytes");
+            }
+            EventCodec<?> codec = id < MAX_SECTION_TYPES ? codecs[id] : null;
+            if (codec == null) {
+                buffer.skip(length);
+                continue;
+            }
+
+            int end = buffer.readIndex() + length;
+            sections.add(codec.read(buffer));
+            buffer.readIndex(end);
+        }
+        return new PlayerSnapshot(playerId, source, createdAtMillis, sections);
+    }
+}
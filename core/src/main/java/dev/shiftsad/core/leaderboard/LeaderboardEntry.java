@@ -0,0 +1,11 @@
+package dev.shiftsad.core.leaderboard;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * @param rank  1 for the highest score
+ */
+public record LeaderboardEntry(@NotNull UUID player, long rank, double score) {
+}
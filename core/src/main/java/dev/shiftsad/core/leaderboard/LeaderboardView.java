@@ -0,0 +1,205 @@
+package dev.shiftsad.core.leaderboard;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Local copy of the top of a leaderboard, kept up to date from score changes instead
+ * of re-reading the board.
+ * <p>
+ * Holds twice the number of entries served, and a floor: the highest score any player
+ * outside the view may have. Every entry in the view scores at least the floor, so the
+ * view is always an exact top of the board, and ranks of players in it are exact.
+ * A change to a player outside the view only costs a comparison with the floor. When
+ * players inside it drop below the floor the view shrinks, and once it holds fewer
+ * entries than are served it has to be {@linkplain #load reloaded}.
+ * <p>
+ * Changes carry the board's version, which grows with every change, and loads the
+ * version of the board they read. Changes arriving during a load are held back until
+ * it completes and only those newer than what it read are applied, and changes older
+ * than the view are ignored, so changes and loads can arrive in any order.
+ */
+public final class LeaderboardView {
+
+    private static final Comparator<Ranked> ORDER = Comparator.comparingDouble(Ranked::score).reversed()
+            .thenComparing(Ranked::player);
+
+    private final int size;
+    private final int capacity;
+    private final TreeSet<Ranked> ranked = new TreeSet<>(ORDER);
+    private final Map<UUID, Ranked> byPlayer = new HashMap<>();
+
+    private double floor = Double.NEGATIVE_INFINITY;
+    private boolean loaded;
+    private long version;
+    private boolean loading;
+    private final List<Change> heldBack = new ArrayList<>();
+    private List<LeaderboardEntry> top = List.of();
+    private boolean topChanged;
+
+    /**
+     * @param size number of top entries served
+     */
+    public LeaderboardView(int size) {
+        if (size <= 0) throw new IllegalArgumentException("size must be greater than 0");
+        this.size = size;
+        this.capacity = size * 2;
+    }
+
+    /**
+     * @return how many of the top entries a {@link #load} should read
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Holds back changes until the next {@link #load} or {@link #cancelLoad}. Call before
+     * reading the board.
+     */
+    public synchronized void startLoad() {
+        loading = true;
+    }
+
+    /**
+     * Ends a load that failed, applying the changes held back to the view as it was.
+     */
+    public synchronized void cancelLoad() {
+        loading = false;
+        applyHeldBack();
+    }
+
+    /**
+     * Replaces the view with the top of the board as read from Redis, then applies the
+     * changes held back since {@link #startLoad} that are newer than it.
+     *
+     * @param scores   at most {@link #capacity()} of the highest scores
+     * @param complete whether {@code scores} is the whole board
+     * @param version  the board's version when it was read
+     */
+    public synchronized void load(@NotNull Map<UUID, Double> scores, boolean complete, long version) {
+        ranked.clear();
+        byPlayer.clear();
+        floor = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<UUID, Double> score : scores.entrySet()) {
+            Ranked entry = new Ranked(score.getKey(), score.getValue());
+            ranked.add(entry);
+            byPlayer.put(entry.player(), entry);
+        }
+
+        if (!complete && !ranked.isEmpty()) {
+            floor = ranked.last().score();
+        }
+        this.version = version;
+        loaded = true;
+        loading = false;
+        topChanged = true;
+        applyHeldBack();
+    }
+
+    /**
+     * Applies the new score of {@code player} after the change that brought the board
+     * to {@code version}. Ignored before the view is first loaded.
+     */
+    public synchronized void apply(long version, @NotNull UUID player, double score) {
+        if (loading) {
+            heldBack.add(new Change(version, player, score));
+            return;
+        }
+        // A change with the view's version is already in it, applying it again is harmless
+        if (!loaded || version < this.version) {
+            return;
+        }
+        this.version = version;
+
+        Ranked previous = byPlayer.get(player);
+        if (previous == null && score <= floor) {
+            return; // Still outside the view
+        }
+        if (previous != null) {
+            if (previous.score() == score) {
+                return;
+            }
+            ranked.remove(previous);
+            byPlayer.remove(player);
+        }
+
+        topChanged = true;
+        if (score < floor) {
+            return; // Dropped out, players outside the view may now be ahead of it
+        }
+
+        Ranked entry = new Ranked(player, score);
+        ranked.add(entry);
+        byPlayer.put(player, entry);
+        if (ranked.size() > capacity) {
+            Ranked lowest = ranked.pollLast();
+            byPlayer.remove(lowest.player());
+            floor = Math.max(floor, lowest.score());
+        }
+    }
+
+    /**
+     * @return whether the view lost too many entries to serve a full top and must be loaded again
+     */
+    public synchronized boolean needsReload() {
+        return loaded && ranked.size() < size && floor != Double.NEGATIVE_INFINITY;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the board's version as of the last change applied or load
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * @return the {@code count} highest entries, best first; fewer if the board or the
+     * view is short of them
+     */
+    public synchronized @NotNull List<LeaderboardEntry> top(int count) {
+        int wanted = Math.min(Math.min(count, size), ranked.size());
+        // Only as much of the top as is read is built, most readers want a few lines of it
+        if (topChanged || top.size() < wanted) {
+            List<LeaderboardEntry> entries = new ArrayList<>(wanted);
+            Iterator<Ranked> iterator = ranked.iterator();
+            while (entries.size() < wanted && iterator.hasNext()) {
+                Ranked entry = iterator.next();
+                entries.add(new LeaderboardEntry(entry.player(), entries.size() + 1, entry.score()));
+            }
+            top = List.copyOf(entries);
+            topChanged = false;
+        }
+        return wanted >= top.size() ? top : top.subList(0, wanted);
+    }
+
+    /**
+     * @return the entry of {@code player}, or {@code null} if it's not in the view
+     */
+    public synchronized @Nullable LeaderboardEntry entry(@NotNull UUID player) {
+        Ranked entry = byPlayer.get(player);
+        if (entry == null) {
+            return null;
+        }
+        return new LeaderboardEntry(player, ranked.headSet(entry).size() + 1, entry.score());
+    }
+
+    private void applyHeldBack() {
+        for (Change change : heldBack) {
+            apply(change.version(), change.player(), change.score());
+        }
+        heldBack.clear();
+    }
+
+    private record Ranked(UUID player, double score) {
+    }
+
+    private record Change(long version, UUID player, double score) {
+    }
+}
@@ -0,0 +1,227 @@
+package dev.shiftsad.core.map;
+
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.ChunkLoader;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.instance.palette.Palette;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A pre-baked world, memory-mapped from a file written by {@link MapTemplateCompiler}.
+ * <p>
+ * Chunks are stamped straight from the mapped file into Minestom's block palettes:
+ * uniform sections become a single fill, others are unpacked from their palette and
+ * packed indices. The file is mapped once and read with absolute reads only, so every
+ * match using the map shares the same page-cache copy and stamps concurrently without
+ * locking, and nothing is generated or decoded onto the heap up front.
+ * <p>
+ * File layout, big-endian:
+ * <pre>
+ * int magic, int version, int minSection, int sectionCount, int chunkCount
+ * chunkCount x (int chunkX, int chunkZ, int offset), sorted by chunk key
+ * per chunk, sectionCount sections from minSection up:
+ *   byte UNIFORM, int stateId
+ *   byte PALETTED, short paletteSize, paletteSize x int stateId, byte bitsPerEntry,
+ *        longs holding 64 / bitsPerEntry indices each, in y, z, x order
+ * </pre>
+ */
+public final class MapTemplate implements Closeable {
+
+    static final int MAGIC = 0x47534D50;
+    static final int VERSION = 1;
+
+    static final byte UNIFORM = 0;
+    static final byte PALETTED = 1;
+
+    static final int SECTION_SIZE = 16;
+    static final int SECTION_BLOCKS = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE;
+
+    private static final int AIR = 0;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer data;
+
+    private final int minSection;
+    private final int sectionCount;
+    private final long[] chunkKeys;
+    private final int[] chunkOffsets;
+
+    private MapTemplate(Path path, FileChannel channel, ByteBuffer data) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.data = data;
+
+        if (data.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a map template");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException(path + " has template version " + data.getInt(4) + ", expected " + VERSION);
+        }
+        this.minSection = data.getInt(8);
+        this.sectionCount = data.getInt(12);
+
+        int chunkCount = data.getInt(16);
+        this.chunkKeys = new long[chunkCount];
+        this.chunkOffsets = new int[chunkCount];
+        for (int i = 0, entry = 20; i < chunkCount; i++, entry += 12) {
+            chunkKeys[i] = chunkKey(data.getInt(entry), data.getInt(entry + 4));
+            chunkOffsets[i] = data.getInt(entry + 8);
+        }
+    }
+
+    public static @NotNull MapTemplate open(@NotNull Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MapTemplate(path, channel, data);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public @NotNull Path getPath() {
+        return path;
+    }
+
+    public int getChunkCount() {
+        return chunkKeys.length;
+    }
+
+    public boolean hasChunk(int chunkX, int chunkZ) {
+        return Arrays.binarySearch(chunkKeys, chunkKey(chunkX, chunkZ)) >= 0;
+    }
+
+    /**
+     * A chunk loader that creates chunks with the instance's chunk supplier and stamps
+     * them from this template. Chunks outside the template load empty. Nothing is saved.
+     */
+    public @NotNull ChunkLoader loader() {
+        return new ChunkLoader() {
+            @Override
+            public @Nullable Chunk loadChunk(@NotNull Instance instance, int chunkX, int chunkZ) {
+                Chunk chunk = ((InstanceContainer) instance).getChunkSupplier().createChunk(instance, chunkX, chunkZ);
+                stamp(chunk);
+                return chunk;
+            }
+
+            @Override
+            public void saveChunk(@NotNull Chunk chunk) {
+            }
+
+            @Override
+            public boolean supportsParallelLoading() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Restores every loaded chunk of an instance to the template and resends it to its
+     * viewers, without unloading or regenerating anything.
+     *
+     * @return how many chunks were reset
+     */
+    public int reset(@NotNull Instance instance) {
+        int count = 0;
+        for (Chunk chunk : instance.getChunks()) {
+            stamp(chunk);
+            chunk.sendChunk();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Overwrites a chunk's blocks with the template's. Sections the template doesn't
+     * cover become air.
+     *
+     * @return false if the template doesn't have this chunk, which is then all air
+     */
+    public boolean stamp(@NotNull Chunk chunk) {
+        int chunkMin = chunk.getMinSection();
+        int chunkMax = chunk.getMaxSection();
+        int index = Arrays.binarySearch(chunkKeys, chunkKey(chunk.getChunkX(), chunk.getChunkZ()));
+
+        if (index >= 0) {
+            int offset = chunkOffsets[index];
+            // Sections are variable-length, so the ones outside the chunk's range are still walked over
+            for (int i = 0; i < sectionCount; i++) {
+                int sectionY = minSection + i;
+                boolean inChunk = sectionY >= chunkMin && sectionY < chunkMax;
+                offset = stampSection(offset, inChunk ? chunk.getSection(sectionY).blockPalette() : null);
+            }
+        }
+
+        for (int sectionY = chunkMin; sectionY < chunkMax; sectionY++) {
+            if (index < 0 || sectionY < minSection || sectionY >= minSection + sectionCount) {
+                chunk.getSection(sectionY).blockPalette().fill(AIR);
+            }
+        }
+
+        chunk.invalidate();
+        return index >= 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released once the buffer is collected
+        channel.close();
+    }
+
+    /**
+     * Writes the section at {@code offset} into {@code palette}, or only skips it when
+     * {@code palette} is null.
+     *
+     * @return the offset of the next section
+     */
+    private int stampSection(int offset, @Nullable Palette palette) {
+        byte kind = data.get(offset);
+        if (kind == UNIFORM) {
+            if (palette != null) {
+                palette.fill(data.getInt(offset + 1));
+            }
+            return offset + 5;
+        }
+        if (kind != PALETTED) {
+            throw new IllegalStateException("Corrupt section at offset " + offset + " of " + path);
+        }
+
+        int paletteSize = data.getShort(offset + 1) & 0xFFFF;
+        int paletteStart = offset + 3;
+        int bits = data.get(paletteStart + paletteSize * Integer.BYTES);
+        int packedStart = paletteStart + paletteSize * Integer.BYTES + 1;
+        int perLong = Long.SIZE / bits;
+
+        if (palette != null) {
+            long mask = (1L << bits) - 1;
+            palette.setAll((x, y, z) -> {
+                int block = (y << 8) | (z << 4) | x;
+                long word = data.getLong(packedStart + (block / perLong) * Long.BYTES);
+                int paletteIndex = (int) ((word >>> (block % perLong * bits)) & mask);
+                return data.getInt(paletteStart + paletteIndex * Integer.BYTES);
+            });
+        }
+        return packedStart + packedLongs(bits) * Long.BYTES;
+    }
+
+    static int packedLongs(int bits) {
+        int perLong = Long.SIZE / bits;
+        return (SECTION_BLOCKS + perLong - 1) / perLong;
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,131 @@
+package dev.shiftsad.core.map;
+
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bakes a region of an instance into a {@link MapTemplate} file.
+ * <p>
+ * Each section is stored as a single state when it holds one block type, otherwise as
+ * a palette of the states it uses plus indices packed at the fewest bits that fit.
+ * Compiling is a one-off step, so it favours a small file over speed.
+ */
+public final class MapTemplateCompiler {
+
+    private MapTemplateCompiler() {
+        throw new UnsupportedOperationException(
+                "MapTemplateCompiler is a utility class and should not be instantiated"
+        );
+    }
+
+    /**
+     * Loads every chunk from {@code (minChunkX, minChunkZ)} to {@code (maxChunkX, maxChunkZ)}
+     * inclusive and writes them to {@code target}, replacing it atomically.
+     */
+    public static void compile(
+            @NotNull Instance instance,
+            int minChunkX, int minChunkZ,
+            int maxChunkX, int maxChunkZ,
+            @NotNull Path target
+    ) throws IOException {
+        if (maxChunkX < minChunkX || maxChunkZ < minChunkZ) {
+            throw new IllegalArgumentException("Empty chunk range");
+        }
+
+        List<CompletableFuture<Chunk>> loading = new ArrayList<>();
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                loading.add(instance.loadChunk(x, z));
+            }
+        }
+        List<Chunk> chunks = new ArrayList<>(loading.size());
+        for (CompletableFuture<Chunk> future : loading) {
+            chunks.add(future.join());
+        }
+        chunks.sort(Comparator.comparingLong(chunk -> MapTemplate.chunkKey(chunk.getChunkX(), chunk.getChunkZ())));
+
+        int minSection = chunks.getFirst().getMinSection();
+        int sectionCount = chunks.getFirst().getMaxSection() - minSection;
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        int[] offsets = new int[chunks.size()];
+        int headerSize = 5 * Integer.BYTES + chunks.size() * 3 * Integer.BYTES;
+        int[] states = new int[MapTemplate.SECTION_BLOCKS];
+
+        for (int i = 0; i < chunks.size(); i++) {
+            offsets[i] = headerSize + body.size();
+            Chunk chunk = chunks.get(i);
+            for (int sectionY = minSection; sectionY < minSection + sectionCount; sectionY++) {
+                chunk.getSection(sectionY).blockPalette()
+                        .getAll((x, y, z, value) -> states[(y << 8) | (z << 4) | x] = value);
+                writeSection(bodyOut, states);
+            }
+        }
+
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MapTemplate.MAGIC);
+            out.writeInt(MapTemplate.VERSION);
+            out.writeInt(minSection);
+            out.writeInt(sectionCount);
+            out.writeInt(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                out.writeInt(chunks.get(i).getChunkX());
+                out.writeInt(chunks.get(i).getChunkZ());
+                out.writeInt(offsets[i]);
+            }
+            body.writeTo(out);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void writeSection(DataOutputStream out, int[] states) throws IOException {
+        Map<Integer, Integer> indices = new HashMap<>();
+        List<Integer> palette = new ArrayList<>();
+        for (int state : states) {
+            if (indices.putIfAbsent(state, palette.size()) == null) {
+                palette.add(state);
+            }
+        }
+
+        if (palette.size() == 1) {
+            out.writeByte(MapTemplate.UNIFORM);
+            out.writeInt(palette.getFirst());
+            return;
+        }
+
+        int bits = 32 - Integer.numberOfLeadingZeros(palette.size() - 1);
+        int perLong = Long.SIZE / bits;
+        out.writeByte(MapTemplate.PALETTED);
+        out.writeShort(palette.size());
+        for (int state : palette) {
+            out.writeInt(state);
+        }
+        out.writeByte(bits);
+
+        long[] packed = new long[MapTemplate.packedLongs(bits)];
+        for (int block = 0; block < states.length; block++) {
+            long index = indices.get(states[block]);
+            packed[block / perLong] |= index << (block % perLong * bits);
+        }
+        for (long word : packed) {
+            out.writeLong(word);
+        }
+    }
+}
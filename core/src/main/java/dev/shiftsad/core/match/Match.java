@@ -0,0 +1,30 @@
+package dev.shiftsad.core.match;
+
+import net.minestom.server.coordinate.Pos;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * One isolated game running in its own instance, hosted by the {@code MatchModule}.
+ * <p>
+ * Listeners should be registered on the instance's event node, so they only see the
+ * match's own players. Minestom ticks the chunks and entities of different instances on
+ * different dispatcher threads, and may split one instance's chunks across threads too,
+ * so a match must guard state its listeners share.
+ */
+public interface Match {
+
+    /**
+     * Called once after the match's instance is registered, before anyone joins.
+     */
+    void start();
+
+    /**
+     * Called once when the match is disposed, while its players are still inside.
+     */
+    void stop();
+
+    /**
+     * Where players assigned to the match spawn.
+     */
+    @NotNull Pos spawn();
+}
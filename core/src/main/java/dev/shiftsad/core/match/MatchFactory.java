@@ -0,0 +1,15 @@
+package dev.shiftsad.core.match;
+
+import net.minestom.server.instance.InstanceContainer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Creates a match in a freshly registered, empty instance. The factory sets up the
+ * instance's world, generator and chunk supplier.
+ */
+@FunctionalInterface
+public interface MatchFactory {
+    @NotNull Match create(@NotNull UUID id, @NotNull InstanceContainer instance);
+}
@@ -0,0 +1,54 @@
+package dev.shiftsad.core.matchmaking;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A full match formed from the queue and the server its players should join.
+ *
+ * @param serverId the {@link dev.shiftsad.core.discovery.ServerInfo#id() id} of the server picked
+ */
+public record MatchAssignment(
+        @NotNull UUID matchId,
+        @NotNull String game,
+        @NotNull String serverId,
+        @NotNull List<UUID> players
+) {
+
+    private static final char SEPARATOR = ' ';
+    private static final char PLAYER_SEPARATOR = ',';
+
+    /**
+     * @return this assignment as {@code matchId game serverId player,player,...}
+     */
+    public @NotNull String encode() {
+        StringBuilder out = new StringBuilder(64 + players.size() * 37)
+                .append(matchId).append(SEPARATOR)
+                .append(game).append(SEPARATOR)
+                .append(serverId).append(SEPARATOR);
+        for (int i = 0; i < players.size(); i++) {
+            if (i > 0) out.append(PLAYER_SEPARATOR);
+            out.append(players.get(i));
+        }
+        return out.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code message} wasn't made by {@link #encode()}
+     */
+    public static @NotNull MatchAssignment decode(@NotNull String message) {
+        String[] parts = message.split(String.valueOf(SEPARATOR), 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed match assignment: " + message);
+        }
+
+        List<UUID> players = new ArrayList<>();
+        for (String player : parts[3].split(String.valueOf(PLAYER_SEPARATOR))) {
+            players.add(UUID.fromString(player));
+        }
+        return new MatchAssignment(UUID.fromString(parts[0]), parts[1], parts[2], List.copyOf(players));
+    }
+}
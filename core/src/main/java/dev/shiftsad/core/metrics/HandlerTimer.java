@@ -0,0 +1,79 @@
+package dev.shiftsad.core.metrics;
+
+import dev.shiftsad.core.modules.Module;
+import net.minestom.server.event.Event;
+import net.minestom.server.event.EventListener;
+import net.minestom.server.timer.TaskSchedule;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Times event listeners and scheduler tasks under the name of the module they belong
+ * to, to find which module's handlers make ticks overrun. Modules create their
+ * Minestom listeners and tick tasks through here, and the timings are recorded into
+ * the shared {@link MetricsRegistry} whether {@code MetricsModule} is loaded or not.
+ */
+public final class HandlerTimer {
+
+    private HandlerTimer() {
+    }
+
+    /**
+     * Like {@link EventListener#of(Class, Consumer)}, with the handler timed under {@code owner}.
+     */
+    public static <E extends Event> @NotNull EventListener<E> listener(
+            @NotNull Module owner,
+            @NotNull Class<E> type,
+            @NotNull Consumer<E> handler
+    ) {
+        return EventListener.of(type, timed(owner.getName(), handler));
+    }
+
+    /**
+     * Wraps a scheduler task so each run is timed under {@code owner}.
+     */
+    public static @NotNull Supplier<TaskSchedule> task(@NotNull Module owner, @NotNull Supplier<TaskSchedule> task) {
+        Histogram histogram = histogram(owner.getName());
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return task.get();
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    public static <E> @NotNull Consumer<E> timed(@NotNull String module, @NotNull Consumer<E> handler) {
+        Histogram histogram = histogram(module);
+        return event -> {
+            long start = System.nanoTime();
+            try {
+                handler.accept(event);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    public static @NotNull Runnable timed(@NotNull String module, @NotNull Runnable task) {
+        Histogram histogram = histogram(module);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    private static Histogram histogram(String module) {
+        return MetricsRegistry.shared().histogram(
+                "gameserver_handler_seconds", "Time spent in event handlers and tasks, by module",
+                MetricsRegistry.NANOS_TO_SECONDS, "module", module
+        );
+    }
+}
@@ -0,0 +1,136 @@
+package dev.shiftsad.core.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values with log-linear buckets, in the
+ * style of HdrHistogram.
+ * <p>
+ * Values below 128 get a bucket each. Above that, every power of two is split into 64
+ * buckets, so a recorded value is off by less than 1.6%. Values above
+ * {@link #MAX_VALUE} are clamped. Recording is a few atomic adds and never allocates.
+ */
+public final class Histogram {
+
+    /* Around 18 minutes when recording nanoseconds */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Copies the current counts. Values recorded concurrently may or may not be included.
+     */
+    public @NotNull Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> exponent);
+        return SUB_BUCKET_COUNT + (exponent - 1) * HALF_SUB_BUCKET_COUNT + (subBucket - HALF_SUB_BUCKET_COUNT);
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int exponent = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << exponent) - 1;
+    }
+
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sum() {
+            return sum;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return the highest value of the bucket holding {@code quantile}, capped at the max seen
+         */
+        public long valueAt(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueAt(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package dev.shiftsad.core.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics shared by every module, written out in the Prometheus text format.
+ * <p>
+ * Histograms are registered once and recorded into directly, so the hot path never
+ * looks anything up. Counters and gauges are read from a supplier at scrape time.
+ * Registering the same name and labels again returns or replaces the existing series.
+ */
+public final class MetricsRegistry {
+
+    /* Scale for histograms recording nanoseconds, exported in seconds */
+    public static final double NANOS_TO_SECONDS = 1e-9;
+
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String prometheusName;
+
+        Type(String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    private record Family(String name, String help, Type type, double scale, Map<String, Object> series) {
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry shared by every module
+     */
+    public static @NotNull MetricsRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the histogram of {@code name} with {@code labels}, creating it if needed.
+     * It's exported as a summary with quantiles, plus a {@code _max} gauge.
+     *
+     * @param scale  multiplier applied to recorded values on export, e.g. {@link #NANOS_TO_SECONDS}
+     * @param labels alternating label names and values
+     */
+    public @NotNull Histogram histogram(@NotNull String name, @NotNull String help, double scale, @NotNull String... labels) {
+        Family family = family(name, help, Type.SUMMARY, scale);
+        return (Histogram) family.series().computeIfAbsent(renderLabels(labels), ignored -> new Histogram());
+    }
+
+    public void counter(@NotNull String name, @NotNull String help, @NotNull LongSupplier value, @NotNull String... labels) {
+        family(name, help, Type.COUNTER, 1).series().put(renderLabels(labels), value);
+    }
+
+    public void gauge(@NotNull String name, @NotNull String help, @NotNull DoubleSupplier value, @NotNull String... labels) {
+        family(name, help, Type.GAUGE, 1).series().put(renderLabels(labels), value);
+    }
+
+    public void unregister(@NotNull String name, @NotNull String... labels) {
+        Family family = families.get(name);
+        if (family != null) {
+            family.series().remove(renderLabels(labels));
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format, version 0.0.4.
+     */
+    public void write(@NotNull StringBuilder out) {
+        for (Family family : new TreeMap<>(families).values()) {
+            Map<String, Object> series = new TreeMap<>(family.series());
+            if (series.isEmpty()) {
+                continue;
+            }
+
+            header(out, family.name(), family.help(), family.type().prometheusName);
+            switch (family.type()) {
+                case COUNTER -> series.forEach((labels, value) ->
+                        sample(out, family.name(), labels, ((LongSupplier) value).getAsLong()));
+                case GAUGE -> series.forEach((labels, value) ->
+                        sample(out, family.name(), labels, ((DoubleSupplier) value).getAsDouble()));
+                case SUMMARY -> writeSummary(out, family, series);
+            }
+        }
+    }
+
+    private void writeSummary(StringBuilder out, Family family, Map<String, Object> series) {
+        Map<String, Histogram.Snapshot> snapshots = new TreeMap<>();
+        series.forEach((labels, histogram) -> snapshots.put(labels, ((Histogram) histogram).snapshot()));
+
+        double scale = family.scale();
+        snapshots.forEach((labels, snapshot) -> {
+            for (double quantile : QUANTILES) {
+                sample(out, family.name(), withLabel(labels, "quantile", String.valueOf(quantile)),
+                        snapshot.valueAt(quantile) * scale);
+            }
+            sample(out, family.name() + "_sum", labels, snapshot.sum() * scale);
+            sample(out, family.name() + "_count", labels, snapshot.count());
+        });
+
+        header(out, family.name() + "_max", "Largest value of " + family.name(), Type.GAUGE.prometheusName);
+        snapshots.forEach((labels, snapshot) -> sample(out, family.name() + "_max", labels, snapshot.max() * scale));
+    }
+
+    private Family family(String name, String help, Type type, double scale) {
+        Family family = families.computeIfAbsent(name, ignored -> new Family(name, help, type, scale, new ConcurrentHashMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type().prometheusName);
+        }
+        return family;
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+
+        StringBuilder rendered = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            appendLabel(rendered, labels[i], labels[i + 1]);
+        }
+        return rendered.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        StringBuilder rendered = new StringBuilder();
+        if (labels.isEmpty()) {
+            rendered.append('{');
+        } else {
+            rendered.append(labels, 0, labels.length() - 1).append(',');
+        }
+        appendLabel(rendered, name, value);
+        return rendered.append('}').toString();
+    }
+
+    private static void appendLabel(StringBuilder out, String name, String value) {
+        out.append(name).append("=\"")
+                .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                .append('"');
+    }
+}
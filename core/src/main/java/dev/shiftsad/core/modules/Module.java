@@ -2,10 +2,22 @@ package dev.shiftsad.core.modules;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface Module {
     void initialize();
     void stop();
 
+    /**
+     * Called when the server starts shutting down, before any module is stopped. Stop
+     * taking new work here and complete once in-flight work is done. Modules are
+     * stopped anyway once the server's drain deadline passes. Don't block here, the
+     * deadline only bounds the returned future: do slow work asynchronously.
+     */
+    default @NotNull CompletableFuture<Void> drain() {
+        return CompletableFuture.completedFuture(null);
+    }
+
     @NotNull BootPriority getBootPriority();
     @NotNull String getName();
 }
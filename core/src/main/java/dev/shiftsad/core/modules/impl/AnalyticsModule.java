@@ -0,0 +1,269 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.analytics.AnalyticsBatch;
+import dev.shiftsad.core.analytics.AnalyticsBatchEncoder;
+import dev.shiftsad.core.analytics.AnalyticsRing;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
+import dev.shiftsad.core.modules.Module;
+import io.lettuce.core.XAddArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gameplay analytics streamed to Redis, without ever holding up the game loop.
+ * <p>
+ * Events are recorded into an {@link AnalyticsRing}, which costs a CAS and no
+ * allocation, and are dropped when the ring is full. Once the ring is
+ * {@link #SAMPLING_THRESHOLD} full, only one movement sample in {@link #OVERLOAD_SAMPLE_RATE}
+ * is kept, so tags and round outcomes still fit while the pipeline catches up.
+ * <p>
+ * A Reactor pipeline on its own thread drains the ring every {@link #FLUSH_INTERVAL},
+ * deflates the events in batches of up to {@link #BATCH_EVENTS} and adds each batch to
+ * the stream with {@code XADD}, trimmed to about {@link #STREAM_MAX_LENGTH} entries.
+ * At most {@link #MAX_IN_FLIGHT} batches are sent at once. While Redis is slow, no more
+ * batches are drained and events wait in the ring, then get dropped.
+ * <p>
+ * Stream entries have the fields {@code source}, {@code count} and {@code events},
+ * the latter holding the events in the {@link AnalyticsRing} format, deflated.
+ */
+@DependsOn(RedisModule.class)
+public class AnalyticsModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(AnalyticsModule.class.getName());
+
+    public static final String DEFAULT_STREAM = "analytics:gameplay";
+
+    /* Event types, as stored in the first byte of each event */
+    public static final int TAG = 1;
+    public static final int MOVE = 2;
+    public static final int ROUND_END = 3;
+    private static final String[] TYPE_NAMES = {"unknown", "tag", "move", "round_end"};
+
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int SAMPLING_THRESHOLD = RING_CAPACITY / 2;
+    private static final int OVERLOAD_SAMPLE_RATE = 8;
+    private static final int BATCH_EVENTS = 4_096;
+    private static final Duration FLUSH_INTERVAL = Duration.ofMillis(250);
+    private static final int MAX_IN_FLIGHT = 2;
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(5);
+    private static final long STREAM_MAX_LENGTH = 1_000_000;
+
+    private static final RedisCodec<String, byte[]> CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    private final RedisModule redisModule;
+    private final String source;
+    private final String stream;
+
+    private final AnalyticsRing ring = new AnalyticsRing(RING_CAPACITY);
+    private final AnalyticsBatchEncoder encoder = new AnalyticsBatchEncoder(BATCH_EVENTS);
+    private final AtomicLong moveSamples = new AtomicLong();
+
+    private final MetricsRegistry metrics = MetricsRegistry.shared();
+    private final LongAdder[] recorded = adders();
+    private final LongAdder[] dropped = adders();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder batchFailures = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder skippedFlushes = new LongAdder();
+
+    private StatefulRedisConnection<String, byte[]> connection;
+    private Scheduler scheduler;
+    private Disposable pipeline;
+
+    /**
+     * @param source id of this server, stored with every batch
+     */
+    public AnalyticsModule(@NotNull RedisModule redisModule, @NotNull String source) {
+        this(redisModule, source, DEFAULT_STREAM);
+    }
+
+    public AnalyticsModule(@NotNull RedisModule redisModule, @NotNull String source, @NotNull String stream) {
+        this.redisModule = redisModule;
+        this.source = source;
+        this.stream = stream;
+    }
+
+    @Override
+    public void initialize() {
+        connection = redisModule.connect(CODEC);
+        scheduler = Schedulers.newSingle("analytics");
+
+        for (int type = 1; type < TYPE_NAMES.length; type++) {
+            metrics.counter("gameserver_analytics_events_total", "Analytics events recorded, by type",
+                    recorded[type]::sum, "type", TYPE_NAMES[type]);
+            metrics.counter("gameserver_analytics_dropped_total", "Analytics events dropped because the ring was full",
+                    dropped[type]::sum, "type", TYPE_NAMES[type]);
+        }
+        metrics.counter("gameserver_analytics_sampled_out_total", "Movement samples skipped while overloaded",
+                sampledOut::sum);
+        metrics.counter("gameserver_analytics_batches_total", "Batches added to the stream", batchesSent::sum);
+        metrics.counter("gameserver_analytics_batch_failures_total", "Batches lost to a failed XADD",
+                batchFailures::sum);
+        metrics.counter("gameserver_analytics_raw_bytes_total", "Size of the events sent, before compression",
+                rawBytes::sum);
+        metrics.counter("gameserver_analytics_sent_bytes_total", "Size of the events sent, compressed",
+                sentBytes::sum);
+        metrics.counter("gameserver_analytics_skipped_flushes_total",
+                "Flushes skipped because the previous one was still sending", skippedFlushes::sum);
+        metrics.gauge("gameserver_analytics_ring_size", "Events waiting in the ring", ring::size);
+
+        pipeline = Flux.interval(FLUSH_INTERVAL, scheduler)
+                // A flush still sending when the next one is due is enough, skip the new one
+                .onBackpressureDrop(ignored -> skippedFlushes.increment())
+                .concatMap(ignored -> batches().flatMap(this::send, MAX_IN_FLIGHT), 1)
+                .subscribe(null, error -> logger.log(Level.SEVERE, "Analytics pipeline stopped", error));
+    }
+
+    @Override
+    public void stop() {
+        if (pipeline != null) {
+            pipeline.dispose();
+            pipeline = null;
+
+            // Send what's left, from the pipeline's thread since the ring has a single consumer
+            try {
+                batches().concatMap(this::send).then().block(STOP_TIMEOUT);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to send the last analytics events", e);
+            }
+        }
+
+        if (scheduler != null) {
+            scheduler.dispose();
+            scheduler = null;
+        }
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+        encoder.close();
+
+        for (int type = 1; type < TYPE_NAMES.length; type++) {
+            metrics.unregister("gameserver_analytics_events_total", "type", TYPE_NAMES[type]);
+            metrics.unregister("gameserver_analytics_dropped_total", "type", TYPE_NAMES[type]);
+        }
+        metrics.unregister("gameserver_analytics_sampled_out_total");
+        metrics.unregister("gameserver_analytics_batches_total");
+        metrics.unregister("gameserver_analytics_batch_failures_total");
+        metrics.unregister("gameserver_analytics_raw_bytes_total");
+        metrics.unregister("gameserver_analytics_sent_bytes_total");
+        metrics.unregister("gameserver_analytics_skipped_flushes_total");
+        metrics.unregister("gameserver_analytics_ring_size");
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.LOWEST;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "Analytics";
+    }
+
+    /**
+     * Records {@code tagger} tagging {@code tagged} at the given position.
+     */
+    public void tag(@NotNull UUID tagger, @NotNull UUID tagged, double x, double y, double z) {
+        record(TAG, tagger, tagged.getMostSignificantBits(), tagged.getLeastSignificantBits(), x, y, z, 0);
+    }
+
+    /**
+     * Records a sample of where {@code player} is. Sampled down further while the ring is filling up.
+     */
+    public void move(@NotNull UUID player, double x, double y, double z) {
+        if (ring.size() >= SAMPLING_THRESHOLD && moveSamples.getAndIncrement() % OVERLOAD_SAMPLE_RATE != 0) {
+            sampledOut.increment();
+            return;
+        }
+        record(MOVE, player, 0, 0, x, y, z, 0);
+    }
+
+    /**
+     * Records the end of a round of {@code match}.
+     *
+     * @param winner      the round's winner, {@code null} if there was none
+     * @param winnerScore the winner's score, as the game counts it
+     * @param players     players in the match when the round ended
+     */
+    public void roundEnd(@NotNull UUID match, @Nullable UUID winner, long winnerScore, int players) {
+        long winnerMost = winner == null ? 0 : winner.getMostSignificantBits();
+        long winnerLeast = winner == null ? 0 : winner.getLeastSignificantBits();
+        record(ROUND_END, match, winnerMost, winnerLeast, players, 0, 0, winnerScore);
+    }
+
+    private void record(int type, UUID subject, long otherMost, long otherLeast, double x, double y, double z, long value) {
+        boolean stored = ring.offer(type, System.currentTimeMillis(),
+                subject.getMostSignificantBits(), subject.getLeastSignificantBits(),
+                otherMost, otherLeast, x, y, z, value);
+        (stored ? recorded : dropped)[type].increment();
+    }
+
+    /**
+     * Batches of the events in the ring, drained and deflated on the pipeline's thread
+     * only as fast as they're requested.
+     */
+    private Flux<AnalyticsBatch> batches() {
+        return Flux.<AnalyticsBatch>generate(sink -> {
+            AnalyticsBatch batch = encoder.next(ring);
+            if (batch == null) {
+                sink.complete();
+            } else {
+                sink.next(batch);
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    private Mono<String> send(AnalyticsBatch batch) {
+        Map<String, byte[]> body = new LinkedHashMap<>();
+        body.put("source", source.getBytes(StandardCharsets.UTF_8));
+        body.put("count", String.valueOf(batch.count()).getBytes(StandardCharsets.UTF_8));
+        body.put("events", batch.data());
+
+        XAddArgs args = new XAddArgs().maxlen(STREAM_MAX_LENGTH).approximateTrimming();
+        return connection.reactive().xadd(stream, args, body)
+                .timeout(SEND_TIMEOUT)
+                .doOnSuccess(id -> {
+                    batchesSent.increment();
+                    rawBytes.add(batch.rawBytes());
+                    sentBytes.add(batch.data().length);
+                })
+                .onErrorResume(error -> {
+                    batchFailures.increment();
+                    logger.log(Level.FINE, "Failed to add " + batch.count() + " analytics events to " + stream, error);
+                    return Mono.empty();
+                });
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[TYPE_NAMES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -1,22 +1,100 @@
 package dev.shiftsad.core.modules.impl;
 
+import com.ecwid.consul.transport.HttpResponse;
 import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
 import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.agent.model.NewService;
 import com.ecwid.consul.v1.kv.model.GetValue;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.shiftsad.core.async.TickExecutor;
+import dev.shiftsad.core.config.ConfigBatch;
+import dev.shiftsad.core.config.ConfigBatchResult;
+import dev.shiftsad.core.config.ConfigCache;
+import dev.shiftsad.core.config.ConfigEntry;
+import dev.shiftsad.core.config.ConfigListener;
+import dev.shiftsad.core.config.ConfigSnapshot;
+import dev.shiftsad.core.metrics.Histogram;
+import dev.shiftsad.core.metrics.MetricsRegistry;
 import dev.shiftsad.core.modules.BootPriority;
 import dev.shiftsad.core.modules.Module;
+import dev.shiftsad.core.resilience.ResiliencePolicy;
+import dev.shiftsad.core.resilience.ResilientEndpoint;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ConsulConfigModule implements Module {
 
-    private ConsulClient consulClient;
+    private static final Logger logger = Logger.getLogger(ConsulConfigModule.class.getName());
+
+    /* How long a blocking query may wait on Consul for a change, in seconds */
+    private static final long WATCH_WAIT_SECONDS = 30;
+    /* Blocking queries hang for up to their wait, plus up to wait / 16 of jitter added by Consul */
+    private static final Duration WATCH_READ_TIMEOUT = Duration.ofSeconds(WATCH_WAIT_SECONDS + 15);
+    private static final long WATCH_RETRY_MILLIS = 1_000;
+    private static final long WATCH_MAX_RETRY_MILLIS = 30_000;
+    private static final String DEFAULT_SNAPSHOT_PATH = "consul-snapshot.bin";
+    private static final int MAX_CONNECTIONS = 256;
+
+    private static final String LATENCY_METRIC = "gameserver_consul_request_seconds";
+    private static final String LATENCY_HELP = "Consul request latency, by operation";
+
+    /* Reads are hedged and fall back to their last result; writes only fail fast */
+    private static final ResiliencePolicy READ_POLICY = ResiliencePolicy.defaults(Duration.ofSeconds(2))
+            .withHedgeDelay(Duration.ofMillis(150));
+    private static final ResiliencePolicy WRITE_POLICY = ResiliencePolicy.defaults(Duration.ofSeconds(5));
+
+    private final Histogram getLatency = latencyHistogram("get");
+    private final Histogram listLatency = latencyHistogram("list");
+    private final Histogram setLatency = latencyHistogram("set");
+    private final Histogram deleteLatency = latencyHistogram("delete");
+    private final Histogram transactionLatency = latencyHistogram("txn");
+    private final Histogram agentLatency = latencyHistogram("agent");
+
+    private final ResilientEndpoint getEndpoint = new ResilientEndpoint("consul.get", READ_POLICY);
+    private final ResilientEndpoint listEndpoint = new ResilientEndpoint("consul.list", READ_POLICY);
+    private final ResilientEndpoint setEndpoint = new ResilientEndpoint("consul.set", WRITE_POLICY);
+    private final ResilientEndpoint deleteEndpoint = new ResilientEndpoint("consul.delete", WRITE_POLICY);
+    private final ResilientEndpoint transactionEndpoint = new ResilientEndpoint("consul.txn", WRITE_POLICY);
+    private final ResilientEndpoint agentEndpoint = new ResilientEndpoint("consul.agent", WRITE_POLICY);
+
+    private final List<String> watchedPrefixes;
+    private final ConfigCache cache = new ConfigCache();
+    private final Map<String, Thread> watchers = new ConcurrentHashMap<>();
+    private final Map<String, Long> indices = new ConcurrentHashMap<>();
+
+    private final List<CloseableHttpClient> httpClients = new ArrayList<>();
+    private ConsulClient readClient;
+    private ConsulRawClient writeRawClient;
+    private ConsulClient writeClient;
+    private ConsulClient watchClient;
+    private Path snapshotPath;
+
+    /**
+     * @param watchedPrefixes key prefixes to cache and keep fresh from boot,
+     *                        more can be added later with {@link #watchPrefix(String)}
+     */
+    public ConsulConfigModule(@NotNull String... watchedPrefixes) {
+        this.watchedPrefixes = List.of(watchedPrefixes);
+    }
 
     @Override
     public void initialize() {
@@ -27,12 +105,46 @@ public class ConsulConfigModule implements Module {
             throw new RuntimeException("CONSUL_HOST or CONSUL_PORT must be set");
         }
 
-        consulClient = new ConsulClient(consulHost, consulPort);
+        // Connections give up when the calls over them do, or a hung Consul would hold
+        // bulkhead permits until consul-api's default read timeout of 10 minutes
+        readClient = new ConsulClient(rawClient(consulHost, consulPort, READ_POLICY.timeout()));
+        writeRawClient = rawClient(consulHost, consulPort, WRITE_POLICY.timeout());
+        writeClient = new ConsulClient(writeRawClient);
+        watchClient = new ConsulClient(rawClient(consulHost, consulPort, WATCH_READ_TIMEOUT));
+
+        String snapshot = System.getenv("CONSUL_SNAPSHOT");
+        snapshotPath = Path.of(snapshot == null || snapshot.isBlank() ? DEFAULT_SNAPSHOT_PATH : snapshot);
+        Map<String, ConfigSnapshot.Prefix> snapshotPrefixes = readSnapshot();
+
+        for (String prefix : watchedPrefixes) {
+            ConfigSnapshot.Prefix snapshotPrefix = snapshotPrefixes.get(prefix);
+            if (snapshotPrefix == null) {
+                watchPrefix(prefix);
+                continue;
+            }
+
+            // Serve the snapshot right away, the watcher reconciles with Consul in the background
+            cache.replace(prefix, snapshotPrefix.entries());
+            indices.put(prefix, snapshotPrefix.index());
+            startWatcher(prefix, snapshotPrefix.index());
+        }
     }
 
     @Override
     public void stop() {
+        for (Thread watcher : watchers.values()) {
+            watcher.interrupt();
+        }
+        watchers.clear();
 
+        for (CloseableHttpClient httpClient : httpClients) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close Consul HTTP client", e);
+            }
+        }
+        httpClients.clear();
     }
 
     @Override
@@ -45,53 +157,473 @@ public class ConsulConfigModule implements Module {
         return "ConsulConfig";
     }
 
+    /**
+     * Client for Consul blocking queries, with a read timeout that outlasts their wait.
+     * Calls made with it bypass the circuit breakers: a blocking query is meant to hang
+     * until something changes, which a breaker would count as a slow call. Watchers are
+     * expected to back off on failure and keep serving their last result instead.
+     * Anything else should go through this module's methods.
+     */
+    public @NotNull ConsulClient getConsulClient() {
+        return watchClient;
+    }
+
+    /**
+     * Registers {@code service} with the local agent, replacing any registration with the same id.
+     *
+     * @throws dev.shiftsad.core.exceptions.ServiceUnavailableException if Consul is unavailable
+     */
+    public void registerService(@NotNull NewService service) {
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.registerService");
+        callAgent(() -> writeClient.agentServiceRegister(service));
+    }
+
+    public void deregisterService(@NotNull String serviceId) {
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.deregisterService");
+        callAgent(() -> writeClient.agentServiceDeregister(serviceId));
+    }
+
+    /**
+     * Puts a service in or out of maintenance, which fails its health checks while enabled.
+     */
+    public void setServiceMaintenance(@NotNull String serviceId, boolean maintenance, @Nullable String reason) {
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.setServiceMaintenance");
+        callAgent(() -> writeClient.agentServiceSetMaintenance(serviceId, maintenance, reason));
+    }
+
+    /**
+     * Marks the TTL check {@code checkId} as passing.
+     */
+    public void passCheck(@NotNull String checkId) {
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.passCheck");
+        callAgent(() -> writeClient.agentCheckPass(checkId));
+    }
+
+    private void callAgent(Supplier<Response<Void>> call) {
+        agentEndpoint.call(null, false, () -> {
+            long start = System.nanoTime();
+            try {
+                return call.get();
+            } finally {
+                agentLatency.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Loads every key under {@code prefix} into the local cache and keeps it up to
+     * date with Consul blocking queries. Reads under a watched prefix never touch
+     * the network. Blocks until the first load completes.
+     */
+    public void watchPrefix(@NotNull String prefix) {
+        if (watchers.containsKey(prefix)) {
+            return;
+        }
+
+        startWatcher(prefix, refresh(prefix, 0));
+    }
+
+    public void unwatchPrefix(@NotNull String prefix) {
+        Thread watcher = watchers.remove(prefix);
+        if (watcher != null) {
+            watcher.interrupt();
+            cache.evict(prefix);
+            indices.remove(prefix);
+            writeSnapshot();
+        }
+    }
+
+    private void startWatcher(String prefix, long index) {
+        Thread watcher = Thread.ofVirtual()
+                .name("consul-watch-" + prefix)
+                .unstarted(() -> watch(prefix, index));
+        if (watchers.putIfAbsent(prefix, watcher) == null) {
+            watcher.start();
+        }
+    }
+
+    /**
+     * Subscribes to changes of every cached key under {@code prefix}. The prefix
+     * must be covered by a watched prefix for changes to be seen.
+     */
+    public void addListener(@NotNull String prefix, @NotNull ConfigListener listener) {
+        cache.subscribe(prefix, listener);
+    }
+
+    public void removeListener(@NotNull ConfigListener listener) {
+        cache.unsubscribe(listener);
+    }
+
+    /**
+     * Reads {@code key} from the local cache if it's under a watched prefix, or else
+     * from Consul. While Consul is failing or too slow, answers with the last value read
+     * for the key, if there is one.
+     *
+     * @throws dev.shiftsad.core.exceptions.ServiceUnavailableException if Consul is
+     *         unavailable and the key was never read before
+     */
     public @Nullable String getConfigValue(String key) {
-        Response<GetValue> response = consulClient.getKVValue(key);
-        GetValue getValue = response.getValue();
+        if (cache.covers(key)) {
+            ConfigEntry entry = cache.get(key);
+            return entry == null ? null : entry.value();
+        }
 
-        if (getValue != null && getValue.getValue() != null) {
-            byte[] decodedBytes = Base64.getDecoder().decode(getValue.getValue());
-            return new String(decodedBytes, StandardCharsets.UTF_8);
-        } else {
-            return null;
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.getConfigValue");
+        return getEndpoint.call(key, true, () -> {
+            long start = System.nanoTime();
+            Response<GetValue> response;
+            try {
+                response = readClient.getKVValue(key);
+            } finally {
+                getLatency.record(System.nanoTime() - start);
+            }
+            GetValue getValue = response.getValue();
+
+            if (getValue != null && getValue.getValue() != null) {
+                return decode(getValue);
+            } else {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Like {@link #getConfigValue(String)}, but never blocks the caller. Cached keys
+     * complete right away, others are read from Consul and complete on the tick thread.
+     */
+    public @NotNull CompletableFuture<String> getConfigValueAsync(@NotNull String key) {
+        if (cache.covers(key)) {
+            return CompletableFuture.completedFuture(getConfigValue(key));
         }
+        return TickExecutor.shared().supply(() -> getConfigValue(key));
+    }
+
+    /**
+     * Typed read from the local cache. Returns {@code fallback} when the key isn't
+     * cached or isn't a valid integer; never goes to the network.
+     */
+    public int getInt(@NotNull String key, int fallback) {
+        ConfigEntry entry = cache.get(key);
+        return entry == null ? fallback : entry.intValue(fallback);
+    }
+
+    public long getLong(@NotNull String key, long fallback) {
+        ConfigEntry entry = cache.get(key);
+        return entry == null ? fallback : entry.longValue(fallback);
+    }
+
+    public double getDouble(@NotNull String key, double fallback) {
+        ConfigEntry entry = cache.get(key);
+        return entry == null ? fallback : entry.doubleValue(fallback);
+    }
+
+    public boolean getBoolean(@NotNull String key, boolean fallback) {
+        ConfigEntry entry = cache.get(key);
+        return entry == null ? fallback : entry.booleanValue(fallback);
+    }
+
+    public @NotNull String getString(@NotNull String key, @NotNull String fallback) {
+        ConfigEntry entry = cache.get(key);
+        return entry == null ? fallback : entry.value();
     }
 
     public boolean setConfigValue(@NotNull String key, @NotNull String value) {
-        Response<Boolean> response = consulClient.setKVValue(key, value);
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.setConfigValue");
+        Response<Boolean> response = setEndpoint.call(null, false, () -> {
+            long start = System.nanoTime();
+            try {
+                return writeClient.setKVValue(key, value);
+            } finally {
+                setLatency.record(System.nanoTime() - start);
+            }
+        });
         return response.getValue();
     }
 
+    public @NotNull CompletableFuture<Boolean> setConfigValueAsync(@NotNull String key, @NotNull String value) {
+        return TickExecutor.shared().supply(() -> setConfigValue(key, value));
+    }
+
     public boolean deleteConfigValue(@NotNull String key) {
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.deleteConfigValue");
         try {
-            consulClient.deleteKVValue(key);
+            deleteEndpoint.call(null, false, () -> {
+                long start = System.nanoTime();
+                try {
+                    return writeClient.deleteKVValue(key);
+                } finally {
+                    deleteLatency.record(System.nanoTime() - start);
+                }
+            });
         } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to delete config value " + key, e);
             return false;
         }
 
         return true;
     }
 
+    public @NotNull CompletableFuture<Boolean> deleteConfigValueAsync(@NotNull String key) {
+        return TickExecutor.shared().supply(() -> deleteConfigValue(key));
+    }
+
+    /**
+     * Applies {@code batch} through Consul transactions, one request per
+     * {@link ConfigBatch#MAX_OPERATIONS} operations.
+     */
+    public @NotNull ConfigBatchResult execute(@NotNull ConfigBatch batch) {
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.execute");
+        List<ConfigBatch.Operation> operations = batch.getOperations();
+        List<ConfigBatchResult.OperationResult> results = new ArrayList<>(operations.size());
+
+        for (int from = 0; from < operations.size(); from += ConfigBatch.MAX_OPERATIONS) {
+            List<ConfigBatch.Operation> chunk = operations.subList(
+                    from, Math.min(from + ConfigBatch.MAX_OPERATIONS, operations.size())
+            );
+            results.addAll(executeTransaction(chunk));
+        }
+
+        return new ConfigBatchResult(results);
+    }
+
+    /**
+     * Like {@link #execute(ConfigBatch)}, but runs on a virtual thread and completes on the tick thread.
+     */
+    public @NotNull CompletableFuture<ConfigBatchResult> executeAsync(@NotNull ConfigBatch batch) {
+        return TickExecutor.shared().supply(() -> execute(batch));
+    }
+
+    private List<ConfigBatchResult.OperationResult> executeTransaction(List<ConfigBatch.Operation> chunk) {
+        JsonArray body = new JsonArray();
+        for (ConfigBatch.Operation operation : chunk) {
+            JsonObject kv = new JsonObject();
+            kv.addProperty("Verb", operation.verb().getConsulName());
+            kv.addProperty("Key", operation.key());
+            if (operation.value() != null) {
+                kv.addProperty("Value", Base64.getEncoder().encodeToString(
+                        operation.value().getBytes(StandardCharsets.UTF_8)
+                ));
+            }
+            if (operation.verb() == ConfigBatch.Verb.CAS || operation.verb() == ConfigBatch.Verb.DELETE_CAS) {
+                kv.addProperty("Index", operation.index());
+            }
+
+            JsonObject wrapper = new JsonObject();
+            wrapper.add("KV", kv);
+            body.add(wrapper);
+        }
+
+        HttpResponse response;
+        try {
+            response = transactionEndpoint.call(null, false, () -> {
+                long start = System.nanoTime();
+                try {
+                    return writeRawClient.makePutRequest("/v1/txn", body.toString());
+                } finally {
+                    transactionLatency.record(System.nanoTime() - start);
+                }
+            });
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to send config transaction", e);
+            return failAll(chunk, "Transaction request failed: " + e.getMessage());
+        }
+
+        if (response.getStatusCode() == 200) {
+            List<ConfigBatchResult.OperationResult> results = new ArrayList<>(chunk.size());
+            for (ConfigBatch.Operation operation : chunk) {
+                results.add(new ConfigBatchResult.OperationResult(operation, true, null));
+            }
+            return results;
+        }
+
+        if (response.getStatusCode() != 409) {
+            return failAll(chunk, "Consul returned " + response.getStatusCode() + " " + response.getStatusMessage());
+        }
+
+        // The transaction was rolled back; Consul names the operations that caused it
+        String[] errors = new String[chunk.size()];
+        JsonElement errorsElement = JsonParser.parseString(response.getContent()).getAsJsonObject().get("Errors");
+        if (errorsElement != null && errorsElement.isJsonArray()) {
+            for (JsonElement error : errorsElement.getAsJsonArray()) {
+                JsonObject errorObject = error.getAsJsonObject();
+                int opIndex = errorObject.get("OpIndex").getAsInt();
+                if (opIndex >= 0 && opIndex < errors.length) {
+                    errors[opIndex] = errorObject.get("What").getAsString();
+                }
+            }
+        }
+
+        List<ConfigBatchResult.OperationResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String error = errors[i] != null ? errors[i] : "Rolled back with the rest of the transaction";
+            results.add(new ConfigBatchResult.OperationResult(chunk.get(i), false, error));
+        }
+        return results;
+    }
+
+    private static List<ConfigBatchResult.OperationResult> failAll(List<ConfigBatch.Operation> chunk, String error) {
+        List<ConfigBatchResult.OperationResult> results = new ArrayList<>(chunk.size());
+        for (ConfigBatch.Operation operation : chunk) {
+            results.add(new ConfigBatchResult.OperationResult(operation, false, error));
+        }
+        return results;
+    }
+
     public Map<String, String> getConfigValuesByPrefix(String prefix) {
         Map<String, String> configMap = new HashMap<>();
-        Response<List<GetValue>> response = consulClient.getKVValues(prefix);
-        List<GetValue> values = response.getValue();
+
+        if (cache.covers(prefix)) {
+            for (Map.Entry<String, ConfigEntry> entry : cache.getByPrefix(prefix).entrySet()) {
+                configMap.put(stripPrefix(entry.getKey(), prefix), entry.getValue().value());
+            }
+            return configMap;
+        }
+
+        TickExecutor.shared().reportBlocking("ConsulConfigModule.getConfigValuesByPrefix");
+        List<GetValue> values = listEndpoint.call(prefix, true, () -> {
+            long start = System.nanoTime();
+            try {
+                return readClient.getKVValues(prefix).getValue();
+            } finally {
+                listLatency.record(System.nanoTime() - start);
+            }
+        });
 
         if (values != null) {
             for (GetValue value : values) {
                 if (value.getValue() != null) {
-                    byte[] decodedBytes = Base64.getDecoder().decode(value.getValue());
-                    String key = value.getKey();
-                    if (key.startsWith(prefix)) {
-                        key = key.substring(prefix.length());
-                        if (key.startsWith("/")) {
-                            key = key.substring(1);
-                        }
-                    }
-                    configMap.put(key, new String(decodedBytes, StandardCharsets.UTF_8));
+                    configMap.put(stripPrefix(value.getKey(), prefix), decode(value));
                 }
             }
         }
         return configMap;
     }
+
+    public @NotNull CompletableFuture<Map<String, String>> getConfigValuesByPrefixAsync(@NotNull String prefix) {
+        if (cache.covers(prefix)) {
+            return CompletableFuture.completedFuture(getConfigValuesByPrefix(prefix));
+        }
+        return TickExecutor.shared().supply(() -> getConfigValuesByPrefix(prefix));
+    }
+
+    private void watch(String prefix, long index) {
+        long retryMillis = WATCH_RETRY_MILLIS;
+
+        while (!Thread.currentThread().isInterrupted() && watchers.get(prefix) == Thread.currentThread()) {
+            try {
+                index = refresh(prefix, index);
+                retryMillis = WATCH_RETRY_MILLIS;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                logger.log(Level.WARNING, "Failed to watch config prefix " + prefix + ", retrying in " + retryMillis + " ms", e);
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                retryMillis = Math.min(retryMillis * 2, WATCH_MAX_RETRY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Runs a blocking query for {@code prefix} and applies the result to the cache.
+     *
+     * @param index the last Consul index seen, {@code 0} to return immediately
+     * @return the index to block on next
+     */
+    private long refresh(String prefix, long index) {
+        Response<List<GetValue>> response = watchClient.getKVValues(
+                prefix, new QueryParams(WATCH_WAIT_SECONDS, index)
+        );
+
+        Long consulIndex = response.getConsulIndex();
+        long nextIndex = consulIndex == null ? 0 : consulIndex;
+        if (index != 0 && nextIndex == index) {
+            return index; // Wait timed out without changes
+        }
+
+        Map<String, ConfigEntry> fresh = new HashMap<>();
+        List<GetValue> values = response.getValue();
+        if (values != null) {
+            for (GetValue value : values) {
+                if (value.getValue() != null) {
+                    fresh.put(value.getKey(), new ConfigEntry(decode(value), value.getModifyIndex()));
+                }
+            }
+        }
+        cache.replace(prefix, fresh);
+        indices.put(prefix, nextIndex);
+        writeSnapshot();
+
+        // Consul may reset its index, in which case the watch has to start over
+        return nextIndex < index ? 0 : nextIndex;
+    }
+
+    private Map<String, ConfigSnapshot.Prefix> readSnapshot() {
+        try {
+            Map<String, ConfigSnapshot.Prefix> prefixes = ConfigSnapshot.read(snapshotPath);
+            if (prefixes != null) {
+                logger.info("Loaded config snapshot with " + prefixes.size() + " prefixes from " + snapshotPath);
+                return prefixes;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to read config snapshot " + snapshotPath, e);
+        }
+        return Map.of();
+    }
+
+    private synchronized void writeSnapshot() {
+        Map<String, ConfigSnapshot.Prefix> prefixes = new HashMap<>();
+        for (Map.Entry<String, Long> entry : indices.entrySet()) {
+            prefixes.put(entry.getKey(), new ConfigSnapshot.Prefix(entry.getValue(), cache.getByPrefix(entry.getKey())));
+        }
+
+        try {
+            ConfigSnapshot.write(snapshotPath, prefixes);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write config snapshot " + snapshotPath, e);
+        }
+    }
+
+    private ConsulRawClient rawClient(String host, int port, Duration timeout) {
+        int millis = (int) timeout.toMillis();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(millis)
+                .setConnectionRequestTimeout(millis)
+                .setSocketTimeout(millis)
+                .build();
+        CloseableHttpClient httpClient = HttpClientBuilder.create()
+                .setDefaultRequestConfig(requestConfig)
+                .setMaxConnTotal(MAX_CONNECTIONS)
+                .setMaxConnPerRoute(MAX_CONNECTIONS)
+                .useSystemProperties()
+                .build();
+        httpClients.add(httpClient);
+        return new ConsulRawClient(host, port, httpClient);
+    }
+
+    private static String decode(GetValue value) {
+        byte[] decodedBytes = Base64.getDecoder().decode(value.getValue());
+        return new String(decodedBytes, StandardCharsets.UTF_8);
+    }
+
+    private static Histogram latencyHistogram(String operation) {
+        return MetricsRegistry.shared().histogram(
+                LATENCY_METRIC, LATENCY_HELP, MetricsRegistry.NANOS_TO_SECONDS, "operation", operation
+        );
+    }
+
+    private static String stripPrefix(String key, String prefix) {
+        if (key.startsWith(prefix)) {
+            key = key.substring(prefix.length());
+            if (key.startsWith("/")) {
+                key = key.substring(1);
+            }
+        }
+        return key;
+    }
 }
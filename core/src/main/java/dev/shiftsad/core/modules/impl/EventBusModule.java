@@ -0,0 +1,224 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.events.EventCodec;
+import dev.shiftsad.core.events.EventFrameDecoder;
+import dev.shiftsad.core.events.EventFrameEncoder;
+import dev.shiftsad.core.metrics.HandlerTimer;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
+import dev.shiftsad.core.modules.Module;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.timer.ExecutionType;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Typed event bus shared by every server through Redis pub/sub.
+ * <p>
+ * Events published during a tick are encoded into one buffer and sent as a single
+ * message at the end of the tick. Messages from other servers are queued as they
+ * arrive and dispatched to local subscribers on the tick thread at the start of the
+ * next tick. Local subscribers see their own server's events right away, on the
+ * publishing thread.
+ * <p>
+ * Each message is one {@link EventFrameEncoder frame}. Unknown type ids are skipped,
+ * so servers running different versions can share a channel.
+ */
+@DependsOn(RedisModule.class)
+public class EventBusModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(EventBusModule.class.getName());
+
+    public static final String DEFAULT_CHANNEL = "gameserver:events";
+    /* Event type ids must be below this */
+    public static final int MAX_EVENT_TYPES = 256;
+
+    private static final RedisCodec<String, byte[]> CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    private final RedisModule redisModule;
+    private final String channel;
+    private final long origin = ThreadLocalRandom.current().nextLong();
+
+    private final EventCodec<?>[] codecs = new EventCodec<?>[MAX_EVENT_TYPES];
+    @SuppressWarnings("unchecked")
+    private final List<Consumer<Object>>[] subscribers = new List[MAX_EVENT_TYPES];
+    private final Map<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+
+    private final EventFrameEncoder outgoing = new EventFrameEncoder(origin, 4096);
+    private final EventFrameDecoder incoming = new EventFrameDecoder();
+    private final Queue<byte[]> received = new ConcurrentLinkedQueue<>();
+
+    private StatefulRedisConnection<String, byte[]> publishConnection;
+    private StatefulRedisPubSubConnection<String, byte[]> subscribeConnection;
+    private Task flushTask;
+    private Task dispatchTask;
+
+    public EventBusModule(@NotNull RedisModule redisModule) {
+        this(redisModule, DEFAULT_CHANNEL);
+    }
+
+    public EventBusModule(@NotNull RedisModule redisModule, @NotNull String channel) {
+        this.redisModule = redisModule;
+        this.channel = channel;
+        for (int i = 0; i < MAX_EVENT_TYPES; i++) {
+            subscribers[i] = new CopyOnWriteArrayList<>();
+        }
+    }
+
+    @Override
+    public void initialize() {
+        publishConnection = redisModule.connect(CODEC);
+        subscribeConnection = redisModule.connectPubSub(CODEC);
+        subscribeConnection.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, byte[] message) {
+                received.add(message);
+            }
+        });
+        subscribeConnection.sync().subscribe(channel);
+
+        dispatchTask = MinecraftServer.getSchedulerManager().submitTask(HandlerTimer.task(this, () -> {
+            dispatchReceived();
+            return TaskSchedule.nextTick();
+        }), ExecutionType.TICK_START);
+        flushTask = MinecraftServer.getSchedulerManager().submitTask(HandlerTimer.task(this, () -> {
+            flush();
+            return TaskSchedule.nextTick();
+        }), ExecutionType.TICK_END);
+    }
+
+    @Override
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            dispatchTask.cancel();
+            flushTask = null;
+            dispatchTask = null;
+        }
+
+        if (publishConnection != null) {
+            flush();
+            subscribeConnection.close();
+            publishConnection.close();
+            subscribeConnection = null;
+            publishConnection = null;
+        }
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.HIGHEST;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "EventBus";
+    }
+
+    /**
+     * Registers an event type. Every server sharing the channel must use the same id for it.
+     *
+     * @param id a stable id below {@link #MAX_EVENT_TYPES}
+     */
+    public <T> void register(int id, @NotNull Class<T> type, @NotNull EventCodec<T> codec) {
+        if (id < 0 || id >= MAX_EVENT_TYPES) {
+            throw new IllegalArgumentException("Event id must be between 0 and " + (MAX_EVENT_TYPES - 1));
+        }
+        if (codecs[id] != null) {
+            throw new IllegalStateException("Event id " + id + " is already registered");
+        }
+
+        codecs[id] = codec;
+        ids.put(type, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> void subscribe(@NotNull Class<T> type, @NotNull Consumer<? super T> subscriber) {
+        subscribers[idOf(type)].add((Consumer<Object>) subscriber);
+    }
+
+    public <T> void unsubscribe(@NotNull Class<T> type, @NotNull Consumer<? super T> subscriber) {
+        subscribers[idOf(type)].remove(subscriber);
+    }
+
+    /**
+     * Delivers {@code event} to local subscribers now and queues it for every other
+     * server, to be sent at the end of the current tick. Safe to call from any thread.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void publish(@NotNull T event) {
+        int id = idOf(event.getClass());
+        EventCodec<T> codec = (EventCodec<T>) codecs[id];
+
+        synchronized (outgoing) {
+            outgoing.add(id, codec, event);
+        }
+
+        dispatch(event, id);
+    }
+
+    /**
+     * Sends every event queued during this tick as a single message.
+     */
+    public void flush() {
+        byte[] message;
+        synchronized (outgoing) {
+            if (outgoing.isEmpty()) {
+                return;
+            }
+            message = outgoing.finish();
+        }
+
+        publishConnection.async().publish(channel, message);
+    }
+
+    private void dispatchReceived() {
+        byte[] message;
+        while ((message = received.poll()) != null) {
+            try {
+                if (incoming.open(message) == origin) {
+                    continue; // Already delivered locally when published
+                }
+                incoming.readEvents(id -> id >= 0 && id < MAX_EVENT_TYPES ? codecs[id] : null, this::dispatch);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Dropping malformed event message on " + channel, e);
+            }
+        }
+    }
+
+    private void dispatch(Object event, int id) {
+        for (Consumer<Object> subscriber : subscribers[id]) {
+            try {
+                subscriber.accept(event);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Event subscriber failed for " + event.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private int idOf(Class<?> type) {
+        Integer id = ids.get(type);
+        if (id == null) {
+            throw new IllegalArgumentException("Event type " + type.getName() + " isn't registered");
+        }
+        return id;
+    }
+}
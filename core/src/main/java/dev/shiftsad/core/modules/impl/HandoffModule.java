@@ -0,0 +1,308 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.discovery.ServerInfo;
+import dev.shiftsad.core.handoff.HandoffStats;
+import dev.shiftsad.core.handoff.PlayerSnapshot;
+import dev.shiftsad.core.handoff.SnapshotCodec;
+import dev.shiftsad.core.metrics.HandlerTimer;
+import dev.shiftsad.core.metrics.Histogram;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
+import dev.shiftsad.core.modules.Module;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.RedisPubSubListener;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.entity.Player;
+import net.minestom.server.event.EventListener;
+import net.minestom.server.event.player.AsyncPlayerConfigurationEvent;
+import net.minestom.server.network.packet.server.common.TransferPacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands a player's state to the server it moves to, so it doesn't have to be loaded
+ * again from the database.
+ * <p>
+ * The leaving server encodes a {@link PlayerSnapshot} with {@link #getCodec()}, stores
+ * it under {@code handoff:<uuid>} with a short time to live, and announces the player
+ * on the target's {@link #handoffChannel(String) channel}, pipelined on one connection
+ * so the snapshot is always stored first. The target fetches and deletes the snapshot
+ * as soon as the announcement arrives, while the player is still reconnecting, and
+ * hands it to the {@link #onArrival arrival handlers} when the player configures.
+ * Players that weren't announced join without a Redis round-trip.
+ */
+@DependsOn(RedisModule.class)
+public class HandoffModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(HandoffModule.class.getName());
+
+    public static final String KEY_PREFIX = "handoff:";
+
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(30);
+    /* How long a joining player waits for a snapshot still being fetched */
+    private static final long ARRIVAL_TIMEOUT_MILLIS = 2_000;
+    private static final long NANOS_PER_MILLI = 1_000_000;
+
+    private static final RedisCodec<String, byte[]> CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    private final RedisModule redisModule;
+    private final String serverId;
+    private final String channel;
+    private final Duration timeToLive;
+    private final SnapshotCodec codec = new SnapshotCodec();
+
+    private final List<BiConsumer<Player, PlayerSnapshot>> arrivalHandlers = new CopyOnWriteArrayList<>();
+    /* Snapshots of announced players, fetched or being fetched */
+    private final Map<UUID, Prefetch> prefetched = new ConcurrentHashMap<>();
+
+    private final MetricsRegistry metrics = MetricsRegistry.shared();
+    private final Histogram handoffTime = metrics.histogram(
+            "gameserver_handoff_seconds", "Time from a snapshot being taken to its player joining this server",
+            MetricsRegistry.NANOS_TO_SECONDS
+    );
+    private final Histogram snapshotBytes = metrics.histogram(
+            "gameserver_handoff_snapshot_bytes", "Encoded size of the snapshots sent", 1
+    );
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder arrivalsPrefetched = new LongAdder();
+    private final LongAdder arrivalsFetched = new LongAdder();
+    private final LongAdder arrivalsMissing = new LongAdder();
+
+    private StatefulRedisConnection<String, byte[]> connection;
+    private RedisPubSubListener<String, String> listener;
+    private EventListener<AsyncPlayerConfigurationEvent> configurationListener;
+
+    /**
+     * @param serverId this server's {@link ServerInfo#id() id}, which others hand players to
+     */
+    public HandoffModule(@NotNull RedisModule redisModule, @NotNull String serverId) {
+        this(redisModule, serverId, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * @param timeToLive how long an unclaimed snapshot is kept, in Redis and once prefetched
+     */
+    public HandoffModule(@NotNull RedisModule redisModule, @NotNull String serverId, @NotNull Duration timeToLive) {
+        this.redisModule = redisModule;
+        this.serverId = serverId;
+        this.channel = handoffChannel(serverId);
+        this.timeToLive = timeToLive;
+    }
+
+    public static @NotNull String handoffChannel(@NotNull String serverId) {
+        return "gameserver:handoff:" + serverId;
+    }
+
+    @Override
+    public void initialize() {
+        connection = redisModule.connect(CODEC);
+
+        listener = new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                if (HandoffModule.this.channel.equals(channel)) {
+                    onAnnouncement(message);
+                }
+            }
+        };
+        redisModule.pubSub().addListener(listener);
+        redisModule.pubSub().sync().subscribe(channel);
+
+        configurationListener = HandlerTimer.listener(this, AsyncPlayerConfigurationEvent.class, this::onConfiguration);
+        MinecraftServer.getGlobalEventHandler().addListener(configurationListener);
+
+        metrics.counter("gameserver_handoffs_sent_total", "Snapshots written for players leaving", sent::sum);
+        metrics.counter("gameserver_handoff_arrivals_total", "Announced players that joined, by how their snapshot was ready",
+                arrivalsPrefetched::sum, "result", "prefetched");
+        metrics.counter("gameserver_handoff_arrivals_total", "Announced players that joined, by how their snapshot was ready",
+                arrivalsFetched::sum, "result", "fetched");
+        metrics.counter("gameserver_handoff_arrivals_total", "Announced players that joined, by how their snapshot was ready",
+                arrivalsMissing::sum, "result", "missing");
+    }
+
+    @Override
+    public void stop() {
+        if (configurationListener != null) {
+            MinecraftServer.getGlobalEventHandler().removeListener(configurationListener);
+            configurationListener = null;
+        }
+
+        if (listener != null) {
+            try {
+                redisModule.pubSub().removeListener(listener);
+                redisModule.pubSub().async().unsubscribe(channel);
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Failed to unsubscribe from handoff announcements", e);
+            }
+            listener = null;
+        }
+
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+        prefetched.clear();
+
+        metrics.unregister("gameserver_handoff_seconds");
+        metrics.unregister("gameserver_handoff_snapshot_bytes");
+        metrics.unregister("gameserver_handoffs_sent_total");
+        metrics.unregister("gameserver_handoff_arrivals_total", "result", "prefetched");
+        metrics.unregister("gameserver_handoff_arrivals_total", "result", "fetched");
+        metrics.unregister("gameserver_handoff_arrivals_total", "result", "missing");
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.NORMAL;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "Handoff";
+    }
+
+    /**
+     * Register every section type handed over here, on every server, before the first handoff.
+     */
+    public @NotNull SnapshotCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Calls {@code handler} with the snapshot of every handed over player, while it's
+     * still configuring and on its configuration thread, so blocking is allowed.
+     */
+    public void onArrival(@NotNull BiConsumer<Player, PlayerSnapshot> handler) {
+        arrivalHandlers.add(handler);
+    }
+
+    /**
+     * Stores a snapshot of {@code playerId} made of {@code sections} and announces it to
+     * {@code targetServerId}. Send the player over once the future completes.
+     *
+     * @throws IllegalArgumentException if a section's type isn't registered with {@link #getCodec()}
+     */
+    public @NotNull CompletableFuture<Void> handoff(@NotNull UUID playerId, @NotNull String targetServerId, @NotNull Object... sections) {
+        byte[] data = codec.encode(new PlayerSnapshot(playerId, serverId, System.currentTimeMillis(), List.of(sections)));
+        snapshotBytes.record(data.length);
+
+        CompletableFuture<String> stored = connection.async()
+                .set(KEY_PREFIX + playerId, data, SetArgs.Builder.px(timeToLive.toMillis()))
+                .toCompletableFuture();
+        CompletableFuture<Long> announced = connection.async()
+                .publish(handoffChannel(targetServerId), playerId.toString().getBytes(StandardCharsets.UTF_8))
+                .toCompletableFuture();
+
+        return stored.thenCombine(announced, (ignored, receivers) -> {
+            sent.increment();
+            if (receivers == 0) {
+                logger.warning("Handed " + playerId + " to " + targetServerId + " but it isn't listening");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Hands {@code player} to {@code target} and then sends it there with a transfer packet.
+     */
+    public @NotNull CompletableFuture<Void> transfer(@NotNull Player player, @NotNull ServerInfo target, @NotNull Object... sections) {
+        return handoff(player.getUuid(), target.id(), sections)
+                .thenRun(() -> player.sendPacket(new TransferPacket(target.address(), target.port())));
+    }
+
+    public @NotNull HandoffStats getStats() {
+        Histogram.Snapshot time = handoffTime.snapshot();
+        Histogram.Snapshot bytes = snapshotBytes.snapshot();
+        return new HandoffStats(
+                sent.sum(),
+                arrivalsPrefetched.sum(),
+                arrivalsFetched.sum(),
+                arrivalsMissing.sum(),
+                time.valueAt(0.5) / (double) NANOS_PER_MILLI,
+                time.valueAt(0.99) / (double) NANOS_PER_MILLI,
+                time.max() / (double) NANOS_PER_MILLI,
+                (long) bytes.mean()
+        );
+    }
+
+    private void onAnnouncement(String message) {
+        UUID playerId;
+        try {
+            playerId = UUID.fromString(message);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Ignoring malformed handoff announcement: " + message);
+            return;
+        }
+
+        long now = System.nanoTime();
+        prefetched.values().removeIf(prefetch -> now - prefetch.announcedAtNanos() > timeToLive.toNanos());
+        prefetched.put(playerId, new Prefetch(fetch(playerId), now));
+    }
+
+    private CompletableFuture<PlayerSnapshot> fetch(UUID playerId) {
+        return connection.async().getdel(KEY_PREFIX + playerId)
+                .toCompletableFuture()
+                .thenApply(data -> data == null ? null : codec.decode(data));
+    }
+
+    private void onConfiguration(AsyncPlayerConfigurationEvent event) {
+        Player player = event.getPlayer();
+        Prefetch prefetch = prefetched.remove(player.getUuid());
+        if (prefetch == null) {
+            return;
+        }
+
+        boolean ready = prefetch.snapshot().isDone();
+        PlayerSnapshot snapshot;
+        try {
+            snapshot = prefetch.snapshot().get(ARRIVAL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | TimeoutException e) {
+            logger.log(Level.WARNING, "Failed to fetch the handoff snapshot of " + player.getUsername(), e);
+            snapshot = null;
+        }
+
+        if (snapshot == null) {
+            arrivalsMissing.increment();
+            return;
+        }
+
+        (ready ? arrivalsPrefetched : arrivalsFetched).increment();
+        // Wall clocks of both servers, so only as precise as their sync
+        handoffTime.record((System.currentTimeMillis() - snapshot.createdAtMillis()) * NANOS_PER_MILLI);
+
+        for (BiConsumer<Player, PlayerSnapshot> handler : arrivalHandlers) {
+            try {
+                handler.accept(player, snapshot);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Handoff arrival handler failed for " + player.getUsername(), e);
+            }
+        }
+    }
+
+    private record Prefetch(CompletableFuture<PlayerSnapshot> snapshot, long announcedAtNanos) {
+    }
+}
@@ -0,0 +1,380 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.leaderboard.LeaderboardEntry;
+import dev.shiftsad.core.leaderboard.LeaderboardView;
+import dev.shiftsad.core.metrics.HandlerTimer;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
+import dev.shiftsad.core.modules.Module;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.RedisPubSubListener;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.timer.ExecutionType;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Leaderboards stored as Redis sorted sets, with a local top kept by every server.
+ * <p>
+ * Score increments are summed per player in memory and written once per tick: a Lua
+ * script applies a board's increments with {@code ZINCRBY} and publishes the new
+ * scores on {@link #UPDATE_CHANNEL} in the same step, through {@link RedisModule#batched()}.
+ * Because the script is atomic, every server sees the changes in the order Redis
+ * applied them. Tracked boards keep a {@link LeaderboardView} that applies those
+ * changes, so {@link #top} never leaves the JVM. Views are reloaded when they run
+ * short and every {@link #RESYNC_INTERVAL_MILLIS}, to recover changes missed while
+ * the pub/sub connection was down.
+ * <p>
+ * The script also bumps the board's version under {@link #VERSION_KEY_PREFIX} and
+ * publishes it with the scores, and reloads read the version along with the top, so
+ * the view can tell which changes a reload already contains.
+ */
+@DependsOn(RedisModule.class)
+public class LeaderboardModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(LeaderboardModule.class.getName());
+
+    public static final String KEY_PREFIX = "leaderboard:";
+    public static final String VERSION_KEY_PREFIX = "leaderboard-version:";
+    public static final String UPDATE_CHANNEL = "gameserver:leaderboard-updates";
+
+    private static final long RESYNC_INTERVAL_MILLIS = 30_000;
+
+    /*
+     * KEYS[1] the board, KEYS[2] its version
+     * ARGV channel, board name, then player and increment pairs
+     * Publishes the board name, its new version, then each player and its new score, space separated.
+     */
+    private static final String INCREMENT_SCRIPT = """
+            local out = {ARGV[2], redis.call('INCR', KEYS[2])}
+            for i = 3, #ARGV, 2 do
+              out[#out + 1] = ARGV[i]
+              out[#out + 1] = redis.call('ZINCRBY', KEYS[1], ARGV[i + 1], ARGV[i])
+            end
+            redis.call('PUBLISH', ARGV[1], table.concat(out, ' '))
+            return (#out - 2) / 2
+            """;
+
+    /*
+     * KEYS[1] the board, KEYS[2] its version
+     * ARGV[1] number of entries to read
+     * Returns the version followed by the highest players and their scores.
+     */
+    private static final String RELOAD_SCRIPT = """
+            local entries = redis.call('ZREVRANGE', KEYS[1], 0, ARGV[1] - 1, 'WITHSCORES')
+            table.insert(entries, 1, redis.call('GET', KEYS[2]) or '0')
+            return entries
+            """;
+
+    private final RedisModule redisModule;
+
+    /* Increments not written yet, by board then player */
+    private final Map<String, Map<UUID, Double>> pending = new ConcurrentHashMap<>();
+    private final Map<String, LeaderboardView> views = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> reloads = new ConcurrentHashMap<>();
+
+    private final MetricsRegistry metrics = MetricsRegistry.shared();
+    private final LongAdder increments = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder updatesApplied = new LongAdder();
+    private final LongAdder viewReloads = new LongAdder();
+    private final LongAdder localRanks = new LongAdder();
+    private final LongAdder remoteRanks = new LongAdder();
+
+    private volatile String scriptDigest;
+    private RedisPubSubListener<String, String> listener;
+    private Task flushTask;
+    private long nextResync;
+
+    public LeaderboardModule(@NotNull RedisModule redisModule) {
+        this.redisModule = redisModule;
+    }
+
+    @Override
+    public void initialize() {
+        scriptDigest = redisModule.sync().scriptLoad(INCREMENT_SCRIPT);
+
+        listener = new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                if (UPDATE_CHANNEL.equals(channel)) {
+                    onUpdate(message);
+                }
+            }
+        };
+        redisModule.pubSub().addListener(listener);
+        redisModule.pubSub().sync().subscribe(UPDATE_CHANNEL);
+
+        metrics.counter("gameserver_leaderboard_increments_total", "Score increments made on this server",
+                increments::sum);
+        metrics.counter("gameserver_leaderboard_writes_total", "Batched increment scripts sent", writes::sum);
+        metrics.counter("gameserver_leaderboard_write_failures_total",
+                "Batched increment scripts that failed, their increments are lost", writeFailures::sum);
+        metrics.counter("gameserver_leaderboard_updates_total", "Score changes applied to local views",
+                updatesApplied::sum);
+        metrics.counter("gameserver_leaderboard_reloads_total", "Local views read again from Redis",
+                viewReloads::sum);
+        metrics.counter("gameserver_leaderboard_rank_lookups_total", "Rank lookups, by where they were answered",
+                localRanks::sum, "source", "local");
+        metrics.counter("gameserver_leaderboard_rank_lookups_total", "Rank lookups, by where they were answered",
+                remoteRanks::sum, "source", "redis");
+
+        nextResync = System.currentTimeMillis() + RESYNC_INTERVAL_MILLIS;
+        flushTask = MinecraftServer.getSchedulerManager().submitTask(HandlerTimer.task(this, () -> {
+            flush();
+            return TaskSchedule.nextTick();
+        }), ExecutionType.TICK_END);
+    }
+
+    @Override
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+
+        if (listener != null) {
+            try {
+                redisModule.pubSub().removeListener(listener);
+                redisModule.pubSub().async().unsubscribe(UPDATE_CHANNEL);
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Failed to unsubscribe from leaderboard updates", e);
+            }
+            listener = null;
+        }
+
+        metrics.unregister("gameserver_leaderboard_increments_total");
+        metrics.unregister("gameserver_leaderboard_writes_total");
+        metrics.unregister("gameserver_leaderboard_write_failures_total");
+        metrics.unregister("gameserver_leaderboard_updates_total");
+        metrics.unregister("gameserver_leaderboard_reloads_total");
+        metrics.unregister("gameserver_leaderboard_rank_lookups_total", "source", "local");
+        metrics.unregister("gameserver_leaderboard_rank_lookups_total", "source", "redis");
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.NORMAL;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "Leaderboards";
+    }
+
+    /**
+     * Keeps a local view of the {@code size} highest entries of {@code board}, read with
+     * {@link #top}. Tracking a board again keeps the existing view.
+     *
+     * @return a future completed once the view is loaded
+     */
+    public @NotNull CompletableFuture<Void> track(@NotNull String board, int size) {
+        checkName(board);
+        LeaderboardView view = new LeaderboardView(size);
+        if (views.putIfAbsent(board, view) != null) {
+            return reloads.getOrDefault(board, CompletableFuture.completedFuture(null));
+        }
+        return reload(board, view);
+    }
+
+    public void untrack(@NotNull String board) {
+        views.remove(board);
+    }
+
+    /**
+     * Adds {@code delta} to the score of {@code player} on {@code board}. Increments are
+     * summed per player and written with the other batched commands at the end of the tick.
+     */
+    public void increment(@NotNull String board, @NotNull UUID player, double delta) {
+        checkName(board);
+        pending.compute(board, (ignored, scores) -> {
+            if (scores == null) {
+                scores = new HashMap<>();
+            }
+            scores.merge(player, delta, Double::sum);
+            return scores;
+        });
+        increments.increment();
+    }
+
+    /**
+     * @return up to {@code count} of the highest entries of a tracked board, best first,
+     * from the local view; empty if the board isn't tracked or not loaded yet
+     */
+    public @NotNull List<LeaderboardEntry> top(@NotNull String board, int count) {
+        LeaderboardView view = views.get(board);
+        return view == null ? List.of() : view.top(count);
+    }
+
+    /**
+     * Looks up the rank and score of {@code player} on {@code board}. Answered from the
+     * local view when the player is in it, or else with {@code ZREVRANK ... WITHSCORE},
+     * which needs Redis 7.2.
+     *
+     * @return a future completed with the entry, or {@code null} if the player has no score
+     */
+    public @NotNull CompletableFuture<@Nullable LeaderboardEntry> rank(@NotNull String board, @NotNull UUID player) {
+        LeaderboardView view = views.get(board);
+        LeaderboardEntry local = view == null || !view.isLoaded() ? null : view.entry(player);
+        if (local != null) {
+            localRanks.increment();
+            return CompletableFuture.completedFuture(local);
+        }
+
+        remoteRanks.increment();
+        String key = KEY_PREFIX + board;
+        String member = player.toString();
+        return redisModule.read(null, commands -> commands.zrevrankWithScore(key, member))
+                .thenApply(ranked -> ranked == null || !ranked.hasValue()
+                        ? null
+                        : new LeaderboardEntry(player, ranked.getValue() + 1, ranked.getScore()));
+    }
+
+    /**
+     * Sends the increments buffered so far, one script per board. Runs at the end of every tick.
+     */
+    public void flush() {
+        boolean sent = false;
+        for (String board : pending.keySet()) {
+            Map<UUID, Double> scores = pending.remove(board);
+            if (scores == null || scores.isEmpty()) {
+                continue;
+            }
+
+            String[] args = new String[2 + scores.size() * 2];
+            args[0] = UPDATE_CHANNEL;
+            args[1] = board;
+            int i = 2;
+            for (Map.Entry<UUID, Double> score : scores.entrySet()) {
+                args[i++] = score.getKey().toString();
+                args[i++] = String.valueOf(score.getValue());
+            }
+            sendIncrements(board, args);
+            sent = true;
+        }
+
+        if (sent) {
+            redisModule.flush();
+        }
+
+        if (System.currentTimeMillis() >= nextResync) {
+            nextResync = System.currentTimeMillis() + RESYNC_INTERVAL_MILLIS;
+            views.forEach(this::reload);
+        }
+    }
+
+    private void sendIncrements(String board, String[] args) {
+        String[] keys = {KEY_PREFIX + board, VERSION_KEY_PREFIX + board};
+        writes.increment();
+        redisModule.batched().<Long>evalsha(scriptDigest, ScriptOutputType.INTEGER, keys, args)
+                .exceptionallyCompose(error -> {
+                    if (!(error instanceof RedisNoScriptException || error.getCause() instanceof RedisNoScriptException)) {
+                        return CompletableFuture.failedFuture(error);
+                    }
+                    // Redis restarted or flushed its script cache, nothing was applied
+                    return redisModule.async().<Long>eval(INCREMENT_SCRIPT, ScriptOutputType.INTEGER, keys, args);
+                })
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        writeFailures.increment();
+                        logger.log(Level.WARNING, "Failed to write " + (args.length - 2) / 2
+                                + " leaderboard increments to " + board, error);
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> reload(String board, LeaderboardView view) {
+        CompletableFuture<Void> running = reloads.get(board);
+        if (running != null) {
+            return running;
+        }
+
+        CompletableFuture<Void> reload = new CompletableFuture<>();
+        if (reloads.putIfAbsent(board, reload) != null) {
+            return reloads.get(board);
+        }
+
+        viewReloads.increment();
+        String[] keys = {KEY_PREFIX + board, VERSION_KEY_PREFIX + board};
+        int capacity = view.capacity();
+        // Changes published from here on are held back, the read may or may not contain them
+        view.startLoad();
+        redisModule.read(null, commands -> commands.<List<Object>>eval(
+                        RELOAD_SCRIPT, ScriptOutputType.MULTI, keys, String.valueOf(capacity)))
+                .whenComplete((result, error) -> {
+                    reloads.remove(board, reload);
+                    if (error == null) {
+                        try {
+                            load(view, result, capacity);
+                            reload.complete(null);
+                            return;
+                        } catch (RuntimeException e) {
+                            error = e;
+                        }
+                    }
+                    view.cancelLoad();
+                    logger.log(Level.WARNING, "Failed to load leaderboard " + board, error);
+                    reload.completeExceptionally(error);
+                });
+        return reload;
+    }
+
+    private static void load(LeaderboardView view, List<Object> result, int capacity) {
+        long version = Long.parseLong((String) result.getFirst());
+        int entries = (result.size() - 1) / 2;
+        Map<UUID, Double> scores = new HashMap<>(entries);
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            String member = (String) result.get(i);
+            try {
+                scores.put(UUID.fromString(member), Double.parseDouble((String) result.get(i + 1)));
+            } catch (IllegalArgumentException e) {
+                logger.fine("Ignoring leaderboard member that isn't a player id: " + member);
+            }
+        }
+        view.load(scores, entries < capacity, version);
+    }
+
+    private void onUpdate(String message) {
+        String[] parts = message.split(" ");
+        LeaderboardView view = views.get(parts[0]);
+        if (view == null) {
+            return;
+        }
+
+        // Before the first load the view ignores changes, the load catches up
+        try {
+            long version = Long.parseLong(parts[1]);
+            for (int i = 2; i + 1 < parts.length; i += 2) {
+                view.apply(version, UUID.fromString(parts[i]), Double.parseDouble(parts[i + 1]));
+            }
+            updatesApplied.add((parts.length - 2) / 2);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            logger.log(Level.WARNING, "Ignoring malformed leaderboard update", e);
+            return;
+        }
+
+        if (view.needsReload()) {
+            reload(parts[0], view);
+        }
+    }
+
+    private static void checkName(String board) {
+        if (board.isEmpty() || board.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Leaderboard names can't be empty or contain whitespace");
+        }
+    }
+}
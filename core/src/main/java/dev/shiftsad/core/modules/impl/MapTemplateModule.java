@@ -0,0 +1,142 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.map.MapTemplate;
+import dev.shiftsad.core.map.MapTemplateCompiler;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.Module;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.instance.LightingChunk;
+import net.minestom.server.instance.generator.Generator;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opens {@link MapTemplate}s from a directory and keeps each one mapped once for every
+ * match that uses it. Templates missing on disk can be baked from a generator.
+ */
+public class MapTemplateModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(MapTemplateModule.class.getName());
+
+    private static final String EXTENSION = ".gsmap";
+
+    private final Path directory;
+    private final Map<String, MapTemplate> templates = new ConcurrentHashMap<>();
+
+    public MapTemplateModule() {
+        this(Path.of(System.getenv().getOrDefault("MAP_DIR", "maps")));
+    }
+
+    public MapTemplateModule(@NotNull Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void initialize() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create map directory " + directory, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (MapTemplate template : templates.values()) {
+            try {
+                template.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close map template " + template.getPath(), e);
+            }
+        }
+        templates.clear();
+    }
+
+    /**
+     * @throws IllegalStateException if the template doesn't exist or can't be read
+     */
+    public @NotNull MapTemplate get(@NotNull String name) {
+        return templates.computeIfAbsent(name, key -> {
+            Path path = pathOf(key);
+            if (!Files.exists(path)) {
+                throw new IllegalStateException("No map template " + key + " in " + directory);
+            }
+            try {
+                MapTemplate template = MapTemplate.open(path);
+                logger.info("Mapped template " + key + " with " + template.getChunkCount() + " chunks");
+                return template;
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open map template " + path, e);
+            }
+        });
+    }
+
+    /**
+     * Returns the template, first baking it from {@code generator} if it isn't on disk.
+     *
+     * @param radius chunks baked around the origin in each direction
+     */
+    public @NotNull MapTemplate getOrBake(@NotNull String name, @NotNull Generator generator, int radius) {
+        Path path = pathOf(name);
+        synchronized (this) {
+            if (!Files.exists(path)) {
+                bake(name, generator, radius);
+            }
+        }
+        return get(name);
+    }
+
+    /**
+     * Generates a square of chunks around the origin in a throwaway instance and
+     * compiles it to the template {@code name}, replacing any existing file. Matches
+     * already using the old template keep their mapping.
+     */
+    public void bake(@NotNull String name, @NotNull Generator generator, int radius) {
+        if (radius < 0) throw new IllegalArgumentException("radius must not be negative");
+
+        long start = System.nanoTime();
+        InstanceContainer instance = MinecraftServer.getInstanceManager().createInstanceContainer();
+        instance.setChunkSupplier(LightingChunk::new);
+        instance.setGenerator(generator);
+        try {
+            MapTemplateCompiler.compile(instance, -radius, -radius, radius, radius, pathOf(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to bake map template " + name, e);
+        } finally {
+            MinecraftServer.getInstanceManager().unregisterInstance(instance);
+        }
+
+        MapTemplate previous = templates.remove(name);
+        if (previous != null) {
+            try {
+                previous.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close map template " + previous.getPath(), e);
+            }
+        }
+        logger.info("Baked template " + name + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    private Path pathOf(String name) {
+        return directory.resolve(name + EXTENSION);
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.NORMAL;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "MapTemplates";
+    }
+}
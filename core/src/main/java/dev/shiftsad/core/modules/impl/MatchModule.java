@@ -0,0 +1,358 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.match.Match;
+import dev.shiftsad.core.match.MatchFactory;
+import dev.shiftsad.core.metrics.HandlerTimer;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.Module;
+import net.kyori.adventure.text.Component;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.entity.Player;
+import net.minestom.server.event.EventListener;
+import net.minestom.server.event.player.AsyncPlayerConfigurationEvent;
+import net.minestom.server.event.player.PlayerDisconnectEvent;
+import net.minestom.server.instance.InstanceContainer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many isolated matches in one server, each in its own instance.
+ * <p>
+ * Joining players are assigned to the fullest match with room, and a new match is
+ * created when every match is full, up to {@code maxMatches}. Matches left empty are
+ * disposed, except for the first {@code warmMatches}, which stay up for the next
+ * players. Matches can also be created and disposed directly.
+ * <p>
+ * While draining, new players are turned away and no match is started. The drain
+ * completes once the last assigned player has left.
+ * <p>
+ * Instances tick on Minestom's dispatcher threads, so with more than one thread, which
+ * {@link dev.shiftsad.core.MinestomServer} configures by default, matches tick in
+ * parallel across cores.
+ */
+public class MatchModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(MatchModule.class.getName());
+
+    public static final String NAME = "Matches";
+
+    private static final int DEFAULT_WARM_MATCHES = 1;
+
+    private final MatchFactory factory;
+    private final int matchCapacity;
+    private final int maxMatches;
+    private final int warmMatches;
+    private final MetricsRegistry metrics = MetricsRegistry.shared();
+
+    private final Map<UUID, MatchHandle> matches = new ConcurrentHashMap<>();
+    /* Which match each connected player was assigned to */
+    private final Map<UUID, MatchHandle> assignments = new ConcurrentHashMap<>();
+
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private volatile boolean draining;
+
+    private EventListener<AsyncPlayerConfigurationEvent> configurationListener;
+    private EventListener<PlayerDisconnectEvent> disconnectListener;
+
+    public MatchModule(@NotNull MatchFactory factory, int matchCapacity, int maxMatches) {
+        this(factory, matchCapacity, maxMatches, DEFAULT_WARM_MATCHES);
+    }
+
+    /**
+     * @param matchCapacity most players in one match
+     * @param maxMatches    most matches running at once
+     * @param warmMatches   matches kept running while empty
+     */
+    public MatchModule(@NotNull MatchFactory factory, int matchCapacity, int maxMatches, int warmMatches) {
+        if (matchCapacity <= 0) throw new IllegalArgumentException("matchCapacity must be greater than 0");
+        if (maxMatches <= 0) throw new IllegalArgumentException("maxMatches must be greater than 0");
+        if (warmMatches < 0 || warmMatches > maxMatches) {
+            throw new IllegalArgumentException("warmMatches must be between 0 and maxMatches");
+        }
+        this.factory = factory;
+        this.matchCapacity = matchCapacity;
+        this.maxMatches = maxMatches;
+        this.warmMatches = warmMatches;
+    }
+
+    @Override
+    public void initialize() {
+        configurationListener = HandlerTimer.listener(this, AsyncPlayerConfigurationEvent.class, this::onConfiguration);
+        disconnectListener = HandlerTimer.listener(this, PlayerDisconnectEvent.class, this::onDisconnect);
+        MinecraftServer.getGlobalEventHandler().addListener(configurationListener);
+        MinecraftServer.getGlobalEventHandler().addListener(disconnectListener);
+
+        metrics.gauge("gameserver_matches", "Matches running", matches::size);
+        for (int i = 0; i < warmMatches; i++) {
+            create();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (configurationListener != null) {
+            MinecraftServer.getGlobalEventHandler().removeListener(configurationListener);
+            MinecraftServer.getGlobalEventHandler().removeListener(disconnectListener);
+            configurationListener = null;
+            disconnectListener = null;
+        }
+
+        for (UUID id : matches.keySet()) {
+            dispose(id);
+        }
+        metrics.unregister("gameserver_matches");
+    }
+
+    @Override
+    public synchronized @NotNull CompletableFuture<Void> drain() {
+        draining = true;
+        if (assignments.isEmpty()) {
+            drained.complete(null);
+        }
+        return drained;
+    }
+
+    /**
+     * Starts a new, empty match.
+     *
+     * @throws IllegalStateException if {@code maxMatches} are already running or the server is draining
+     */
+    public synchronized @NotNull MatchHandle create() {
+        if (draining) {
+            throw new IllegalStateException("Not starting matches while draining");
+        }
+        if (matches.size() >= maxMatches) {
+            throw new IllegalStateException("Already running the maximum of " + maxMatches + " matches");
+        }
+
+        UUID id = UUID.randomUUID();
+        InstanceContainer instance = MinecraftServer.getInstanceManager().createInstanceContainer();
+        Match match;
+        try {
+            match = factory.create(id, instance);
+            match.start();
+        } catch (RuntimeException e) {
+            MinecraftServer.getInstanceManager().unregisterInstance(instance);
+            throw e;
+        }
+
+        MatchHandle handle = new MatchHandle(id, instance, match);
+        matches.put(id, handle);
+        metrics.gauge("gameserver_match_players", "Players assigned to each match",
+                handle::getPlayerCount, "match", id.toString());
+
+        logger.info("Started match " + id + " (" + matches.size() + "/" + maxMatches + ")");
+        return handle;
+    }
+
+    /**
+     * Stops a match, kicks its players and unregisters its instance once they're out.
+     *
+     * @return false if no such match is running
+     */
+    public synchronized boolean dispose(@NotNull UUID id) {
+        MatchHandle handle = matches.remove(id);
+        if (handle == null) {
+            return false;
+        }
+
+        handle.markDisposed();
+        metrics.unregister("gameserver_match_players", "match", id.toString());
+        try {
+            handle.getMatch().stop();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Match " + id + " failed to stop cleanly", e);
+        }
+
+        for (Player player : handle.getInstance().getPlayers()) {
+            player.kick(Component.text("The match was closed"));
+        }
+        unregisterWhenEmpty(handle.getInstance());
+
+        logger.info("Disposed match " + id + " (" + matches.size() + "/" + maxMatches + ")");
+        return true;
+    }
+
+    public @Nullable MatchHandle getMatch(@NotNull UUID id) {
+        return matches.get(id);
+    }
+
+    public @Nullable MatchHandle getMatchOf(@NotNull UUID playerId) {
+        return assignments.get(playerId);
+    }
+
+    public @NotNull Collection<MatchHandle> getMatches() {
+        return Collections.unmodifiableCollection(matches.values());
+    }
+
+    /**
+     * @return players assigned to a match, counting players still in configuration
+     */
+    public int getPlayerCount() {
+        return assignments.size();
+    }
+
+    public int getMatchCapacity() {
+        return matchCapacity;
+    }
+
+    public int getMaxMatches() {
+        return maxMatches;
+    }
+
+    /**
+     * Picks a match for a player, packing players into the fullest match with room so
+     * emptied matches can be disposed.
+     *
+     * @return the match, or null if every match is full and no more can be started
+     */
+    private synchronized @Nullable MatchHandle assign(@NotNull UUID playerId) {
+        if (draining) {
+            return null;
+        }
+
+        MatchHandle best = null;
+        for (MatchHandle handle : matches.values()) {
+            int players = handle.getPlayerCount();
+            if (players < matchCapacity && (best == null || players > best.getPlayerCount())) {
+                best = handle;
+            }
+        }
+
+        if (best == null || !best.tryReserve(matchCapacity)) {
+            if (matches.size() >= maxMatches) {
+                return null;
+            }
+            best = create();
+            best.tryReserve(matchCapacity);
+        }
+
+        assignments.put(playerId, best);
+        return best;
+    }
+
+    private void onConfiguration(AsyncPlayerConfigurationEvent event) {
+        Player player = event.getPlayer();
+        MatchHandle handle = assign(player.getUuid());
+        if (handle == null) {
+            player.kick(Component.text(draining ? "This server is restarting, try again" : "Every match is full, try again later"));
+            return;
+        }
+
+        event.setSpawningInstance(handle.getInstance());
+        player.setRespawnPoint(handle.getMatch().spawn());
+    }
+
+    private void onDisconnect(PlayerDisconnectEvent event) {
+        MatchHandle handle = assignments.remove(event.getPlayer().getUuid());
+        if (handle != null && handle.release() == 0) {
+            disposeIfIdle(handle);
+        }
+        if (draining && assignments.isEmpty()) {
+            drained.complete(null);
+        }
+    }
+
+    private synchronized void disposeIfIdle(MatchHandle handle) {
+        // Re-checked under the lock, a player may have been assigned in the meantime
+        if (handle.getPlayerCount() == 0 && matches.get(handle.getId()) == handle
+                && (draining || matches.size() > warmMatches)) {
+            dispose(handle.getId());
+        }
+    }
+
+    private void unregisterWhenEmpty(InstanceContainer instance) {
+        if (instance.getPlayers().isEmpty()) {
+            MinecraftServer.getInstanceManager().unregisterInstance(instance);
+            return;
+        }
+        // Kicked players leave their instance on a later tick
+        MinecraftServer.getSchedulerManager().scheduleNextTick(HandlerTimer.timed(getName(), () -> unregisterWhenEmpty(instance)));
+    }
+
+    /**
+     * A running match with its instance and the number of players assigned to it,
+     * counting players still in configuration.
+     */
+    public static final class MatchHandle {
+
+        private final UUID id;
+        private final InstanceContainer instance;
+        private final Match match;
+        private final AtomicInteger players = new AtomicInteger();
+        private volatile boolean disposed;
+
+        private MatchHandle(@NotNull UUID id, @NotNull InstanceContainer instance, @NotNull Match match) {
+            this.id = id;
+            this.instance = instance;
+            this.match = match;
+        }
+
+        public @NotNull UUID getId() {
+            return id;
+        }
+
+        public @NotNull InstanceContainer getInstance() {
+            return instance;
+        }
+
+        public @NotNull Match getMatch() {
+            return match;
+        }
+
+        public int getPlayerCount() {
+            return players.get();
+        }
+
+        public boolean isDisposed() {
+            return disposed;
+        }
+
+        /**
+         * Reserves a place for one more player.
+         *
+         * @return false if the match already holds {@code capacity} players or is disposed
+         */
+        private boolean tryReserve(int capacity) {
+            while (!disposed) {
+                int current = players.get();
+                if (current >= capacity) {
+                    return false;
+                }
+                if (players.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int release() {
+            return players.decrementAndGet();
+        }
+
+        private void markDisposed() {
+            disposed = true;
+        }
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.NORMAL;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,424 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.discovery.ServerInfo;
+import dev.shiftsad.core.matchmaking.MatchAssignment;
+import dev.shiftsad.core.metrics.Histogram;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
+import dev.shiftsad.core.modules.Module;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.RedisPubSubListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Queues players for a game in Redis and forms full matches from the queue in batches.
+ * <p>
+ * The queue is two sorted sets of the same players, one scored by join time and one
+ * by rating. Joins and leaves go through {@link RedisModule#batched()}, so however many
+ * players queue in a tick they cost one pipelined write. Every {@link #BATCH_INTERVAL_MILLIS}
+ * a Lua script walks the queue oldest first, groups each player with the closest
+ * ratings in a window that widens the longer they wait, and removes every grouped
+ * player, all in one round-trip. Each match then goes to the least loaded server of
+ * the game in {@link ServerDirectoryModule}'s snapshot, and the assignment is
+ * published on {@link #assignmentChannel(String)}.
+ * <p>
+ * The script is atomic, so any number of servers can run a matcher for the same game.
+ */
+@DependsOn({RedisModule.class, ServerDirectoryModule.class})
+public class MatchmakingModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(MatchmakingModule.class.getName());
+
+    private static final long BATCH_INTERVAL_MILLIS = 250;
+    private static final long BATCH_TIMEOUT_MILLIS = 5_000;
+    private static final int MAX_MATCHES_PER_BATCH = 256;
+    /* Oldest players tried as the seed of a match per batch */
+    private static final int SCAN_LIMIT = 2_048;
+    private static final double RATING_WINDOW = 100;
+    private static final double RATING_WINDOW_PER_SECOND = 25;
+
+    /*
+     * KEYS[1] players by join time, KEYS[2] players by rating
+     * ARGV size, max matches, scan limit, window, window per second, now in millis
+     * Returns the queue size left, then joined at, rating and id of every player of
+     * every match formed, match after match.
+     */
+    private static final String FORM_MATCHES_SCRIPT = """
+            local size = tonumber(ARGV[1])
+            local maxMatches = tonumber(ARGV[2])
+            local window = tonumber(ARGV[4])
+            local widen = tonumber(ARGV[5])
+            local now = tonumber(ARGV[6])
+            local oldest = redis.call('ZRANGE', KEYS[1], 0, tonumber(ARGV[3]) - 1, 'WITHSCORES')
+            local taken = {}
+            local out = {0}
+            local formed = 0
+            for i = 1, #oldest, 2 do
+              if formed >= maxMatches then break end
+              local seed = oldest[i]
+              local rating = not taken[seed] and redis.call('ZSCORE', KEYS[2], seed)
+              if rating then
+                rating = tonumber(rating)
+                local range = window + widen * math.max(0, now - tonumber(oldest[i + 1])) / 1000
+                local below = redis.call('ZREVRANGEBYSCORE', KEYS[2], rating, rating - range, 'WITHSCORES', 'LIMIT', 0, size)
+                local above = redis.call('ZRANGEBYSCORE', KEYS[2], '(' .. rating, rating + range, 'WITHSCORES', 'LIMIT', 0, size - 1)
+                local group = {seed}
+                local scores = {rating}
+                local b, a = 1, 1
+                while #group < size and (b <= #below or a <= #above) do
+                  if below[b] == seed then b = b + 2 end
+                  local down = b <= #below and rating - tonumber(below[b + 1])
+                  local up = a <= #above and tonumber(above[a + 1]) - rating
+                  if down and (not up or down <= up) then
+                    group[#group + 1] = below[b]
+                    scores[#scores + 1] = tonumber(below[b + 1])
+                    b = b + 2
+                  elseif up then
+                    group[#group + 1] = above[a]
+                    scores[#scores + 1] = tonumber(above[a + 1])
+                    a = a + 2
+                  end
+                end
+                if #group == size then
+                  for j = 1, size do
+                    local joined = redis.call('ZSCORE', KEYS[1], group[j]) or tostring(now)
+                    out[#out + 1] = joined
+                    out[#out + 1] = tostring(scores[j])
+                    out[#out + 1] = group[j]
+                    taken[group[j]] = true
+                  end
+                  redis.call('ZREM', KEYS[1], unpack(group))
+                  redis.call('ZREM', KEYS[2], unpack(group))
+                  formed = formed + 1
+                end
+              end
+            end
+            out[1] = redis.call('ZCARD', KEYS[1])
+            return out
+            """;
+
+    private final RedisModule redisModule;
+    private final ServerDirectoryModule directory;
+    private final String game;
+    private final int matchSize;
+    private final String joinedKey;
+    private final String ratingKey;
+    private final String channel;
+
+    private final List<Consumer<MatchAssignment>> subscribers = new CopyOnWriteArrayList<>();
+    /* Players this matcher sent to each server since the server last reported its count */
+    private final Map<String, PendingLoad> pendingLoad = new ConcurrentHashMap<>();
+
+    private final MetricsRegistry metrics = MetricsRegistry.shared();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder matchesFormed = new LongAdder();
+    private final LongAdder requeued = new LongAdder();
+    private Histogram batchTime;
+    private volatile long queueSize;
+
+    private volatile String scriptDigest;
+    private RedisPubSubListener<String, String> listener;
+    private Thread matcher;
+
+    /**
+     * @param matchSize players in a full match
+     */
+    public MatchmakingModule(
+            @NotNull RedisModule redisModule,
+            @NotNull ServerDirectoryModule directory,
+            @NotNull String game,
+            int matchSize
+    ) {
+        if (matchSize <= 0) throw new IllegalArgumentException("matchSize must be greater than 0");
+        this.redisModule = redisModule;
+        this.directory = directory;
+        this.game = game;
+        this.matchSize = matchSize;
+        // Hash tagged so both sets land in the same cluster slot, as the script needs
+        this.joinedKey = "matchmaking:{" + game + "}:joined";
+        this.ratingKey = "matchmaking:{" + game + "}:rating";
+        this.channel = assignmentChannel(game);
+    }
+
+    public static @NotNull String assignmentChannel(@NotNull String game) {
+        return "gameserver:matchmaking:" + game;
+    }
+
+    @Override
+    public void initialize() {
+        directory.watchGame(game);
+        scriptDigest = redisModule.sync().scriptLoad(FORM_MATCHES_SCRIPT);
+
+        listener = new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                if (MatchmakingModule.this.channel.equals(channel)) {
+                    onAssignment(message);
+                }
+            }
+        };
+        redisModule.pubSub().addListener(listener);
+        redisModule.pubSub().sync().subscribe(channel);
+
+        batchTime = metrics.histogram("gameserver_matchmaking_batch_seconds",
+                "Time to form and assign one batch of matches", MetricsRegistry.NANOS_TO_SECONDS, "game", game);
+        metrics.counter("gameserver_matchmaking_queued_total", "Players queued", queued::sum, "game", game);
+        metrics.counter("gameserver_matchmaking_matches_total", "Matches formed", matchesFormed::sum, "game", game);
+        metrics.counter("gameserver_matchmaking_requeued_total",
+                "Matches put back in the queue because no server had room", requeued::sum, "game", game);
+        metrics.gauge("gameserver_matchmaking_queue_size", "Players waiting, as of the last batch",
+                () -> queueSize, "game", game);
+
+        matcher = Thread.ofVirtual().name("matchmaker-" + game).start(this::match);
+    }
+
+    @Override
+    public void stop() {
+        if (matcher != null) {
+            matcher.interrupt();
+            matcher = null;
+        }
+
+        if (listener != null) {
+            try {
+                redisModule.pubSub().removeListener(listener);
+                redisModule.pubSub().async().unsubscribe(channel);
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Failed to unsubscribe from match assignments", e);
+            }
+            listener = null;
+        }
+
+        metrics.unregister("gameserver_matchmaking_batch_seconds", "game", game);
+        metrics.unregister("gameserver_matchmaking_queued_total", "game", game);
+        metrics.unregister("gameserver_matchmaking_matches_total", "game", game);
+        metrics.unregister("gameserver_matchmaking_requeued_total", "game", game);
+        metrics.unregister("gameserver_matchmaking_queue_size", "game", game);
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.NORMAL;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "Matchmaking";
+    }
+
+    /**
+     * Adds {@code player} to the queue, or updates its rating if already queued.
+     * Written with the other batched commands at the end of the tick.
+     */
+    public void enqueue(@NotNull UUID player, double rating) {
+        String member = player.toString();
+        redisModule.batched().zadd(joinedKey, System.currentTimeMillis(), member);
+        redisModule.batched().zadd(ratingKey, rating, member);
+        queued.increment();
+    }
+
+    /**
+     * Removes {@code player} from the queue, e.g. when it disconnects before being matched.
+     */
+    public void dequeue(@NotNull UUID player) {
+        String member = player.toString();
+        redisModule.batched().zrem(joinedKey, member);
+        redisModule.batched().zrem(ratingKey, member);
+    }
+
+    /**
+     * Calls {@code subscriber} with every match formed for this game, by any matcher.
+     * Runs on the pub/sub thread, hop to the tick thread before touching players.
+     */
+    public void subscribe(@NotNull Consumer<MatchAssignment> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(@NotNull Consumer<MatchAssignment> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * @return players waiting as of the last batch
+     */
+    public long getQueueSize() {
+        return queueSize;
+    }
+
+    private void match() {
+        while (!Thread.currentThread().isInterrupted()) {
+            int formed;
+            try {
+                formed = formBatch();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to form matches for " + game, e);
+                formed = 0;
+            }
+
+            // A full batch means more players are likely waiting, go again right away
+            if (formed < MAX_MATCHES_PER_BATCH) {
+                try {
+                    Thread.sleep(BATCH_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return matches formed
+     */
+    private int formBatch() throws InterruptedException, ExecutionException, TimeoutException {
+        long start = System.nanoTime();
+        List<Object> result = formMatches();
+        queueSize = (Long) result.getFirst();
+
+        int formed = (result.size() - 1) / (3 * matchSize);
+        for (int match = 0; match < formed; match++) {
+            int offset = 1 + match * 3 * matchSize;
+            assign(result.subList(offset, offset + 3 * matchSize));
+        }
+
+        matchesFormed.add(formed);
+        batchTime.record(System.nanoTime() - start);
+        return formed;
+    }
+
+    private List<Object> formMatches() throws InterruptedException, ExecutionException, TimeoutException {
+        String[] keys = {joinedKey, ratingKey};
+        String[] args = {
+                String.valueOf(matchSize),
+                String.valueOf(MAX_MATCHES_PER_BATCH),
+                String.valueOf(SCAN_LIMIT),
+                String.valueOf(RATING_WINDOW),
+                String.valueOf(RATING_WINDOW_PER_SECOND),
+                String.valueOf(System.currentTimeMillis())
+        };
+
+        try {
+            return redisModule.async().<List<Object>>evalsha(scriptDigest, ScriptOutputType.MULTI, keys, args)
+                    .get(BATCH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof RedisNoScriptException)) {
+                throw e;
+            }
+            // Redis restarted or flushed its script cache
+            scriptDigest = redisModule.async().scriptLoad(FORM_MATCHES_SCRIPT)
+                    .get(BATCH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            return redisModule.async().<List<Object>>evalsha(scriptDigest, ScriptOutputType.MULTI, keys, args)
+                    .get(BATCH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends one match to the least loaded server, or puts its players back in the queue
+     * with their original join time if every server is full.
+     *
+     * @param players joined at, rating and id of each player
+     */
+    private void assign(List<Object> players) {
+        ServerInfo server = leastLoaded();
+        if (server == null) {
+            requeue(players);
+            return;
+        }
+
+        List<UUID> ids = new ArrayList<>(matchSize);
+        for (int i = 2; i < players.size(); i += 3) {
+            ids.add(UUID.fromString((String) players.get(i)));
+        }
+        MatchAssignment assignment = new MatchAssignment(UUID.randomUUID(), game, server.id(), List.copyOf(ids));
+        redisModule.async().publish(channel, assignment.encode());
+    }
+
+    /**
+     * Picks the server with the lowest share of its capacity used that has room for a
+     * full match, counting the players this matcher sent it since it last reported.
+     * Reserves the match's places on the server picked.
+     */
+    private @Nullable ServerInfo leastLoaded() {
+        ServerInfo best = null;
+        double bestLoad = Double.MAX_VALUE;
+        for (ServerInfo server : directory.getServers(game)) {
+            if (server.capacity() <= 0) continue;
+
+            int sent = pendingLoad(server);
+            if (server.freeSlots() - sent < matchSize) continue;
+
+            double load = (server.players() + sent) / (double) server.capacity();
+            if (load < bestLoad) {
+                best = server;
+                bestLoad = load;
+            }
+        }
+
+        if (best != null) {
+            int reported = best.players();
+            pendingLoad.merge(best.id(), new PendingLoad(reported, matchSize),
+                    (previous, added) -> new PendingLoad(reported, pendingLoad(previous, reported) + matchSize));
+        }
+        return best;
+    }
+
+    private int pendingLoad(ServerInfo server) {
+        PendingLoad pending = pendingLoad.get(server.id());
+        return pending == null ? 0 : pendingLoad(pending, server.players());
+    }
+
+    private static int pendingLoad(PendingLoad pending, int reported) {
+        // A new count from the server already includes the players sent to it
+        return pending.reported() == reported ? pending.sent() : 0;
+    }
+
+    private void requeue(List<Object> players) {
+        for (int i = 0; i < players.size(); i += 3) {
+            String member = (String) players.get(i + 2);
+            redisModule.async().zadd(joinedKey, Double.parseDouble((String) players.get(i)), member);
+            redisModule.async().zadd(ratingKey, Double.parseDouble((String) players.get(i + 1)), member);
+        }
+        requeued.increment();
+        logger.warning("No " + game + " server has room for a match of " + matchSize + ", players put back in the queue");
+    }
+
+    private void onAssignment(String message) {
+        MatchAssignment assignment;
+        try {
+            assignment = MatchAssignment.decode(message);
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Ignoring malformed match assignment", e);
+            return;
+        }
+
+        for (Consumer<MatchAssignment> subscriber : subscribers) {
+            try {
+                subscriber.accept(assignment);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Match assignment subscriber failed", e);
+            }
+        }
+    }
+
+    private record PendingLoad(int reported, int sent) {
+    }
+}
@@ -0,0 +1,218 @@
+package dev.shiftsad.core.modules.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.shiftsad.core.metrics.HandlerTimer;
+import dev.shiftsad.core.metrics.Histogram;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.Module;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.event.EventListener;
+import net.minestom.server.event.server.ServerTickMonitorEvent;
+import net.minestom.server.thread.TickThread;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records tick and per-module handler timings and serves every metric of the
+ * {@link MetricsRegistry} in the Prometheus text format on {@code /metrics}.
+ * <p>
+ * Tick time and the bytes allocated by the tick threads, the scheduler thread that runs
+ * the tick loop and the dispatcher threads that tick instances and entities, are
+ * recorded from Minestom's tick monitor event. Handler time is recorded by modules for their listeners and tick tasks
+ * through {@link HandlerTimer}. These and the Redis and Consul latencies are recorded
+ * into the shared registry whether this module is loaded or not.
+ */
+public class MetricsModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(MetricsModule.class.getName());
+
+    private static final int DEFAULT_PORT = 9464;
+    private static final long TICK_BUDGET_NANOS = MinecraftServer.TICK_MS * 1_000_000L;
+
+    private final int port;
+    private final MetricsRegistry registry = MetricsRegistry.shared();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Histogram tickTime = registry.histogram(
+            "gameserver_tick_seconds", "Time spent in each server tick", MetricsRegistry.NANOS_TO_SECONDS
+    );
+    private final Histogram tickAllocations = registry.histogram(
+            "gameserver_tick_allocated_bytes", "Bytes allocated by the tick threads in each tick", 1
+    );
+    private final LongAdder tickOverruns = new LongAdder();
+    private final LongAdder tickThreadAllocated = new LongAdder();
+    private long[] tickThreadIds;
+    private long lastAllocated = -1;
+
+    private EventListener<ServerTickMonitorEvent> tickListener;
+    private HttpServer httpServer;
+
+    /**
+     * Serves on the port from the {@code METRICS_PORT} environment variable, or 9464.
+     */
+    public MetricsModule() {
+        this(portFromEnvironment());
+    }
+
+    public MetricsModule(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public void initialize() {
+        registerJvmMetrics();
+
+        tickListener = EventListener.of(ServerTickMonitorEvent.class, this::onTick);
+        MinecraftServer.getGlobalEventHandler().addListener(tickListener);
+
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to bind metrics endpoint on port " + port, e);
+        }
+        httpServer.createContext("/metrics", this::scrape);
+        httpServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        httpServer.start();
+        logger.info("Serving metrics on port " + port);
+    }
+
+    @Override
+    public void stop() {
+        if (tickListener != null) {
+            MinecraftServer.getGlobalEventHandler().removeListener(tickListener);
+            tickListener = null;
+        }
+
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.HIGHEST;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "Metrics";
+    }
+
+    /**
+     * Wraps {@code handler} so the time it takes is recorded under {@code owner}'s name.
+     *
+     * @see HandlerTimer
+     */
+    public <E> @NotNull Consumer<E> timed(@NotNull Module owner, @NotNull Consumer<E> handler) {
+        return HandlerTimer.timed(owner.getName(), handler);
+    }
+
+    public @NotNull Runnable timed(@NotNull Module owner, @NotNull Runnable task) {
+        return HandlerTimer.timed(owner.getName(), task);
+    }
+
+    private void onTick(ServerTickMonitorEvent event) {
+        long nanos = (long) (event.getTickMonitor().getTickTime() * 1_000_000);
+        tickTime.record(nanos);
+        if (nanos > TICK_BUDGET_NANOS) {
+            tickOverruns.increment();
+        }
+
+        // Runs on the scheduler thread once the dispatcher threads are done with the tick,
+        // so this is what the tick allocated since the last call
+        if (tickThreadIds == null) {
+            tickThreadIds = tickThreadIds();
+        }
+        long allocated = 0;
+        for (long threadAllocated : threads.getThreadAllocatedBytes(tickThreadIds)) {
+            if (threadAllocated < 0) {
+                // Unsupported, or a tick thread is gone and the total would drop, start over
+                tickThreadIds = null;
+                lastAllocated = -1;
+                return;
+            }
+            allocated += threadAllocated;
+        }
+        if (lastAllocated >= 0) {
+            long delta = allocated - lastAllocated;
+            tickAllocations.record(delta);
+            tickThreadAllocated.add(delta);
+        }
+        lastAllocated = allocated;
+    }
+
+    private static long[] tickThreadIds() {
+        List<TickThread> dispatcherThreads = MinecraftServer.process().dispatcher().threads();
+        long[] ids = new long[dispatcherThreads.size() + 1];
+        ids[0] = Thread.currentThread().threadId();
+        for (int i = 0; i < dispatcherThreads.size(); i++) {
+            ids[i + 1] = dispatcherThreads.get(i).threadId();
+        }
+        return ids;
+    }
+
+    private void registerJvmMetrics() {
+        registry.counter("gameserver_tick_overruns_total", "Ticks longer than the tick budget", tickOverruns::sum);
+        registry.counter(
+                "gameserver_tick_thread_allocated_bytes_total", "Bytes allocated by the tick threads",
+                tickThreadAllocated::sum
+        );
+
+        if (threads.isThreadAllocatedMemorySupported() && !threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        registry.gauge("jvm_heap_used_bytes", "Heap in use", () -> memory.getHeapMemoryUsage().getUsed());
+        registry.gauge("jvm_heap_committed_bytes", "Heap committed by the JVM", () -> memory.getHeapMemoryUsage().getCommitted());
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            registry.counter("jvm_gc_collections_total", "Garbage collections run",
+                    collector::getCollectionCount, "collector", collector.getName());
+            registry.counter("jvm_gc_time_milliseconds_total", "Time spent in garbage collection",
+                    collector::getCollectionTime, "collector", collector.getName());
+        }
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            StringBuilder body = new StringBuilder(16 * 1024);
+            registry.write(body);
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to serve metrics", e);
+        }
+    }
+
+    private static int portFromEnvironment() {
+        String port = System.getenv("METRICS_PORT");
+        return port == null || port.isBlank() ? DEFAULT_PORT : Integer.parseInt(port);
+    }
+}
@@ -0,0 +1,416 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.Module;
+import dev.shiftsad.core.persistence.PersistenceStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind persistence for Hibernate entities.
+ * <p>
+ * {@link #save(Object)} and {@link #delete(Object)} only queue the write, so they're
+ * cheap enough for the tick thread. A virtual thread flushes the queue in batches,
+ * each in one transaction on a stateless session with JDBC batching, whenever a full
+ * batch is queued or the flush interval passes. Queued writes to the same entity are
+ * merged so only the latest one reaches the database. Writes to different entities may
+ * be reordered within a batch.
+ * <p>
+ * Entities are written as they are when the flusher gets to them, from another thread,
+ * not as they were when queued. Pass a detached copy that nothing changes afterwards,
+ * never an entity the game keeps mutating: that would write half-applied changes, or
+ * changes made after the save.
+ * <p>
+ * The queue is bounded: once full, {@link #save(Object)} blocks until the flusher
+ * catches up and {@link #trySave(Object)} returns {@code false}. {@link #stop()} flushes
+ * everything still queued before closing the session factory.
+ */
+public class PersistenceModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(PersistenceModule.class.getName());
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_MAX_PENDING = 10_000;
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(250);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_MILLIS = 500;
+
+    private enum Kind {
+        INSERT,
+        UPSERT,
+        DELETE
+    }
+
+    private record Write(Kind kind, Object entity) {
+    }
+
+    private record EntityKey(Class<?> type, Object id) {
+    }
+
+    private final Map<String, Object> properties;
+    private final List<Class<?>> entityClasses;
+    private final int batchSize;
+    private final int maxPending;
+    private final long flushIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final LinkedHashMap<Object, Write> pending = new LinkedHashMap<>();
+    private boolean running;
+    private boolean flushNow;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    private SessionFactory sessionFactory;
+    private Thread flusher;
+
+    /**
+     * @param properties    Hibernate settings, at least the JDBC url and credentials
+     * @param entityClasses the annotated entity classes to map
+     */
+    public PersistenceModule(@NotNull Map<String, Object> properties, @NotNull Class<?>... entityClasses) {
+        this(properties, List.of(entityClasses), DEFAULT_BATCH_SIZE, DEFAULT_MAX_PENDING, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param batchSize     writes per transaction, also used as the JDBC batch size
+     * @param maxPending    queued writes before {@link #save(Object)} blocks
+     * @param flushInterval longest a write waits in the queue when batches aren't filling up
+     */
+    public PersistenceModule(
+            @NotNull Map<String, Object> properties,
+            @NotNull List<Class<?>> entityClasses,
+            int batchSize,
+            int maxPending,
+            @NotNull Duration flushInterval
+    ) {
+        if (batchSize <= 0 || maxPending < batchSize) {
+            throw new IllegalArgumentException("batchSize must be positive and no greater than maxPending");
+        }
+
+        this.properties = Map.copyOf(properties);
+        this.entityClasses = List.copyOf(entityClasses);
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.flushIntervalNanos = flushInterval.toNanos();
+    }
+
+    @Override
+    public void initialize() {
+        Configuration configuration = new Configuration();
+        configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(batchSize));
+        configuration.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        configuration.setProperty(AvailableSettings.ORDER_UPDATES, "true");
+        configuration.getProperties().putAll(properties);
+        entityClasses.forEach(configuration::addAnnotatedClass);
+        sessionFactory = configuration.buildSessionFactory();
+
+        lock.lock();
+        try {
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+
+        flusher = Thread.ofVirtual()
+                .name("persistence-flusher")
+                .start(this::flushLoop);
+    }
+
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            running = false;
+            flushRequested.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warning("Interrupted while draining " + pendingCount() + " pending writes");
+            }
+            flusher = null;
+        }
+
+        if (sessionFactory != null) {
+            sessionFactory.close();
+            sessionFactory = null;
+        }
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.NORMAL;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "Persistence";
+    }
+
+    /**
+     * For reads and for writes that must happen synchronously.
+     */
+    public @NotNull SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    /**
+     * Queues an insert of {@code entity}, or an upsert if it already has an id.
+     * Blocks while the queue is full. {@code entity} must be a copy that isn't changed
+     * after this call.
+     */
+    public void save(@NotNull Object entity) {
+        Object id = idOf(entity);
+        enqueue(keyOf(entity, id), new Write(id == null ? Kind.INSERT : Kind.UPSERT, entity), true);
+    }
+
+    /**
+     * Like {@link #save(Object)}, but never blocks. The same rules apply to {@code entity}.
+     *
+     * @return {@code false} if the queue is full and the write was dropped
+     */
+    public boolean trySave(@NotNull Object entity) {
+        Object id = idOf(entity);
+        return enqueue(keyOf(entity, id), new Write(id == null ? Kind.INSERT : Kind.UPSERT, entity), false);
+    }
+
+    /**
+     * Queues a delete of {@code entity}, which must have an id and, like for
+     * {@link #save(Object)}, not be changed after this call. Blocks while the queue is full.
+     */
+    public void delete(@NotNull Object entity) {
+        Object id = idOf(entity);
+        if (id == null) {
+            throw new IllegalArgumentException("Can't delete " + entity.getClass().getSimpleName() + " without an id");
+        }
+        enqueue(keyOf(entity, id), new Write(Kind.DELETE, entity), true);
+    }
+
+    /**
+     * Asks the flusher to write the queue now instead of waiting for a full batch.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            flushNow = true;
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public @NotNull PersistenceStats getStats() {
+        long batches = flushes.sum();
+        long count = written.sum() + failed.sum();
+        return new PersistenceStats(
+                pendingCount(),
+                written.sum(),
+                merged.sum(),
+                failed.sum(),
+                batches,
+                batches == 0 ? 0 : count / batches,
+                maxBatchSize.get(),
+                batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(flushNanos.sum() / batches),
+                TimeUnit.NANOSECONDS.toMicros(maxFlushNanos.get())
+        );
+    }
+
+    private boolean enqueue(Object key, Write write, boolean block) {
+        lock.lock();
+        try {
+            checkRunning();
+            if (pending.containsKey(key)) {
+                pending.put(key, write);
+                merged.increment();
+                return true;
+            }
+
+            while (pending.size() >= maxPending) {
+                if (!block) {
+                    return false;
+                }
+                notFull.awaitUninterruptibly();
+                checkRunning();
+            }
+
+            pending.put(key, write);
+            if (pending.size() >= batchSize) {
+                flushRequested.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Write> batch = new ArrayList<>(batchSize);
+
+            lock.lock();
+            try {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (running && !flushNow && pending.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        flushRequested.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+
+                if (pending.isEmpty()) {
+                    flushNow = false;
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+
+                Iterator<Write> iterator = pending.values().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+                flushNow = flushNow && !pending.isEmpty();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            flushBatch(batch);
+        }
+    }
+
+    private void flushBatch(List<Write> batch) {
+        long start = System.nanoTime();
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                write(batch);
+                written.add(batch.size());
+                recordFlush(batch.size(), System.nanoTime() - start);
+                return;
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to flush " + batch.size() + " writes (attempt " + attempt + ")", e);
+                if (attempt < MAX_ATTEMPTS) {
+                    try {
+                        Thread.sleep(RETRY_MILLIS * attempt);
+                    } catch (InterruptedException interrupted) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Write one by one so a single bad entity doesn't drop the whole batch
+        for (Write write : batch) {
+            try {
+                write(List.of(write));
+                written.increment();
+            } catch (Exception e) {
+                failed.increment();
+                logger.log(Level.SEVERE, "Dropping " + write.kind() + " of " + write.entity(), e);
+            }
+        }
+        recordFlush(batch.size(), System.nanoTime() - start);
+    }
+
+    private void write(List<Write> batch) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.setJdbcBatchSize(batchSize);
+            Transaction transaction = session.beginTransaction();
+            try {
+                for (Write write : batch) {
+                    switch (write.kind()) {
+                        case INSERT -> session.insert(write.entity());
+                        case UPSERT -> session.upsert(write.entity());
+                        case DELETE -> session.delete(write.entity());
+                    }
+                }
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void recordFlush(int size, long nanos) {
+        flushes.increment();
+        flushNanos.add(nanos);
+        maxFlushNanos.accumulateAndGet(nanos, Math::max);
+        maxBatchSize.accumulateAndGet(size, Math::max);
+    }
+
+    private Object idOf(Object entity) {
+        SessionFactory factory;
+        lock.lock();
+        try {
+            // Also covers a module that was never initialized
+            checkRunning();
+            factory = sessionFactory;
+        } finally {
+            lock.unlock();
+        }
+        return factory.getPersistenceUnitUtil().getIdentifier(entity);
+    }
+
+    private static Object keyOf(Object entity, Object id) {
+        // Entities without an id yet can't be matched, so each insert gets its own key
+        return id == null ? new Object() : new EntityKey(entity.getClass(), id);
+    }
+
+    private int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkRunning() {
+        if (!running) {
+            throw new IllegalStateException("PersistenceModule isn't running");
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.cache.UuidNearCache;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
+import dev.shiftsad.core.modules.Module;
+import dev.shiftsad.core.profile.PlayerProfile;
+import dev.shiftsad.core.profile.ProfileCacheStats;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.RedisPubSubListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Player profiles read through a bounded in-process near cache in front of Redis.
+ * <p>
+ * Lookups that hit the near cache never leave the JVM. Misses load the profile hash
+ * from Redis once, however many callers ask for it at the same time. Every write
+ * publishes the profile id on {@link #INVALIDATION_CHANNEL} so the other servers drop
+ * their copy. Invalidations missed while the pub/sub connection is down are bounded
+ * by the cache's time to live. While Redis is unavailable, loads answer with the last
+ * profile read for the player, if this server read one before.
+ */
+@DependsOn(RedisModule.class)
+public class PlayerProfileModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(PlayerProfileModule.class.getName());
+
+    public static final String KEY_PREFIX = "profile:";
+    public static final String INVALIDATION_CHANNEL = "gameserver:profile-invalidations";
+
+    private static final int DEFAULT_MAX_SIZE = 10_000;
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    private final RedisModule redisModule;
+    private final UuidNearCache<PlayerProfile> nearCache;
+    private final String origin = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final Map<UUID, Load> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+    private final LongAdder invalidations = new LongAdder();
+
+    private RedisPubSubListener<String, String> listener;
+
+    public PlayerProfileModule(@NotNull RedisModule redisModule) {
+        this(redisModule, DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * @param maxSize    maximum number of profiles kept in the near cache
+     * @param timeToLive how long a cached profile is served before being loaded again
+     */
+    public PlayerProfileModule(@NotNull RedisModule redisModule, int maxSize, @NotNull Duration timeToLive) {
+        this.redisModule = redisModule;
+        this.nearCache = new UuidNearCache<>(maxSize, timeToLive.toNanos());
+    }
+
+    @Override
+    public void initialize() {
+        listener = new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                if (INVALIDATION_CHANNEL.equals(channel)) {
+                    onInvalidation(message);
+                }
+            }
+        };
+        redisModule.pubSub().addListener(listener);
+        redisModule.pubSub().sync().subscribe(INVALIDATION_CHANNEL);
+    }
+
+    @Override
+    public void stop() {
+        if (listener != null) {
+            try {
+                redisModule.pubSub().removeListener(listener);
+                redisModule.pubSub().async().unsubscribe(INVALIDATION_CHANNEL);
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Failed to unsubscribe from profile invalidations", e);
+            }
+            listener = null;
+        }
+        nearCache.clear();
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.NORMAL;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "PlayerProfiles";
+    }
+
+    /**
+     * Returns the profile of {@code id} only if it's in the near cache. Never blocks
+     * or goes to Redis, so it's safe on the tick thread.
+     */
+    public @Nullable PlayerProfile getIfCached(@NotNull UUID id) {
+        PlayerProfile profile = nearCache.get(id);
+        if (profile != null) {
+            hits.increment();
+        }
+        return profile;
+    }
+
+    /**
+     * Returns the profile of {@code id}, from the near cache if present or else from Redis.
+     * Completes with an empty profile if the player has none stored.
+     */
+    public @NotNull CompletableFuture<PlayerProfile> get(@NotNull UUID id) {
+        PlayerProfile cached = nearCache.get(id);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        misses.increment();
+        Load pending = loading.get(id);
+        if (pending != null) {
+            return pending.future;
+        }
+
+        Load load = new Load();
+        pending = loading.putIfAbsent(id, load);
+        if (pending != null) {
+            return pending.future;
+        }
+
+        load(id, load);
+        return load.future;
+    }
+
+    /**
+     * Writes the fields of {@code profile} to Redis and invalidates every other server's copy.
+     * Fields stored in Redis but missing from {@code profile} are kept.
+     */
+    public @NotNull CompletableFuture<Void> save(@NotNull PlayerProfile profile) {
+        UUID id = profile.id();
+        if (profile.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return redisModule.write(commands -> commands.hset(KEY_PREFIX + id, profile.fields()))
+                .thenCompose(ignored -> redisModule.read(null, commands -> commands.hgetall(KEY_PREFIX + id)))
+                .thenCompose(stored -> {
+                    markStale(id);
+                    nearCache.put(id, new PlayerProfile(id, stored));
+                    return publishInvalidation(id);
+                });
+    }
+
+    /**
+     * Deletes the stored profile of {@code id} and invalidates every other server's copy.
+     */
+    public @NotNull CompletableFuture<Void> delete(@NotNull UUID id) {
+        return redisModule.write(commands -> commands.del(KEY_PREFIX + id))
+                .thenCompose(ignored -> {
+                    invalidateLocally(id);
+                    return publishInvalidation(id);
+                });
+    }
+
+    /**
+     * Drops the near cache entry of {@code id} on this server and every other one,
+     * e.g. after the profile was changed in Redis by something other than this module.
+     */
+    public @NotNull CompletableFuture<Void> invalidate(@NotNull UUID id) {
+        invalidateLocally(id);
+        return publishInvalidation(id);
+    }
+
+    public @NotNull ProfileCacheStats getStats() {
+        long completed = loads.sum();
+        long mean = completed == 0 ? 0 : loadNanos.sum() / completed;
+        return new ProfileCacheStats(
+                hits.sum(),
+                misses.sum(),
+                completed,
+                loadFailures.sum(),
+                TimeUnit.NANOSECONDS.toMicros(mean),
+                TimeUnit.NANOSECONDS.toMicros(maxLoadNanos.get()),
+                nearCache.size(),
+                nearCache.evictions(),
+                invalidations.sum()
+        );
+    }
+
+    private void load(UUID id, Load load) {
+        long start = System.nanoTime();
+
+        redisModule.read(KEY_PREFIX + id, commands -> commands.hgetall(KEY_PREFIX + id)).whenComplete((fields, error) -> {
+            if (error != null) {
+                loading.remove(id, load);
+                loadFailures.increment();
+                load.future.completeExceptionally(error);
+                return;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            loads.increment();
+            loadNanos.add(elapsed);
+            maxLoadNanos.accumulateAndGet(elapsed, Math::max);
+
+            PlayerProfile profile = new PlayerProfile(id, fields);
+            synchronized (load) {
+                if (!load.stale) {
+                    nearCache.put(id, profile);
+                }
+            }
+            // Only removed once cached, so an invalidation either finds the load or comes after the put
+            loading.remove(id, load);
+            load.future.complete(profile);
+        });
+    }
+
+    private CompletableFuture<Void> publishInvalidation(UUID id) {
+        return redisModule.async().publish(INVALIDATION_CHANNEL, origin + ":" + id)
+                .toCompletableFuture()
+                .thenApply(ignored -> null);
+    }
+
+    private void onInvalidation(String message) {
+        int separator = message.indexOf(':');
+        if (separator < 0 || message.regionMatches(0, origin, 0, separator) && separator == origin.length()) {
+            return; // Malformed, or our own write which is already applied locally
+        }
+
+        try {
+            invalidateLocally(UUID.fromString(message.substring(separator + 1)));
+            invalidations.increment();
+        } catch (IllegalArgumentException e) {
+            logger.warning("Ignoring malformed profile invalidation: " + message);
+        }
+    }
+
+    private void invalidateLocally(UUID id) {
+        markStale(id);
+        nearCache.remove(id);
+    }
+
+    /* Keeps a load of id that raced a change from caching what it read */
+    private void markStale(UUID id) {
+        Load load = loading.get(id);
+        if (load != null) {
+            synchronized (load) {
+                load.stale = true;
+            }
+        }
+    }
+
+    private static final class Load {
+        private final CompletableFuture<PlayerProfile> future = new CompletableFuture<>();
+        /* Guarded by the load itself */
+        private boolean stale;
+    }
+}
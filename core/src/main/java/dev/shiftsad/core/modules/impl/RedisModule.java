@@ -1,31 +1,116 @@
 package dev.shiftsad.core.modules.impl;
 
+import dev.shiftsad.core.async.TickExecutor;
+import dev.shiftsad.core.metrics.HandlerTimer;
 import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
 import dev.shiftsad.core.modules.Module;
+import dev.shiftsad.core.redis.RedisLatencyRecorder;
+import dev.shiftsad.core.resilience.ResiliencePolicy;
+import dev.shiftsad.core.resilience.ResilientEndpoint;
 import io.lettuce.core.RedisClient;
-import io.lettuce.core.api.reactive.RedisStringReactiveCommands;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
 import lombok.RequiredArgsConstructor;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.timer.ExecutionType;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Redis access shared by every module.
+ * <p>
+ * Commands go through one of three connections: an auto-flushing one for commands
+ * that must leave right away ({@link #async()}, {@link #reactive()}), a pipelined one
+ * whose commands are written as one flush at the end of each server tick
+ * ({@link #batched()}, {@link #batchedReactive()}), and lazily opened dedicated
+ * connections for blocking commands and pub/sub, so neither can stall the others.
+ * Blocking commands borrow one of up to {@link #MAX_BLOCKING_CONNECTIONS} connections
+ * for as long as they run, so a {@code BLPOP} waiting for data only holds up its own.
+ * <p>
+ * {@link #read} and {@link #write} send commands through circuit breakers, so callers
+ * fail fast instead of waiting out the client timeout while Redis is slow or down.
+ */
+@DependsOn(ConsulConfigModule.class)
 @RequiredArgsConstructor
 public class RedisModule implements Module {
 
+    /* Redis answers in about a millisecond, a read still running after 20 ms is worth sending again */
+    private static final ResiliencePolicy READ_POLICY = ResiliencePolicy.defaults(Duration.ofSeconds(1))
+            .withHedgeDelay(Duration.ofMillis(20))
+            .withMaxConcurrentCalls(1024);
+    private static final ResiliencePolicy WRITE_POLICY = ResiliencePolicy.defaults(Duration.ofSeconds(2))
+            .withMaxConcurrentCalls(1024);
+
+    public static final int MAX_BLOCKING_CONNECTIONS = 8;
+
     private final ConsulConfigModule configModule;
+    private final RedisLatencyRecorder latencyRecorder = new RedisLatencyRecorder();
+    private final ResilientEndpoint reads = new ResilientEndpoint("redis.read", READ_POLICY);
+    private final ResilientEndpoint writes = new ResilientEndpoint("redis.write", WRITE_POLICY);
+    private final Semaphore blockingPermits = new Semaphore(MAX_BLOCKING_CONNECTIONS);
+    private final Deque<StatefulRedisConnection<String, String>> idleBlocking = new ConcurrentLinkedDeque<>();
+
+    private ClientResources resources;
     private RedisClient client;
-    private RedisStringReactiveCommands<String, String> commands;
+    private StatefulRedisConnection<String, String> connection;
+    private StatefulRedisConnection<String, String> batchedConnection;
+    private StatefulRedisConnection<String, String> hedgeConnection;
+    private StatefulRedisPubSubConnection<String, String> pubSubConnection;
+    private Task flushTask;
 
     @Override
     public void initialize() {
         String redisHost = configModule.getConfigValue("redis.host");
-        client = RedisClient.create(redisHost);
-        commands = client.connect().reactive();
+        resources = DefaultClientResources.builder()
+                .commandLatencyRecorder(latencyRecorder)
+                .build();
+        client = RedisClient.create(resources, redisHost);
+
+        connection = client.connect();
+        batchedConnection = client.connect();
+        batchedConnection.setAutoFlushCommands(false);
+        hedgeConnection = client.connect();
+
+        flushTask = MinecraftServer.getSchedulerManager().submitTask(HandlerTimer.task(this, () -> {
+            flush();
+            return TaskSchedule.nextTick();
+        }), ExecutionType.TICK_END);
     }
 
     @Override
     public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+
         if (client != null) {
+            flush();
             client.shutdown();
-            commands = null;
+            resources.shutdown();
+            connection = null;
+            batchedConnection = null;
+            hedgeConnection = null;
+            idleBlocking.clear();
+            pubSubConnection = null;
         }
     }
 
@@ -38,4 +123,159 @@ public class RedisModule implements Module {
     public @NotNull String getName() {
         return "Redis";
     }
+
+    /**
+     * @return commands sent as soon as they're issued
+     */
+    public @NotNull RedisAsyncCommands<String, String> async() {
+        return connection.async();
+    }
+
+    /**
+     * @return commands sent as soon as they're subscribed to
+     */
+    public @NotNull RedisReactiveCommands<String, String> reactive() {
+        return connection.reactive();
+    }
+
+    /**
+     * Commands issued here are buffered and pipelined in a single write at the end
+     * of the current tick. Use these for the many small per-player reads and writes
+     * made during a tick.
+     */
+    public @NotNull RedisAsyncCommands<String, String> batched() {
+        return batchedConnection.async();
+    }
+
+    /**
+     * Reactive variant of {@link #batched()}. Commands are buffered once subscribed to.
+     */
+    public @NotNull RedisReactiveCommands<String, String> batchedReactive() {
+        return batchedConnection.reactive();
+    }
+
+    /**
+     * Sends an idempotent read through the {@code redis.read} circuit breaker. A read
+     * still running after a short delay is sent again on a second connection, and the
+     * first reply wins. While Redis is unavailable, the last result stored under
+     * {@code fallbackKey} is returned instead, if there is one.
+     *
+     * @param fallbackKey identifies the command's result, e.g. the key and command read;
+     *                    {@code null} to never fall back
+     * @param command     issues the read on the given connection; it may be called twice
+     * @return a future failed with a {@link dev.shiftsad.core.exceptions.ServiceUnavailableException}
+     * if Redis is unavailable and there is no fallback
+     */
+    public @NotNull <T> CompletableFuture<T> read(
+            @Nullable String fallbackKey,
+            @NotNull Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<T>> command
+    ) {
+        return reads.callAsync(
+                fallbackKey,
+                () -> command.apply(connection.async()),
+                () -> command.apply(hedgeConnection.async())
+        );
+    }
+
+    /**
+     * Sends a write through the {@code redis.write} circuit breaker. Writes are never
+     * sent twice and have no fallback, they fail fast while Redis is unavailable.
+     */
+    public @NotNull <T> CompletableFuture<T> write(
+            @NotNull Function<RedisAsyncCommands<String, String>, ? extends CompletionStage<T>> command
+    ) {
+        return writes.callAsync(null, () -> command.apply(connection.async()), null);
+    }
+
+    /**
+     * Writes every buffered {@link #batched()} command now instead of waiting for the end of the tick.
+     */
+    public void flush() {
+        StatefulRedisConnection<String, String> batched = batchedConnection;
+        if (batched != null) {
+            batched.flushCommands();
+        }
+    }
+
+    /**
+     * Synchronous commands on the shared connection, for short commands whose caller
+     * can wait, such as loading scripts on startup. Never for blocking commands, use
+     * {@link #blocking} for those.
+     */
+    public @NotNull RedisCommands<String, String> sync() {
+        TickExecutor.shared().reportBlocking("RedisModule.sync");
+        return connection.sync();
+    }
+
+    /**
+     * Runs {@code command} on a connection of its own, for blocking commands such as
+     * {@code BLPOP} or {@code XREAD BLOCK}. Waits while all
+     * {@link #MAX_BLOCKING_CONNECTIONS} are taken. Only call from virtual or worker
+     * threads; consumers that block for good should open their own with {@link #connect}.
+     */
+    public <T> T blocking(@NotNull Function<RedisCommands<String, String>, T> command) {
+        TickExecutor.shared().reportBlocking("RedisModule.blocking");
+        blockingPermits.acquireUninterruptibly();
+        StatefulRedisConnection<String, String> borrowed = idleBlocking.pollFirst();
+        try {
+            if (borrowed == null) {
+                borrowed = client.connect();
+            }
+            return command.apply(borrowed.sync());
+        } finally {
+            if (borrowed != null && borrowed.isOpen()) {
+                idleBlocking.offerFirst(borrowed);
+            }
+            blockingPermits.release();
+        }
+    }
+
+    /**
+     * Runs {@code command} with {@link #blocking} on a virtual thread.
+     *
+     * @return a future completed with its result on the tick thread
+     */
+    public @NotNull <T> CompletableFuture<T> blockingAsync(@NotNull Function<RedisCommands<String, String>, T> command) {
+        return TickExecutor.shared().supply(() -> blocking(command));
+    }
+
+    /**
+     * Hands the result of an {@link #async()} or {@link #batched()} command back to the
+     * tick thread, for callbacks that touch game state.
+     */
+    public @NotNull <T> CompletableFuture<T> onTick(@NotNull CompletionStage<T> command) {
+        return TickExecutor.shared().onTick(command);
+    }
+
+    /**
+     * @return the dedicated pub/sub connection, opened on first use
+     */
+    public synchronized @NotNull StatefulRedisPubSubConnection<String, String> pubSub() {
+        if (pubSubConnection == null) {
+            pubSubConnection = client.connectPubSub();
+        }
+        return pubSubConnection;
+    }
+
+    /**
+     * Opens a new connection using {@code codec}, e.g. for binary payloads.
+     * The caller owns the connection and must close it.
+     */
+    public @NotNull <K, V> StatefulRedisConnection<K, V> connect(@NotNull RedisCodec<K, V> codec) {
+        return client.connect(codec);
+    }
+
+    /**
+     * Opens a new pub/sub connection using {@code codec}. The caller owns the connection and must close it.
+     */
+    public @NotNull <K, V> StatefulRedisPubSubConnection<K, V> connectPubSub(@NotNull RedisCodec<K, V> codec) {
+        return client.connectPubSub(codec);
+    }
+
+    /**
+     * @return latency counters of every command completed so far, by command name
+     */
+    public @NotNull Map<String, RedisLatencyRecorder.CommandLatency> getLatencies() {
+        return latencyRecorder.snapshot();
+    }
 }
@@ -0,0 +1,178 @@
+package dev.shiftsad.core.modules.impl;
+
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.health.HealthServicesRequest;
+import com.ecwid.consul.v1.health.model.HealthService;
+import dev.shiftsad.core.discovery.ServerInfo;
+import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
+import dev.shiftsad.core.modules.Module;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps an in-memory list of the healthy servers of each watched game, refreshed
+ * with Consul blocking queries, so picking a server never goes to the network.
+ */
+@DependsOn(ConsulConfigModule.class)
+public class ServerDirectoryModule implements Module {
+
+    private static final Logger logger = Logger.getLogger(ServerDirectoryModule.class.getName());
+
+    private static final long WATCH_WAIT_SECONDS = 30;
+    private static final long WATCH_RETRY_MILLIS = 1_000;
+    private static final long WATCH_MAX_RETRY_MILLIS = 30_000;
+
+    private final ConsulConfigModule configModule;
+    private final List<String> watchedGames;
+
+    private final Map<String, GameServers> games = new ConcurrentHashMap<>();
+    private final Map<String, Thread> watchers = new ConcurrentHashMap<>();
+
+    /**
+     * @param watchedGames games to track from boot, more can be added with {@link #watchGame(String)}
+     */
+    public ServerDirectoryModule(@NotNull ConsulConfigModule configModule, @NotNull String... watchedGames) {
+        this.configModule = configModule;
+        this.watchedGames = List.of(watchedGames);
+    }
+
+    @Override
+    public void initialize() {
+        for (String game : watchedGames) {
+            watchGame(game);
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (Thread watcher : watchers.values()) {
+            watcher.interrupt();
+        }
+        watchers.clear();
+    }
+
+    @Override
+    public @NotNull BootPriority getBootPriority() {
+        return BootPriority.NORMAL;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "ServerDirectory";
+    }
+
+    /**
+     * Starts tracking {@code game}. Blocks until its first snapshot is loaded.
+     */
+    public void watchGame(@NotNull String game) {
+        if (watchers.containsKey(game)) {
+            return;
+        }
+
+        long index = refresh(game, 0);
+        Thread watcher = Thread.ofVirtual()
+                .name("server-directory-" + game)
+                .unstarted(() -> watch(game, index));
+        if (watchers.putIfAbsent(game, watcher) == null) {
+            watcher.start();
+        }
+    }
+
+    /**
+     * @return the healthy servers of {@code game}, empty if it isn't watched
+     */
+    public @NotNull List<ServerInfo> getServers(@NotNull String game) {
+        GameServers servers = games.get(game);
+        return servers == null ? List.of() : servers.list();
+    }
+
+    public @Nullable ServerInfo getServer(@NotNull String game, @NotNull String id) {
+        GameServers servers = games.get(game);
+        return servers == null ? null : servers.byId().get(id);
+    }
+
+    /**
+     * Picks a healthy server of {@code game} in round-robin order.
+     *
+     * @return a server, or {@code null} if none is healthy
+     */
+    public @Nullable ServerInfo pick(@NotNull String game) {
+        GameServers servers = games.get(game);
+        if (servers == null || servers.list().isEmpty()) {
+            return null;
+        }
+
+        int next = Math.floorMod(servers.cursor().getAndIncrement(), servers.list().size());
+        return servers.list().get(next);
+    }
+
+    private void watch(String game, long index) {
+        long retryMillis = WATCH_RETRY_MILLIS;
+
+        while (!Thread.currentThread().isInterrupted() && watchers.get(game) == Thread.currentThread()) {
+            try {
+                index = refresh(game, index);
+                retryMillis = WATCH_RETRY_MILLIS;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                logger.log(Level.WARNING, "Failed to watch servers of " + game + ", retrying in " + retryMillis + " ms", e);
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                retryMillis = Math.min(retryMillis * 2, WATCH_MAX_RETRY_MILLIS);
+            }
+        }
+    }
+
+    private long refresh(String game, long index) {
+        HealthServicesRequest request = HealthServicesRequest.newBuilder()
+                .setTag(ServerInfo.gameTag(game))
+                .setPassing(true)
+                .setQueryParams(new QueryParams(WATCH_WAIT_SECONDS, index))
+                .build();
+        // A blocking query, so not behind a circuit breaker: on failure, watch() backs off
+        // and the directory keeps serving the last list it loaded
+        Response<List<HealthService>> response = configModule.getConsulClient()
+                .getHealthServices(ServerInfo.SERVICE_NAME, request);
+
+        Long consulIndex = response.getConsulIndex();
+        long nextIndex = consulIndex == null ? 0 : consulIndex;
+        if (index != 0 && nextIndex == index) {
+            return index;
+        }
+
+        List<ServerInfo> list = new ArrayList<>();
+        Map<String, ServerInfo> byId = new HashMap<>();
+        if (response.getValue() != null) {
+            for (HealthService entry : response.getValue()) {
+                ServerInfo info = ServerInfo.fromHealthService(entry);
+                if (info != null && info.game().equals(game)) {
+                    list.add(info);
+                    byId.put(info.id(), info);
+                }
+            }
+        }
+
+        GameServers previous = games.get(game);
+        AtomicInteger cursor = previous == null ? new AtomicInteger() : previous.cursor();
+        games.put(game, new GameServers(List.copyOf(list), Map.copyOf(byId), cursor));
+
+        return nextIndex < index ? 0 : nextIndex;
+    }
+
+    private record GameServers(List<ServerInfo> list, Map<String, ServerInfo> byId, AtomicInteger cursor) {
+    }
+}
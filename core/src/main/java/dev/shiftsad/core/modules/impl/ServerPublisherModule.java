@@ -1,14 +1,50 @@
 package dev.shiftsad.core.modules.impl;
 
+import com.ecwid.consul.v1.OperationException;
+import com.ecwid.consul.v1.agent.model.NewService;
+import dev.shiftsad.core.config.ConfigBatch;
+import dev.shiftsad.core.config.ConfigBatchResult;
+import dev.shiftsad.core.discovery.ServerInfo;
 import dev.shiftsad.core.modules.BootPriority;
+import dev.shiftsad.core.modules.DependsOn;
 import dev.shiftsad.core.modules.Module;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@DependsOn(ConsulConfigModule.class)
 public class ServerPublisherModule implements Module {
 
+    private static final Logger logger = Logger.getLogger(ServerPublisherModule.class.getName());
+
+    /* Consul marks the service critical if no heartbeat arrives within this window */
+    private static final String CHECK_TTL = "15s";
+    /* Crashed servers are removed from the catalog after being critical this long */
+    private static final String DEREGISTER_AFTER = "1m";
+    private static final long HEARTBEAT_MILLIS = 5_000;
+
+    public enum Mode {
+        /* Writes name -> port into the KV store */
+        KV,
+        /* Registers an agent service with a TTL health check */
+        SERVICE
+    }
+
     private final ConsulConfigModule configModule;
+    private final Mode mode;
+    private final String game;
     private final String name;
     private final String port;
+    private final int capacity;
+    private final IntSupplier players;
+
+    private Thread heartbeat;
+    /* Player count in the current registration */
+    private int reportedPlayers;
 
     public ServerPublisherModule(
             ConsulConfigModule configModule,
@@ -16,21 +52,99 @@ public class ServerPublisherModule implements Module {
             String port
     ) {
         this.configModule = configModule;
+        this.mode = Mode.KV;
+        this.game = "";
         this.name = name;
         this.port = port;
+        this.capacity = 0;
+        this.players = () -> 0;
+    }
+
+    public ServerPublisherModule(
+            ConsulConfigModule configModule,
+            String game,
+            String name,
+            int port,
+            int capacity
+    ) {
+        this(configModule, game, name, port, capacity, () -> 0);
+    }
+
+    /**
+     * @param players online player count, registered again when it changed since the last heartbeat
+     */
+    public ServerPublisherModule(
+            ConsulConfigModule configModule,
+            String game,
+            String name,
+            int port,
+            int capacity,
+            IntSupplier players
+    ) {
+        this.configModule = configModule;
+        this.mode = Mode.SERVICE;
+        this.game = game;
+        this.name = name;
+        this.port = String.valueOf(port);
+        this.capacity = capacity;
+        this.players = players;
     }
 
     @Override
     public void initialize() {
-        if (!configModule.setConfigValue(name, port)) {
-            throw new IllegalStateException("Failed to set server config in Consul");
+        if (mode == Mode.SERVICE) {
+            registerService();
+            heartbeat = Thread.ofVirtual()
+                    .name("consul-heartbeat-" + name)
+                    .start(this::heartbeat);
+            return;
+        }
+
+        ConfigBatchResult result = configModule.execute(new ConfigBatch().set(name, port));
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Failed to set server config in Consul: " + describe(result));
         }
     }
 
+    /**
+     * Takes the server out of discovery so no more players are sent here: puts the
+     * service in maintenance, which fails its health checks, or deletes the KV entry.
+     * Consul is called on a virtual thread, so a slow Consul only holds up shutdown
+     * until the drain deadline.
+     */
+    @Override
+    public @NotNull CompletableFuture<Void> drain() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                if (mode == Mode.SERVICE) {
+                    configModule.setServiceMaintenance(name, true, "draining");
+                } else {
+                    ConfigBatchResult result = configModule.execute(new ConfigBatch().delete(name));
+                    if (!result.isSuccess()) {
+                        logger.warning("Failed to delete server config in Consul: " + describe(result));
+                    }
+                }
+                logger.info("Server " + name + " is draining");
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to mark " + name + " as draining", e);
+            }
+        }, Thread::startVirtualThread);
+    }
+
     @Override
     public void stop() {
-        if (!configModule.deleteConfigValue(name)) {
-            throw new IllegalStateException("Failed to delete server config in Consul");
+        if (mode == Mode.SERVICE) {
+            if (heartbeat != null) {
+                heartbeat.interrupt();
+                heartbeat = null;
+            }
+            configModule.deregisterService(name);
+            return;
+        }
+
+        ConfigBatchResult result = configModule.execute(new ConfigBatch().delete(name));
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Failed to delete server config in Consul: " + describe(result));
         }
     }
 
@@ -43,4 +157,84 @@ public class ServerPublisherModule implements Module {
     public @NotNull String getName() {
         return "ServerPublisher";
     }
+
+    private void registerService() {
+        int online = players.getAsInt();
+        ServerInfo info = new ServerInfo(name, game, "", Integer.parseInt(port), capacity, online);
+
+        NewService.Check check = new NewService.Check();
+        check.setTtl(CHECK_TTL);
+        check.setDeregisterCriticalServiceAfter(DEREGISTER_AFTER);
+        check.setStatus("passing");
+
+        NewService service = new NewService();
+        service.setId(name);
+        service.setName(ServerInfo.SERVICE_NAME);
+        service.setPort(info.port());
+        service.setTags(info.toTags());
+        service.setMeta(info.toMeta());
+        service.setCheck(check);
+
+        String address = System.getenv("SERVER_ADDRESS");
+        if (address != null && !address.isBlank()) {
+            service.setAddress(address);
+        }
+
+        configModule.registerService(service);
+        reportedPlayers = online;
+    }
+
+    private void heartbeat() {
+        String checkId = "service:" + name;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(HEARTBEAT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (players.getAsInt() != reportedPlayers) {
+                // Registering again also passes the check
+                tryRegister();
+                continue;
+            }
+
+            try {
+                configModule.passCheck(checkId);
+            } catch (OperationException e) {
+                if (isUnknownCheck(e)) {
+                    // The agent lost our registration, e.g. after a restart
+                    logger.warning("Service " + name + " is no longer registered, registering again");
+                    tryRegister();
+                } else {
+                    logger.log(Level.WARNING, "Failed to send heartbeat for " + name, e);
+                }
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to send heartbeat for " + name, e);
+            }
+        }
+    }
+
+    private void tryRegister() {
+        try {
+            registerService();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to register service " + name, e);
+        }
+    }
+
+    private static boolean isUnknownCheck(OperationException e) {
+        // Newer agents answer 404, older ones 500 with an "Unknown check" body
+        return e.getStatusCode() == 404
+                || (e.getStatusContent() != null && e.getStatusContent().contains("Unknown check"));
+    }
+
+    private static String describe(ConfigBatchResult result) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (ConfigBatchResult.OperationResult failure : result.failures()) {
+            joiner.add(failure.operation().key() + " (" + failure.error() + ")");
+        }
+        return joiner.toString();
+    }
 }
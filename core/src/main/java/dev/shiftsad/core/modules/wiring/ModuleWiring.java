@@ -0,0 +1,40 @@
+package dev.shiftsad.core.modules.wiring;
+
+import dev.shiftsad.core.modules.Module;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Compile-time wiring for a single {@link Module} implementation.
+ * <p>
+ * Implementations are generated by the module wiring annotation processor and
+ * replace the reflective {@code @Inject} field scan done at startup.
+ *
+ * @param <T> the module this wiring belongs to
+ */
+public interface ModuleWiring<T extends Module> {
+
+    @NotNull Class<T> moduleClass();
+
+    /**
+     * @return every module type this module needs before it can initialize,
+     * from both {@code @DependsOn} and {@code @Inject} fields
+     */
+    @NotNull List<Class<? extends Module>> dependencies();
+
+    /**
+     * @return every class and interface the module can be looked up by, most specific first
+     */
+    @NotNull List<Class<? extends Module>> supertypes();
+
+    /**
+     * Assigns every {@code @Inject} field that is still {@code null}.
+     */
+    void inject(@NotNull T module, @NotNull Resolver resolver);
+
+    @FunctionalInterface
+    interface Resolver {
+        @NotNull Module resolve(@NotNull Module target, @NotNull Class<? extends Module> type);
+    }
+}
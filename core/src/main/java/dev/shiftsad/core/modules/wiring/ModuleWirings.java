@@ -0,0 +1,40 @@
+package dev.shiftsad.core.modules.wiring;
+
+import dev.shiftsad.core.modules.Module;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the generated {@link ModuleWiring} classes found on the classpath.
+ * <p>
+ * Setting the {@code core.wiring.reflective} system property to {@code true}
+ * disables the registry, forcing the reflective path.
+ */
+public final class ModuleWirings {
+
+    private static final boolean REFLECTIVE = Boolean.getBoolean("core.wiring.reflective");
+    private static final Map<Class<?>, ModuleWiring<?>> wirings = new HashMap<>();
+
+    static {
+        if (!REFLECTIVE) {
+            for (ModuleWiring<?> wiring : ServiceLoader.load(ModuleWiring.class, ModuleWirings.class.getClassLoader())) {
+                wirings.put(wiring.moduleClass(), wiring);
+            }
+        }
+    }
+
+    private ModuleWirings() {
+        throw new UnsupportedOperationException(
+                "ModuleWirings is a utility class and should not be instantiated"
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends Module> @Nullable ModuleWiring<T> forClass(@NotNull Class<T> moduleClass) {
+        return (ModuleWiring<T>) wirings.get(moduleClass);
+    }
+}
@@ -0,0 +1,25 @@
+package dev.shiftsad.core.persistence;
+
+/**
+ * @param pending           writes waiting to be flushed
+ * @param written           entity writes flushed to the database
+ * @param merged            writes folded into a pending write of the same entity
+ * @param failed            writes dropped after every retry failed
+ * @param flushes           batches flushed
+ * @param meanBatchSize     mean number of writes per batch
+ * @param maxBatchSize      largest batch flushed
+ * @param meanFlushMicros   mean time to flush a batch, commit included
+ * @param maxFlushMicros    slowest batch flushed
+ */
+public record PersistenceStats(
+        int pending,
+        long written,
+        long merged,
+        long failed,
+        long flushes,
+        long meanBatchSize,
+        long maxBatchSize,
+        long meanFlushMicros,
+        long maxFlushMicros
+) {
+}
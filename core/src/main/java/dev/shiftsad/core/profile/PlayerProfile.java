@@ -0,0 +1,57 @@
+package dev.shiftsad.core.profile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable view of a player's profile, stored in Redis as the hash {@code profile:<uuid>}.
+ * A player without a stored profile has an empty one.
+ */
+public record PlayerProfile(@NotNull UUID id, @NotNull Map<String, String> fields) {
+
+    public PlayerProfile {
+        fields = Map.copyOf(fields);
+    }
+
+    public static @NotNull PlayerProfile empty(@NotNull UUID id) {
+        return new PlayerProfile(id, Map.of());
+    }
+
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+
+    public @Nullable String get(@NotNull String field) {
+        return fields.get(field);
+    }
+
+    public @NotNull String get(@NotNull String field, @NotNull String fallback) {
+        return fields.getOrDefault(field, fallback);
+    }
+
+    public long getLong(@NotNull String field, long fallback) {
+        String value = fields.get(field);
+        if (value == null) {
+            return fallback;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * @return a copy of this profile with {@code field} set to {@code value}
+     */
+    public @NotNull PlayerProfile with(@NotNull String field, @NotNull String value) {
+        Map<String, String> copy = new HashMap<>(fields);
+        copy.put(field, value);
+        return new PlayerProfile(id, copy);
+    }
+}
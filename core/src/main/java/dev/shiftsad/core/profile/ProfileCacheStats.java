@@ -0,0 +1,30 @@
+package dev.shiftsad.core.profile;
+
+/**
+ * @param hits              lookups answered by the near cache
+ * @param misses            lookups that had to go to Redis
+ * @param loads             Redis loads completed
+ * @param loadFailures      Redis loads that failed
+ * @param meanLoadMicros    mean time of a Redis load
+ * @param maxLoadMicros     slowest Redis load seen
+ * @param size              entries currently in the near cache
+ * @param evictions         entries dropped to make room for new ones
+ * @param invalidations     entries invalidated by writes on other servers
+ */
+public record ProfileCacheStats(
+        long hits,
+        long misses,
+        long loads,
+        long loadFailures,
+        long meanLoadMicros,
+        long maxLoadMicros,
+        int size,
+        long evictions,
+        long invalidations
+) {
+
+    public double hitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,86 @@
+package dev.shiftsad.core.redis;
+
+import dev.shiftsad.core.metrics.Histogram;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import io.lettuce.core.metrics.CommandLatencyRecorder;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-command latency counters fed by Lettuce for every completed command, also
+ * recorded into the shared {@link MetricsRegistry}. Recording is a few atomic adds,
+ * with no allocation once a command type has been seen.
+ */
+public final class RedisLatencyRecorder implements CommandLatencyRecorder {
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param count       commands completed
+     * @param meanMicros  mean time from dispatch to completion
+     * @param maxMicros   slowest completion seen
+     */
+    public record CommandLatency(long count, long meanMicros, long maxMicros) {
+    }
+
+    @Override
+    public void recordCommandLatency(
+            SocketAddress local,
+            SocketAddress remote,
+            ProtocolKeyword commandType,
+            long firstResponseLatency,
+            long completionLatency
+    ) {
+        Counter counter = counters.get(commandType.toString());
+        if (counter == null) {
+            counter = counters.computeIfAbsent(commandType.toString(), Counter::new);
+        }
+        counter.histogram.record(completionLatency);
+        counter.count.increment();
+        counter.totalNanos.add(completionLatency);
+        counter.maxNanos.accumulateAndGet(completionLatency, Math::max);
+    }
+
+    /**
+     * @return the counters of every command seen so far, by command name
+     */
+    public @NotNull Map<String, CommandLatency> snapshot() {
+        Map<String, CommandLatency> snapshot = new TreeMap<>();
+        counters.forEach((command, counter) -> {
+            long count = counter.count.sum();
+            long mean = count == 0 ? 0 : counter.totalNanos.sum() / count;
+            snapshot.put(command, new CommandLatency(
+                    count,
+                    TimeUnit.NANOSECONDS.toMicros(mean),
+                    TimeUnit.NANOSECONDS.toMicros(counter.maxNanos.get())
+            ));
+        });
+        return snapshot;
+    }
+
+    public void reset() {
+        counters.clear();
+    }
+
+    private static final class Counter {
+        private final Histogram histogram;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Counter(String command) {
+            this.histogram = MetricsRegistry.shared().histogram(
+                    "gameserver_redis_command_seconds", "Redis command latency, by command",
+                    MetricsRegistry.NANOS_TO_SECONDS, "command", command
+            );
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package dev.shiftsad.core.resilience;
+
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Latency-aware circuit breaker over a count based window of recent calls.
+ * <p>
+ * A call counts as bad when it fails or takes longer than the policy's slow call
+ * threshold, so a backend that slows down trips the breaker before callers pile up
+ * behind its timeouts. Once open, calls are rejected for the open duration, then a
+ * few probes are let through: the breaker closes if they all succeed and opens
+ * again otherwise.
+ */
+public final class CircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger(CircuitBreaker.class.getName());
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final ResiliencePolicy policy;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    /* Ring of the last windowSize outcomes, true for bad ones */
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int badCount;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(@NotNull String name, @NotNull ResiliencePolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.slowCallNanos = policy.slowCallThreshold().toNanos();
+        this.openNanos = policy.openDuration().toNanos();
+        this.window = new boolean[policy.windowSize()];
+
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        metrics.gauge("gameserver_circuit_state", "Circuit breaker state: 0 closed, 1 open, 2 half open",
+                () -> getState().ordinal(), "breaker", name);
+        metrics.counter("gameserver_circuit_opened_total", "Times a circuit breaker opened",
+                opened::sum, "breaker", name);
+    }
+
+    /**
+     * @return whether a call may go through now; every permitted call must be followed
+     * by {@link #onResult(long, boolean)}
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED -> {
+                return true;
+            }
+            case OPEN -> {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probesStarted = 0;
+                probesSucceeded = 0;
+            }
+        }
+
+        if (probesStarted >= policy.halfOpenCalls()) {
+            return false;
+        }
+        probesStarted++;
+        return true;
+    }
+
+    /**
+     * Records the outcome of a call permitted by {@link #tryAcquire()}.
+     *
+     * @param elapsedNanos how long the call took, or how long the caller waited before giving up
+     */
+    public synchronized void onResult(long elapsedNanos, boolean failed) {
+        boolean bad = failed || elapsedNanos > slowCallNanos;
+        switch (state) {
+            case CLOSED -> {
+                record(bad);
+                if (windowCount >= policy.minimumCalls() && badCount >= policy.failureRateThreshold() * windowCount) {
+                    open();
+                }
+            }
+            case HALF_OPEN -> {
+                if (bad) {
+                    open();
+                } else if (++probesSucceeded >= policy.halfOpenCalls()) {
+                    close();
+                }
+            }
+            case OPEN -> {
+                // A call started before the breaker opened, it no longer matters
+            }
+        }
+    }
+
+    public synchronized @NotNull State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    private void record(boolean bad) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                badCount--;
+            }
+        } else {
+            windowCount++;
+        }
+
+        window[windowIndex] = bad;
+        if (bad) {
+            badCount++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        if (state == State.CLOSED) {
+            logger.warning("Circuit breaker " + name + " opened, rejecting calls for " + policy.openDuration().toMillis() + " ms");
+        }
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        opened.increment();
+    }
+
+    private void close() {
+        logger.info("Circuit breaker " + name + " closed");
+        state = State.CLOSED;
+        windowIndex = 0;
+        windowCount = 0;
+        badCount = 0;
+    }
+}
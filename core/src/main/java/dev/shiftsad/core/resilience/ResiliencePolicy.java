@@ -0,0 +1,73 @@
+package dev.shiftsad.core.resilience;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Limits applied to the calls made through a {@link ResilientEndpoint}.
+ *
+ * @param timeout              how long a caller waits for a call before giving up on it
+ * @param slowCallThreshold    calls slower than this count against the breaker like failures
+ * @param failureRateThreshold share of failed or slow calls in the window that opens the breaker
+ * @param windowSize           number of recent calls the failure rate is computed over
+ * @param minimumCalls         calls needed in the window before the breaker may open
+ * @param openDuration         how long an open breaker rejects calls before letting probes through
+ * @param halfOpenCalls        probe calls that must all succeed for the breaker to close again
+ * @param maxConcurrentCalls   calls allowed in flight at once, including ones the caller gave up on
+ * @param hedgeDelay           when set, idempotent calls still running after this are sent a second time
+ * @param fallbackCapacity     number of last known good results kept for fallback
+ */
+public record ResiliencePolicy(
+        @NotNull Duration timeout,
+        @NotNull Duration slowCallThreshold,
+        double failureRateThreshold,
+        int windowSize,
+        int minimumCalls,
+        @NotNull Duration openDuration,
+        int halfOpenCalls,
+        int maxConcurrentCalls,
+        @Nullable Duration hedgeDelay,
+        int fallbackCapacity
+) {
+
+    public ResiliencePolicy {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("Failure rate threshold must be in (0, 1]");
+        }
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Minimum calls must be between 1 and the window size");
+        }
+        if (halfOpenCalls < 1 || maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("Half open calls and max concurrent calls must be positive");
+        }
+        if (fallbackCapacity < 0) {
+            throw new IllegalArgumentException("Fallback capacity can't be negative");
+        }
+    }
+
+    /**
+     * A policy that opens after half of the last 50 calls failed or took more than half
+     * of {@code timeout}, and probes again after 5 seconds. Calls aren't hedged.
+     */
+    public static @NotNull ResiliencePolicy defaults(@NotNull Duration timeout) {
+        return new ResiliencePolicy(
+                timeout, timeout.dividedBy(2), 0.5, 50, 10, Duration.ofSeconds(5), 3, 64, null, 1024
+        );
+    }
+
+    public @NotNull ResiliencePolicy withHedgeDelay(@Nullable Duration hedgeDelay) {
+        return new ResiliencePolicy(
+                timeout, slowCallThreshold, failureRateThreshold, windowSize, minimumCalls,
+                openDuration, halfOpenCalls, maxConcurrentCalls, hedgeDelay, fallbackCapacity
+        );
+    }
+
+    public @NotNull ResiliencePolicy withMaxConcurrentCalls(int maxConcurrentCalls) {
+        return new ResiliencePolicy(
+                timeout, slowCallThreshold, failureRateThreshold, windowSize, minimumCalls,
+                openDuration, halfOpenCalls, maxConcurrentCalls, hedgeDelay, fallbackCapacity
+        );
+    }
+}
@@ -0,0 +1,195 @@
+package dev.shiftsad.core.resilience;
+
+import dev.shiftsad.core.exceptions.ServiceUnavailableException;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Calls to one operation of a backing service, guarded by a {@link CircuitBreaker},
+ * a bulkhead bounding how many calls are in flight at once, and a timeout.
+ * <p>
+ * Idempotent calls can be hedged: if the first attempt hasn't completed after the
+ * policy's hedge delay, a second one is sent and whichever completes first wins.
+ * Calls given a fallback key remember their last result under it, and answer with
+ * it when the breaker is open, the bulkhead is full or the call fails, so reads keep
+ * working with slightly stale data while the service is unhealthy.
+ */
+public final class ResilientEndpoint {
+
+    private static final Executor VIRTUAL_THREADS = Thread::startVirtualThread;
+    private static final Object NULL_RESULT = new Object();
+
+    private final String name;
+    private final ResiliencePolicy policy;
+    private final CircuitBreaker breaker;
+    private final Semaphore permits;
+    private final Map<String, Object> lastKnownGood;
+
+    private final LongAdder rejectedOpen = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ResilientEndpoint(@NotNull String name, @NotNull ResiliencePolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.breaker = new CircuitBreaker(name, policy);
+        this.permits = new Semaphore(policy.maxConcurrentCalls());
+        this.lastKnownGood = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > policy.fallbackCapacity();
+            }
+        });
+
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        metrics.counter("gameserver_circuit_rejected_total", "Calls rejected without reaching the service",
+                rejectedOpen::sum, "breaker", name, "reason", "open");
+        metrics.counter("gameserver_circuit_rejected_total", "Calls rejected without reaching the service",
+                rejectedFull::sum, "breaker", name, "reason", "bulkhead");
+        metrics.counter("gameserver_circuit_timeouts_total", "Calls abandoned after the timeout",
+                timeouts::sum, "breaker", name);
+        metrics.counter("gameserver_circuit_hedges_total", "Second attempts sent for slow idempotent calls",
+                hedges::sum, "breaker", name);
+        metrics.counter("gameserver_circuit_fallbacks_total", "Calls answered with a last known good result",
+                fallbacks::sum, "breaker", name);
+        metrics.gauge("gameserver_bulkhead_in_flight", "Calls currently in flight",
+                () -> policy.maxConcurrentCalls() - permits.availablePermits(), "breaker", name);
+    }
+
+    /**
+     * Runs a blocking call on a virtual thread and waits for it for at most the policy's
+     * timeout. Runtime exceptions thrown by the call are rethrown as they are.
+     *
+     * @param fallbackKey identifies the result for fallback, {@code null} to never fall back
+     * @param idempotent  whether the call may be hedged
+     * @throws ServiceUnavailableException if the call was rejected or timed out without a fallback
+     */
+    public <T> T call(@Nullable String fallbackKey, boolean idempotent, @NotNull Supplier<T> call) {
+        Supplier<CompletableFuture<T>> attempt = () -> CompletableFuture.supplyAsync(call, VIRTUAL_THREADS);
+        try {
+            return callAsync(fallbackKey, attempt, idempotent ? attempt : null).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends an asynchronous call. The future completes exceptionally with a
+     * {@link ServiceUnavailableException} if the call was rejected or timed out
+     * without a fallback, or with the call's own error if it failed without one.
+     *
+     * @param fallbackKey identifies the result for fallback, {@code null} to never fall back
+     * @param hedge       sends the same call again, e.g. on another connection; {@code null} to never hedge
+     */
+    public <T> @NotNull CompletableFuture<T> callAsync(
+            @Nullable String fallbackKey,
+            @NotNull Supplier<? extends CompletionStage<T>> call,
+            @Nullable Supplier<? extends CompletionStage<T>> hedge
+    ) {
+        if (!permits.tryAcquire()) {
+            rejectedFull.increment();
+            return fallback(fallbackKey, new ServiceUnavailableException(name + " has too many calls in flight"));
+        }
+        if (!breaker.tryAcquire()) {
+            permits.release();
+            rejectedOpen.increment();
+            return fallback(fallbackKey, new ServiceUnavailableException(name + " circuit is open"));
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        attempt(call, result, pending);
+
+        if (hedge != null && policy.hedgeDelay() != null) {
+            Executor delayed = CompletableFuture.delayedExecutor(policy.hedgeDelay().toNanos(), TimeUnit.NANOSECONDS);
+            delayed.execute(() -> {
+                // Only hedge when there's room for it, a hedge must never be what fills the bulkhead
+                if (result.isDone() || !permits.tryAcquire()) {
+                    return;
+                }
+                hedges.increment();
+                pending.incrementAndGet();
+                attempt(hedge, result, pending);
+            });
+        }
+
+        return result.orTimeout(policy.timeout().toNanos(), TimeUnit.NANOSECONDS).handle((value, error) -> {
+            long elapsed = System.nanoTime() - start;
+            breaker.onResult(elapsed, error != null);
+            if (error == null) {
+                if (fallbackKey != null && policy.fallbackCapacity() > 0) {
+                    lastKnownGood.put(fallbackKey, value == null ? NULL_RESULT : value);
+                }
+                return CompletableFuture.completedFuture(value);
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                timeouts.increment();
+                cause = new ServiceUnavailableException(
+                        name + " timed out after " + policy.timeout().toMillis() + " ms", cause
+                );
+            }
+            return this.<T>fallback(fallbackKey, cause);
+        }).thenCompose(future -> future);
+    }
+
+    public @NotNull CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * Starts an attempt with a bulkhead permit already held. The permit is only given
+     * back once the attempt really ends, so calls the caller gave up on still count.
+     */
+    private <T> void attempt(Supplier<? extends CompletionStage<T>> call, CompletableFuture<T> result, AtomicInteger pending) {
+        CompletionStage<T> stage;
+        try {
+            stage = call.get();
+        } catch (Throwable e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
+
+        stage.whenComplete((value, error) -> {
+            permits.release();
+            if (error == null) {
+                result.complete(value);
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> fallback(@Nullable String fallbackKey, Throwable error) {
+        Object value = fallbackKey == null ? null : lastKnownGood.get(fallbackKey);
+        if (value == null) {
+            return CompletableFuture.failedFuture(error);
+        }
+
+        fallbacks.increment();
+        return CompletableFuture.completedFuture(value == NULL_RESULT ? null : (T) value);
+    }
+}
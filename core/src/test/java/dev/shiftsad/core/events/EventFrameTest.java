@@ -0,0 +1,70 @@
+package dev.shiftsad.core.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventFrameTest {
+
+    private static final EventCodec<String> STRINGS = new EventCodec<>() {
+        @Override
+        public void write(String event, EventBuffer buffer) {
+            buffer.writeString(event);
+            if (event.equals("bad")) {
+                throw new IllegalArgumentException("Can't encode " + event);
+            }
+        }
+
+        @Override
+        public String read(EventBuffer buffer) {
+            return buffer.readString();
+        }
+    };
+
+    @Test
+    void decodesWhatWasEncoded() {
+        EventFrameEncoder encoder = new EventFrameEncoder(7, 16);
+        encoder.add(1, STRINGS, "first");
+        encoder.add(2, STRINGS, "unknown type");
+        encoder.add(1, STRINGS, "second");
+
+        EventFrameDecoder decoder = new EventFrameDecoder();
+        assertEquals(7, decoder.open(encoder.finish()));
+        assertEquals(List.of("first", "second"), readAll(decoder));
+        assertTrue(encoder.isEmpty());
+    }
+
+    @Test
+    void dropsEventThatFailedToEncode() {
+        EventFrameEncoder encoder = new EventFrameEncoder(7, 16);
+        encoder.add(1, STRINGS, "first");
+        assertThrows(IllegalArgumentException.class, () -> encoder.add(1, STRINGS, "bad"));
+        encoder.add(1, STRINGS, "second");
+
+        EventFrameDecoder decoder = new EventFrameDecoder();
+        decoder.open(encoder.finish());
+        assertEquals(List.of("first", "second"), readAll(decoder));
+    }
+
+    @Test
+    void startsNewFrameAfterFinish() {
+        EventFrameEncoder encoder = new EventFrameEncoder(7, 16);
+        encoder.add(1, STRINGS, "first");
+        encoder.finish();
+        encoder.add(1, STRINGS, "second");
+
+        EventFrameDecoder decoder = new EventFrameDecoder();
+        decoder.open(encoder.finish());
+        assertEquals(List.of("second"), readAll(decoder));
+        assertThrows(IllegalStateException.class, encoder::finish);
+    }
+
+    private static List<String> readAll(EventFrameDecoder decoder) {
+        List<String> events = new ArrayList<>();
+        decoder.readEvents(id -> id == 1 ? STRINGS : null, (event, id) -> events.add((String) event));
+        return events;
+    }
+}
@@ -0,0 +1,172 @@
+package dev.shiftsad.core.handoff;
+
+import dev.shiftsad.core.events.EventBuffer;
+import dev.shiftsad.core.events.EventCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotCodecTest {
+
+    private static final PlayerSnapshot SNAPSHOT = new PlayerSnapshot(
+            UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7"),
+            "lobby-1",
+            1_700_000_000_000L,
+            List.of(
+                    new Inventory(List.of(new Item("diamond_sword", 1), new Item("cooked_beef", 32))),
+                    new Effects(List.of(new Effect("speed", 1, 600), new Effect("regeneration", 0, 100))),
+                    new Position(12.5, 64, -3.25, 90, -15)
+            )
+    );
+
+    @Test
+    void roundTripsSnapshot() {
+        SnapshotCodec codec = codec(true);
+
+        PlayerSnapshot decoded = codec.decode(codec.encode(SNAPSHOT));
+
+        assertEquals(SNAPSHOT, decoded);
+        assertEquals(new Position(12.5, 64, -3.25, 90, -15), decoded.get(Position.class));
+        assertEquals(2, decoded.get(Inventory.class).items().size());
+    }
+
+    @Test
+    void skipsUnknownSections() {
+        byte[] data = codec(true).encode(SNAPSHOT);
+
+        PlayerSnapshot decoded = codec(false).decode(data);
+
+        assertNull(decoded.get(Effects.class));
+        assertEquals(SNAPSHOT.get(Inventory.class), decoded.get(Inventory.class));
+        assertEquals(SNAPSHOT.get(Position.class), decoded.get(Position.class));
+    }
+
+    @Test
+    void rejectsOtherFormatVersion() {
+        SnapshotCodec codec = codec(true);
+        byte[] data = codec.encode(SNAPSHOT);
+        data[0] = SnapshotCodec.FORMAT_VERSION + 1;
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> codec.decode(data));
+        assertEquals("Unsupported snapshot format version " + (SnapshotCodec.FORMAT_VERSION + 1), error.getMessage());
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        SnapshotCodec codec = codec(true);
+        byte[] data = codec.encode(SNAPSHOT);
+
+        // Whether cut in the header, between sections or inside one
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IllegalStateException.class, () -> codec.decode(truncated), "Truncated to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void rejectsUnregisteredSection() {
+        SnapshotCodec codec = new SnapshotCodec();
+
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(SNAPSHOT));
+    }
+
+    @Test
+    void rejectsDuplicateSectionId() {
+        SnapshotCodec codec = new SnapshotCodec();
+        codec.register(1, Position.class, new PositionCodec());
+
+        assertThrows(IllegalStateException.class, () -> codec.register(1, Position.class, new PositionCodec()));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.register(SnapshotCodec.MAX_SECTION_TYPES, Position.class, new PositionCodec()));
+    }
+
+    private static SnapshotCodec codec(boolean withEffects) {
+        SnapshotCodec codec = new SnapshotCodec();
+        codec.register(0, Inventory.class, new InventoryCodec());
+        if (withEffects) {
+            codec.register(1, Effects.class, new EffectsCodec());
+        }
+        codec.register(2, Position.class, new PositionCodec());
+        return codec;
+    }
+
+    record Item(String material, int amount) {
+    }
+
+    record Inventory(List<Item> items) {
+    }
+
+    record Effect(String type, int amplifier, int durationTicks) {
+    }
+
+    record Effects(List<Effect> effects) {
+    }
+
+    record Position(double x, double y, double z, double yaw, double pitch) {
+    }
+
+    static final class InventoryCodec implements EventCodec<Inventory> {
+        @Override
+        public void write(Inventory inventory, EventBuffer buffer) {
+            buffer.writeVarInt(inventory.items().size());
+            for (Item item : inventory.items()) {
+                buffer.writeString(item.material());
+                buffer.writeVarInt(item.amount());
+            }
+        }
+
+        @Override
+        public Inventory read(EventBuffer buffer) {
+            int count = buffer.readVarInt();
+            List<Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(new Item(buffer.readString(), buffer.readVarInt()));
+            }
+            return new Inventory(items);
+        }
+    }
+
+    static final class EffectsCodec implements EventCodec<Effects> {
+        @Override
+        public void write(Effects effects, EventBuffer buffer) {
+            buffer.writeVarInt(effects.effects().size());
+            for (Effect effect : effects.effects()) {
+                buffer.writeString(effect.type());
+                buffer.writeByte(effect.amplifier());
+                buffer.writeInt(effect.durationTicks());
+            }
+        }
+
+        @Override
+        public Effects read(EventBuffer buffer) {
+            int count = buffer.readVarInt();
+            List<Effect> effects = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                effects.add(new Effect(buffer.readString(), buffer.readByte(), buffer.readInt()));
+            }
+            return new Effects(effects);
+        }
+    }
+
+    static final class PositionCodec implements EventCodec<Position> {
+        @Override
+        public void write(Position position, EventBuffer buffer) {
+            buffer.writeDouble(position.x());
+            buffer.writeDouble(position.y());
+            buffer.writeDouble(position.z());
+            buffer.writeDouble(position.yaw());
+            buffer.writeDouble(position.pitch());
+        }
+
+        @Override
+        public Position read(EventBuffer buffer) {
+            return new Position(buffer.readDouble(), buffer.readDouble(), buffer.readDouble(),
+                    buffer.readDouble(), buffer.readDouble());
+        }
+    }
+}
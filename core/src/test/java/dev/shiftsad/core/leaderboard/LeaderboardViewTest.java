@@ -0,0 +1,124 @@
+package dev.shiftsad.core.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardViewTest {
+
+    private static final Comparator<Map.Entry<UUID, Double>> ORDER =
+            Map.Entry.<UUID, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    @Test
+    void matchesWholeBoardUnderRandomChanges() {
+        SplittableRandom random = new SplittableRandom(42);
+        UUID[] players = new UUID[2_000];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        Map<UUID, Double> board = new HashMap<>();
+        LeaderboardView view = new LeaderboardView(10);
+        long version = 0;
+        view.load(Map.of(), true, version);
+
+        for (int step = 0; step < 30_000; step++) {
+            UUID player = players[random.nextInt(players.length)];
+            // Mostly wins, sometimes a penalty that can drop a player out of the view
+            double delta = random.nextInt(10) == 0 ? -random.nextDouble(50) : random.nextDouble(10);
+            double score = board.merge(player, delta, Double::sum);
+            view.apply(++version, player, score);
+
+            if (view.needsReload()) {
+                List<Map.Entry<UUID, Double>> ranked = ranked(board);
+                Map<UUID, Double> top = new HashMap<>();
+                ranked.stream().limit(view.capacity()).forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+                view.load(top, ranked.size() <= view.capacity(), version);
+            }
+
+            if (step % 100 == 0) {
+                assertMatches(board, view);
+            }
+        }
+        assertMatches(board, view);
+    }
+
+    @Test
+    void appliesOnlyChangesNewerThanLoad() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        LeaderboardView view = new LeaderboardView(5);
+
+        view.startLoad();
+        view.apply(4, first, 10); // Published before the read, already in it
+        view.apply(5, first, 20); // Also in it
+        view.apply(6, second, 30); // Published after the read
+        view.load(Map.of(first, 20.0), true, 5);
+
+        assertEquals(6, view.version());
+        assertEquals(List.of(
+                new LeaderboardEntry(second, 1, 30),
+                new LeaderboardEntry(first, 2, 20)
+        ), view.top(5));
+    }
+
+    @Test
+    void ignoresChangesOlderThanView() {
+        UUID player = new UUID(0, 1);
+        LeaderboardView view = new LeaderboardView(5);
+        view.load(Map.of(player, 20.0), true, 7);
+
+        view.apply(6, player, 10);
+
+        assertEquals(new LeaderboardEntry(player, 1, 20), view.entry(player));
+    }
+
+    @Test
+    void cancelledLoadKeepsHeldBackChanges() {
+        UUID player = new UUID(0, 1);
+        LeaderboardView view = new LeaderboardView(5);
+        view.load(Map.of(player, 20.0), true, 1);
+
+        view.startLoad();
+        view.apply(2, player, 25);
+        assertEquals(new LeaderboardEntry(player, 1, 20), view.entry(player));
+        view.cancelLoad();
+
+        assertEquals(new LeaderboardEntry(player, 1, 25), view.entry(player));
+    }
+
+    @Test
+    void ignoresChangesBeforeFirstLoad() {
+        LeaderboardView view = new LeaderboardView(5);
+        view.apply(1, new UUID(0, 1), 10);
+
+        assertFalse(view.isLoaded());
+        assertEquals(List.of(), view.top(5));
+    }
+
+    private static List<Map.Entry<UUID, Double>> ranked(Map<UUID, Double> board) {
+        List<Map.Entry<UUID, Double>> ranked = new ArrayList<>(board.entrySet());
+        ranked.sort(ORDER);
+        return ranked;
+    }
+
+    private static void assertMatches(Map<UUID, Double> board, LeaderboardView view) {
+        List<Map.Entry<UUID, Double>> ranked = ranked(board);
+        List<LeaderboardEntry> top = view.top(10);
+        assertEquals(Math.min(10, ranked.size()), top.size());
+        for (int i = 0; i < top.size(); i++) {
+            Map.Entry<UUID, Double> expected = ranked.get(i);
+            assertEquals(new LeaderboardEntry(expected.getKey(), i + 1, expected.getValue()), top.get(i));
+        }
+
+        for (int i = 0; i < ranked.size(); i++) {
+            LeaderboardEntry entry = view.entry(ranked.get(i).getKey());
+            if (entry != null) {
+                assertEquals(i + 1, entry.rank());
+                assertEquals(ranked.get(i).getValue(), entry.score());
+            }
+        }
+    }
+}
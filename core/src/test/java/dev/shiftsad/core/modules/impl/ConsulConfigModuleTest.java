@@ -0,0 +1,91 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.testing.ConsulStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsulConfigModuleTest {
+
+    private ConsulStub stub;
+    private ConsulConfigModule module;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new ConsulStub(Integer.parseInt(System.getenv("CONSUL_PORT")), Map.of(
+                "game/tag/radius", "2.5",
+                "game/tag/rounds", "7",
+                "game/tag/enabled", "true",
+                "game/tag/name", "Tag",
+                "other/key", "ignored"
+        ));
+        stub.start();
+        module = new ConsulConfigModule();
+        module.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        module.stop();
+        stub.stop();
+    }
+
+    @Test
+    void loadsWatchedPrefix() throws Exception {
+        module.watchPrefix("game/tag/");
+
+        assertEquals(Map.of(
+                "radius", "2.5",
+                "rounds", "7",
+                "enabled", "true",
+                "name", "Tag"
+        ), module.getConfigValuesByPrefix("game/tag/"));
+        awaitRequests(2); // The load, then the watcher's blocking query
+    }
+
+    @Test
+    void notifiesListenersOfChanges() throws Exception {
+        module.watchPrefix("game/tag/");
+        CompletableFuture<List<String>> change = new CompletableFuture<>();
+        module.addListener("game/tag/", (key, oldValue, newValue) -> change.complete(List.of(key, oldValue, newValue)));
+        awaitRequests(2);
+
+        stub.put("game/tag/rounds", "9");
+
+        assertEquals(List.of("game/tag/rounds", "7", "9"), change.get(5, TimeUnit.SECONDS));
+        assertEquals(9, module.getInt("game/tag/rounds", 0));
+    }
+
+    @Test
+    void typedGettersReadTheCache() throws Exception {
+        module.watchPrefix("game/tag/");
+        awaitRequests(2);
+        int requests = stub.requestCount();
+
+        assertEquals(2.5, module.getDouble("game/tag/radius", 0));
+        assertEquals(7, module.getInt("game/tag/rounds", 0));
+        assertEquals(7L, module.getLong("game/tag/rounds", 0));
+        assertTrue(module.getBoolean("game/tag/enabled", false));
+        assertEquals("Tag", module.getString("game/tag/name", ""));
+        assertEquals("Tag", module.getConfigValue("game/tag/name"));
+        assertEquals(7, module.getInt("game/tag/missing", 7));
+        assertEquals(7, module.getInt("game/tag/name", 7)); // Not a number
+
+        assertEquals(requests, stub.requestCount());
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stub.requestCount() < count) {
+            assertTrue(System.nanoTime() < deadline, "Expected " + count + " requests, got " + stub.requestCount());
+            Thread.sleep(10);
+        }
+    }
+}
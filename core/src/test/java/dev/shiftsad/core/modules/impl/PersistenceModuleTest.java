@@ -0,0 +1,191 @@
+package dev.shiftsad.core.modules.impl;
+
+import dev.shiftsad.core.persistence.PersistenceStats;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceModuleTest {
+
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private String url;
+    private Connection connection;
+    private PersistenceModule module;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // Kept open by the connection so rows can be checked after the module stops
+        url = "jdbc:h2:mem:persistence" + databases.incrementAndGet();
+        connection = DriverManager.getConnection(url);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (module != null) {
+            module.stop();
+        }
+        connection.close();
+    }
+
+    @Test
+    void writesEverythingQueuedBeforeStop() throws SQLException {
+        start(50, Duration.ofMinutes(1));
+        for (long id = 1; id <= 120; id++) {
+            module.save(new Score(id, "player" + id, (int) id));
+        }
+        module.save(new Player("inserted"));
+        module.stop(); // Flushes everything queued
+
+        assertEquals(120, count("Score"));
+        assertEquals(1, count("Player"));
+        PersistenceStats stats = module.getStats();
+        assertEquals(121, stats.written());
+        assertEquals(0, stats.failed());
+        assertTrue(stats.maxBatchSize() <= 50);
+    }
+
+    @Test
+    void flushesOnInterval() throws Exception {
+        start(100, Duration.ofMillis(20));
+        module.save(new Score(1, "player", 1));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (module.getStats().written() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, count("Score"));
+    }
+
+    @Test
+    void mergesQueuedWritesToSameEntity() throws SQLException {
+        start(100, Duration.ofMinutes(1));
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO Score (id, name, points) VALUES (2, 'deleted', 0)");
+        }
+        module.save(new Score(1, "player", 1));
+        module.save(new Score(1, "player", 2));
+        module.save(new Score(1, "player", 3));
+        module.save(new Score(2, "deleted", 1));
+        module.delete(new Score(2, "deleted", 1));
+        module.stop(); // Flushes everything queued
+
+        assertEquals(3, module.getStats().merged());
+        assertEquals(2, module.getStats().written());
+        assertEquals(1, count("Score"));
+        assertEquals(3, points(1));
+    }
+
+    @Test
+    void dropsOnlyTheBadWriteOfFailedBatch() throws SQLException {
+        start(100, Duration.ofMinutes(1));
+        module.save(new Score(1, "first", 1));
+        module.save(new Score(2, null, 1)); // Violates the not null constraint
+        module.save(new Score(3, "third", 1));
+        module.stop(); // Flushes everything queued
+
+        assertEquals(2, count("Score"));
+        assertEquals(2, module.getStats().written());
+        assertEquals(1, module.getStats().failed());
+    }
+
+    @Test
+    void rejectsWritesOnceStopped() {
+        start(100, Duration.ofMinutes(1));
+        module.stop();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> module.trySave(new Score(1, "player", 1)));
+        assertEquals("PersistenceModule isn't running", error.getMessage());
+    }
+
+    @Test
+    void rejectsWritesBeforeInitialize() {
+        PersistenceModule uninitialized = new PersistenceModule(Map.of(), Score.class);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> uninitialized.save(new Score(1, "player", 1)));
+        assertEquals("PersistenceModule isn't running", error.getMessage());
+    }
+
+    private void start(int batchSize, Duration flushInterval) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.JAKARTA_JDBC_URL, url);
+        properties.put(AvailableSettings.HBM2DDL_AUTO, "create");
+        module = new PersistenceModule(properties, List.of(Score.class, Player.class), batchSize, 1_000, flushInterval);
+        module.initialize();
+    }
+
+    private long count(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private int points(long id) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT points FROM Score WHERE id = " + id)) {
+            assertTrue(result.next());
+            return result.getInt(1);
+        }
+    }
+
+    @Entity(name = "Score")
+    public static class Score {
+
+        @Id
+        private Long id;
+
+        @Column(nullable = false)
+        private String name;
+
+        private int points;
+
+        protected Score() {
+        }
+
+        Score(long id, String name, int points) {
+            this.id = id;
+            this.name = name;
+            this.points = points;
+        }
+    }
+
+    @Entity(name = "Player")
+    public static class Player {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        private String name;
+
+        protected Player() {
+        }
+
+        Player(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package dev.shiftsad.core.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    // Opens once half of the last 4 calls were bad, probes again after 100 ms
+    private static final ResiliencePolicy POLICY = new ResiliencePolicy(
+            Duration.ofSeconds(1), Duration.ofMillis(50), 0.5, 4, 4, Duration.ofMillis(100), 2, 8, null, 16
+    );
+
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+    private static final long SLOW = Duration.ofMillis(100).toNanos();
+
+    @Test
+    void opensAfterFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test.failures", POLICY);
+        call(breaker, FAST, false);
+        call(breaker, FAST, true);
+        call(breaker, FAST, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState()); // Not enough calls yet
+
+        call(breaker, FAST, false);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void opensAfterSlowCalls() {
+        CircuitBreaker breaker = new CircuitBreaker("test.slow", POLICY);
+        call(breaker, FAST, false);
+        call(breaker, FAST, false);
+        call(breaker, SLOW, false);
+        call(breaker, SLOW, false);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void staysClosedBelowThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker("test.healthy", POLICY);
+        for (int i = 0; i < 20; i++) {
+            call(breaker, i % 4 == 0 ? SLOW : FAST, false);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenProbesCloseBreaker() throws InterruptedException {
+        CircuitBreaker breaker = open("test.probes");
+        Thread.sleep(POLICY.openDuration().toMillis() + 20);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire()); // Only halfOpenCalls probes at once
+        breaker.onResult(FAST, false);
+        breaker.onResult(FAST, false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbeReopensBreaker() throws InterruptedException {
+        CircuitBreaker breaker = open("test.reopen");
+        Thread.sleep(POLICY.openDuration().toMillis() + 20);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(FAST, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private static CircuitBreaker open(String name) {
+        CircuitBreaker breaker = new CircuitBreaker(name, POLICY);
+        for (int i = 0; i < POLICY.minimumCalls(); i++) {
+            call(breaker, FAST, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static void call(CircuitBreaker breaker, long elapsedNanos, boolean failed) {
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(elapsedNanos, failed);
+    }
+}
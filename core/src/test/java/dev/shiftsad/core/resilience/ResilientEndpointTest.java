@@ -0,0 +1,102 @@
+package dev.shiftsad.core.resilience;
+
+import dev.shiftsad.core.exceptions.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientEndpointTest {
+
+    private static final ResiliencePolicy POLICY = new ResiliencePolicy(
+            Duration.ofSeconds(1), Duration.ofMillis(500), 0.5, 4, 4, Duration.ofMinutes(1), 2, 2, null, 16
+    );
+
+    @Test
+    void openBreakerShortCircuitsToFallback() {
+        ResilientEndpoint endpoint = new ResilientEndpoint("test.fallback", POLICY);
+        assertEquals("good", endpoint.callAsync("key", () -> CompletableFuture.completedFuture("good"), null).join());
+
+        // Failed calls are answered with the last good result until the breaker opens
+        for (int i = 0; i < POLICY.minimumCalls(); i++) {
+            assertEquals("good", endpoint.callAsync("key", ResilientEndpointTest::failing, null).join());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, endpoint.getBreaker().getState());
+
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("good", endpoint.callAsync("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("fresh");
+        }, null).join());
+        assertEquals(0, calls.get());
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> endpoint.callAsync("other", () -> CompletableFuture.completedFuture("fresh"), null).join());
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+    }
+
+    @Test
+    void bulkheadRejectsAtMaxConcurrentCalls() {
+        ResilientEndpoint endpoint = new ResilientEndpoint("test.bulkhead", POLICY);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> firstResult = endpoint.callAsync(null, () -> first, null);
+        CompletableFuture<String> secondResult = endpoint.callAsync(null, () -> second, null);
+
+        AtomicInteger calls = new AtomicInteger();
+        CompletionException error = assertThrows(CompletionException.class, () -> endpoint.callAsync(null, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("third");
+        }, null).join());
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+        assertEquals(0, calls.get());
+
+        first.complete("first");
+        assertEquals("first", firstResult.join());
+        assertEquals("third", endpoint.callAsync(null, () -> CompletableFuture.completedFuture("third"), null).join());
+        second.complete("second");
+        assertEquals("second", secondResult.join());
+    }
+
+    @Test
+    void hedgeFiresAfterDelay() {
+        Duration delay = Duration.ofMillis(50);
+        ResilientEndpoint endpoint = new ResilientEndpoint("test.hedge", POLICY.withHedgeDelay(delay));
+        CompletableFuture<String> stuck = new CompletableFuture<>();
+        AtomicLong hedgedAfter = new AtomicLong();
+
+        long start = System.nanoTime();
+        String result = endpoint.callAsync(null, () -> stuck, () -> {
+            hedgedAfter.set(System.nanoTime() - start);
+            return CompletableFuture.completedFuture("hedged");
+        }).join();
+
+        assertEquals("hedged", result);
+        assertTrue(hedgedAfter.get() >= delay.toNanos(), "Hedged after " + hedgedAfter.get() + " ns");
+        stuck.complete("late");
+    }
+
+    @Test
+    void fastCallIsNotHedged() throws InterruptedException {
+        Duration delay = Duration.ofMillis(20);
+        ResilientEndpoint endpoint = new ResilientEndpoint("test.nohedge", POLICY.withHedgeDelay(delay));
+        AtomicInteger hedges = new AtomicInteger();
+
+        assertEquals("first", endpoint.callAsync(null, () -> CompletableFuture.completedFuture("first"), () -> {
+            hedges.incrementAndGet();
+            return CompletableFuture.completedFuture("hedged");
+        }).join());
+        Thread.sleep(delay.toMillis() * 3);
+
+        assertEquals(0, hedges.get());
+    }
+
+    private static CompletableFuture<String> failing() {
+        return CompletableFuture.failedFuture(new IllegalStateException("Backend down"));
+    }
+}
@@ -0,0 +1,177 @@
+package dev.shiftsad.core.testing;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Minimal in-process stand-in for Consul's KV endpoint, for tests and benchmarks.
+ * Blocking queries are held open until a key changes through {@link #put} or their
+ * wait time passes, like Consul does. Latency and failures can be injected to stand
+ * in for an unhealthy Consul.
+ */
+public final class ConsulStub {
+
+    static {
+        // Without it, Nagle and delayed acks add ~40 ms to every small response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Entry> values = new TreeMap<>();
+    private long index = 1;
+
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile long latencyMillis;
+    private volatile double failureRate;
+
+    public ConsulStub(int port, @NotNull Map<String, String> values) throws IOException {
+        values.forEach((key, value) -> this.values.put(key, new Entry(value, index)));
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/v1/kv/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Sets {@code key} and answers the blocking queries waiting for a change.
+     */
+    public void put(@NotNull String key, @NotNull String value) {
+        lock.lock();
+        try {
+            values.put(key, new Entry(value, ++index));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many requests were received so far, including blocking queries still waiting
+     */
+    public int requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Delays every response by {@code latencyMillis} and answers a {@code failureRate}
+     * share of requests with a 500.
+     */
+    public void injectFaults(long latencyMillis, double failureRate) {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            String key = exchange.getRequestURI().getPath().substring("/v1/kv/".length());
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            StringJoiner body = new StringJoiner(",", "[", "]");
+            long currentIndex;
+            lock.lock();
+            try {
+                long seen = Long.parseLong(query.getOrDefault("index", "0"));
+                long remaining = TimeUnit.MILLISECONDS.toNanos(parseWaitMillis(query.getOrDefault("wait", "1s")));
+                while (seen >= index && remaining > 0) {
+                    remaining = changed.awaitNanos(remaining);
+                }
+
+                boolean recurse = query.containsKey("recurse");
+                for (Map.Entry<String, Entry> entry : values.entrySet()) {
+                    if (recurse ? entry.getKey().startsWith(key) : entry.getKey().equals(key)) {
+                        body.add(entryJson(entry.getKey(), entry.getValue()));
+                    }
+                }
+                currentIndex = index;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("X-Consul-Index", String.valueOf(currentIndex));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (body.length() == 2) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String entryJson(String key, Entry entry) {
+        String encoded = Base64.getEncoder().encodeToString(entry.value().getBytes(StandardCharsets.UTF_8));
+        return "{\"Key\":\"" + key + "\",\"Value\":\"" + encoded + "\",\"Flags\":0,\"LockIndex\":0,"
+                + "\"CreateIndex\":" + entry.modifyIndex() + ",\"ModifyIndex\":" + entry.modifyIndex() + "}";
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new TreeMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    private static long parseWaitMillis(String wait) {
+        if (wait.endsWith("ms")) {
+            return Long.parseLong(wait.substring(0, wait.length() - 2));
+        }
+        if (wait.endsWith("s")) {
+            return Long.parseLong(wait.substring(0, wait.length() - 1)) * 1_000;
+        }
+        return Long.parseLong(wait);
+    }
+
+    private record Entry(String value, long modifyIndex) {
+    }
+}
@@ -0,0 +1,7 @@
+plugins {
+    id("java")
+}
+
+repositories {
+    mavenCentral()
+}
@@ -0,0 +1,324 @@
+package dev.shiftsad.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates a {@code ModuleWiring} for every concrete {@code Module} implementation
+ * in the compilation, so the server can wire modules without scanning fields
+ * reflectively at startup.
+ * <p>
+ * Modules whose {@code @Inject} fields or supertypes can't be reached from generated
+ * code in the same package (private fields, package-private types from other packages)
+ * are skipped and keep using the reflective path.
+ */
+@SupportedAnnotationTypes("*")
+public class ModuleWiringProcessor extends AbstractProcessor {
+
+    private static final String MODULE = "dev.shiftsad.core.modules.Module";
+    private static final String INJECT = "dev.shiftsad.core.modules.Inject";
+    private static final String DEPENDS_ON = "dev.shiftsad.core.modules.DependsOn";
+    private static final String WIRING = "dev.shiftsad.core.modules.wiring.ModuleWiring";
+
+    private Elements elements;
+    private Types types;
+    private Filer filer;
+    private Messager messager;
+
+    private final Set<String> generated = new TreeSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement moduleElement = elements.getTypeElement(MODULE);
+        if (moduleElement == null) {
+            return false;
+        }
+        TypeMirror moduleType = moduleElement.asType();
+
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            processType(type, moduleType);
+        }
+        return false;
+    }
+
+    private void processType(TypeElement type, TypeMirror moduleType) {
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            if (nested.getModifiers().contains(Modifier.STATIC)) {
+                processType(nested, moduleType);
+            }
+        }
+
+        if ((type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD)
+                || type.getModifiers().contains(Modifier.ABSTRACT)
+                || !types.isAssignable(types.erasure(type.asType()), moduleType)) {
+            return;
+        }
+
+        PackageElement pkg = elements.getPackageOf(type);
+        if (!isAccessible(type, pkg)) {
+            return;
+        }
+
+        List<TypeElement> dependencies = new ArrayList<>();
+        List<VariableElement> injectFields = new ArrayList<>();
+
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!nameOf(mirror.getAnnotationType()).equals(DEPENDS_ON)) continue;
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : mirror.getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value")) continue;
+                @SuppressWarnings("unchecked")
+                List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) entry.getValue().getValue();
+                for (AnnotationValue value : values) {
+                    dependencies.add((TypeElement) types.asElement((TypeMirror) value.getValue()));
+                }
+            }
+        }
+
+        for (TypeElement current = type; current != null; current = superclassOf(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (!hasAnnotation(field, INJECT)) continue;
+
+                if (field.getModifiers().contains(Modifier.FINAL) || field.getModifiers().contains(Modifier.STATIC)) {
+                    messager.printMessage(
+                            Diagnostic.Kind.ERROR,
+                            "@Inject fields must be neither final nor static",
+                            field
+                    );
+                    return;
+                }
+                if (!types.isAssignable(types.erasure(field.asType()), moduleType)) {
+                    messager.printMessage(
+                            Diagnostic.Kind.ERROR,
+                            "@Inject field type " + field.asType() + " is not a Module",
+                            field
+                    );
+                    return;
+                }
+                if (!isAccessible(field, pkg) || !isAccessible(current, pkg)) {
+                    messager.printMessage(
+                            Diagnostic.Kind.NOTE,
+                            "Field " + field.getSimpleName() + " isn't reachable from generated code, " +
+                                    type.getSimpleName() + " will be wired reflectively",
+                            field
+                    );
+                    return;
+                }
+
+                injectFields.add(field);
+                TypeElement fieldType = (TypeElement) types.asElement(field.asType());
+                if (!dependencies.contains(fieldType)) {
+                    dependencies.add(fieldType);
+                }
+            }
+        }
+
+        List<TypeElement> supertypes = new ArrayList<>();
+        collectSupertypes(type, moduleType, supertypes);
+
+        for (TypeElement referenced : concat(dependencies, supertypes)) {
+            if (!isAccessible(referenced, pkg)) {
+                messager.printMessage(
+                        Diagnostic.Kind.NOTE,
+                        referenced.getQualifiedName() + " isn't reachable from generated code, " +
+                                type.getSimpleName() + " will be wired reflectively",
+                        type
+                );
+                return;
+            }
+        }
+
+        writeWiring(type, pkg, dependencies, supertypes, injectFields);
+    }
+
+    private void collectSupertypes(TypeElement type, TypeMirror moduleType, List<TypeElement> out) {
+        if (out.contains(type) || !types.isAssignable(types.erasure(type.asType()), moduleType)) {
+            return;
+        }
+        out.add(type);
+
+        TypeElement superclass = superclassOf(type);
+        if (superclass != null) {
+            collectSupertypes(superclass, moduleType, out);
+        }
+        for (TypeMirror iface : type.getInterfaces()) {
+            collectSupertypes((TypeElement) types.asElement(iface), moduleType, out);
+        }
+    }
+
+    private void writeWiring(
+            TypeElement type,
+            PackageElement pkg,
+            List<TypeElement> dependencies,
+            List<TypeElement> supertypes,
+            List<VariableElement> injectFields
+    ) {
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String wiringName = binaryName(type, pkg).replace('$', '_') + "_Wiring";
+        String moduleName = type.getQualifiedName().toString();
+        String qualifiedWiringName = packageName.isEmpty() ? wiringName : packageName + "." + wiringName;
+
+        try {
+            JavaFileObject file = filer.createSourceFile(qualifiedWiringName, type);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                if (!packageName.isEmpty()) {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")");
+                out.println("@SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+                out.println("public final class " + wiringName + " implements " + WIRING + "<" + moduleName + "> {");
+                out.println();
+                out.println("    private static final java.util.List<Class<? extends " + MODULE + ">> DEPENDENCIES = " + classList(dependencies) + ";");
+                out.println("    private static final java.util.List<Class<? extends " + MODULE + ">> SUPERTYPES = " + classList(supertypes) + ";");
+                out.println();
+                out.println("    @Override");
+                out.println("    public Class<" + moduleName + "> moduleClass() {");
+                out.println("        return " + moduleName + ".class;");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public java.util.List<Class<? extends " + MODULE + ">> dependencies() {");
+                out.println("        return DEPENDENCIES;");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public java.util.List<Class<? extends " + MODULE + ">> supertypes() {");
+                out.println("        return SUPERTYPES;");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public void inject(" + moduleName + " module, " + WIRING + ".Resolver resolver) {");
+                for (VariableElement field : injectFields) {
+                    String owner = ((TypeElement) field.getEnclosingElement()).getQualifiedName().toString();
+                    String fieldType = types.erasure(field.asType()).toString();
+                    String access = "((" + owner + ") module)." + field.getSimpleName();
+                    out.println("        if (" + access + " == null) {");
+                    out.println("            " + access + " = (" + fieldType + ") resolver.resolve(module, " + fieldType + ".class);");
+                    out.println("        }");
+                }
+                out.println("    }");
+                out.println("}");
+            }
+            generated.add(qualifiedWiringName);
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write module wiring: " + e.getMessage(), type);
+        }
+    }
+
+    private void writeServiceFile() {
+        if (generated.isEmpty()) {
+            return;
+        }
+
+        try {
+            FileObject file = filer.createResource(
+                    StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + WIRING
+            );
+            try (Writer writer = file.openWriter()) {
+                for (String name : generated) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write module wiring index: " + e.getMessage());
+        }
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) types.asElement(superclass);
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    /**
+     * Whether generated code in {@code pkg} can refer to {@code element}.
+     */
+    private boolean isAccessible(Element element, PackageElement pkg) {
+        for (Element current = element; current.getKind() != ElementKind.PACKAGE; current = current.getEnclosingElement()) {
+            Set<Modifier> modifiers = current.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(current).equals(pkg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (nameOf(mirror.getAnnotationType()).equals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String nameOf(DeclaredType type) {
+        return ((TypeElement) type.asElement()).getQualifiedName().toString();
+    }
+
+    private String binaryName(TypeElement type, PackageElement pkg) {
+        String name = elements.getBinaryName(type).toString();
+        return pkg.isUnnamed() ? name : name.substring(pkg.getQualifiedName().length() + 1);
+    }
+
+    private static String classList(List<TypeElement> elements) {
+        StringJoiner joiner = new StringJoiner(", ", "java.util.List.of(", ")");
+        for (TypeElement element : elements) {
+            joiner.add(element.getQualifiedName() + ".class");
+        }
+        return joiner.toString();
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        List<T> list = new ArrayList<>(first);
+        list.addAll(second);
+        return list;
+    }
+}
@@ -1,3 +1,6 @@
 rootProject.name = "GameServer"
 include("core")
 include("tag")
+include("processor")
+include("benchmarks")
+include("bots")
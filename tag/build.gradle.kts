@@ -0,0 +1,27 @@
+plugins {
+    id("java")
+    id("application")
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(project(":core"))
+    implementation("net.minestom:minestom-snapshots:1_21_5-aa17002536")
+    implementation("org.jetbrains:annotations:26.0.2")
+    annotationProcessor(project(":processor"))
+
+    testImplementation(platform("org.junit:junit-bom:5.11.0"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+application {
+    mainClass.set("dev.shiftsad.tag.Server")
+}
@@ -1,7 +1,12 @@
 package dev.shiftsad.tag;
 
 import dev.shiftsad.core.MinestomServer;
+import dev.shiftsad.core.modules.impl.AnalyticsModule;
 import dev.shiftsad.core.modules.impl.ConsulConfigModule;
+import dev.shiftsad.core.modules.impl.HandoffModule;
+import dev.shiftsad.core.modules.impl.LeaderboardModule;
+import dev.shiftsad.core.modules.impl.MapTemplateModule;
+import dev.shiftsad.core.modules.impl.MetricsModule;
 import dev.shiftsad.core.modules.impl.RedisModule;
 import dev.shiftsad.core.modules.impl.ServerPublisherModule;
 import dev.shiftsad.core.util.NameGenerator;
@@ -10,11 +15,20 @@ import static dev.shiftsad.core.util.NameGenerator.WordType.*;
 
 public class Server {
 
+    private static final int MATCH_CAPACITY = 24;
+    private static final int MATCHES_PER_CORE = 2;
+
     public static void main(String[] args) {
         var name = NameGenerator.randomName(ANIMALS, COLORS, ADJECTIVE);
-        var port = Integer.parseInt(System.getenv("PORT"));
-        if (port == 0) port = 25565;
-        var config = new ConsulConfigModule();
+        var port = Integer.parseInt(System.getenv().getOrDefault("PORT", "25565"));
+        var season = System.getenv().getOrDefault("SEASON", "1");
+        var config = new ConsulConfigModule("redis.");
+        var redis = new RedisModule(config);
+        var templates = new MapTemplateModule();
+        var leaderboards = new LeaderboardModule(redis);
+        var analytics = new AnalyticsModule(redis, name);
+        var maxMatches = Runtime.getRuntime().availableProcessors() * MATCHES_PER_CORE;
+        var matches = new TagMatchModule(templates, leaderboards, analytics, season, MATCH_CAPACITY, maxMatches);
 
         var server = MinestomServer.builder()
                 .game("tag")
@@ -22,8 +36,15 @@ public class Server {
                 .port(port)
                 .modules(
                         config,
-                        new RedisModule(config),
-                        new ServerPublisherModule(config, name, String.valueOf(port))
+                        new MetricsModule(),
+                        templates,
+                        matches,
+                        redis,
+                        leaderboards,
+                        analytics,
+                        new HandoffModule(redis, name),
+                        new ServerPublisherModule(config, "tag", name, port, MATCH_CAPACITY * maxMatches,
+                                matches::getPlayerCount)
                 )
                 .build();
 
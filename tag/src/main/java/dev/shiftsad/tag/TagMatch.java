@@ -0,0 +1,312 @@
+package dev.shiftsad.tag;
+
+import dev.shiftsad.core.map.MapTemplate;
+import dev.shiftsad.core.match.Match;
+import dev.shiftsad.core.metrics.HandlerTimer;
+import dev.shiftsad.core.modules.impl.AnalyticsModule;
+import dev.shiftsad.core.modules.impl.LeaderboardModule;
+import dev.shiftsad.core.modules.impl.MatchModule;
+import dev.shiftsad.tag.broadcast.RoundBroadcaster;
+import dev.shiftsad.tag.broadcast.RoundBroadcaster.Channel;
+import dev.shiftsad.tag.broadcast.RoundBroadcaster.Group;
+import dev.shiftsad.tag.game.TagGame;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.event.Event;
+import net.minestom.server.event.EventNode;
+import net.minestom.server.event.instance.InstanceTickEvent;
+import net.minestom.server.event.instance.RemoveEntityFromInstanceEvent;
+import net.minestom.server.event.player.PlayerMoveEvent;
+import net.minestom.server.event.player.PlayerSpawnEvent;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.instance.LightingChunk;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.instance.generator.Generator;
+import net.minestom.server.tag.Tag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * A continuous game of tag on a flat arena, played in rounds of {@link #ROUND_TICKS}.
+ * The arena is stamped from a {@link MapTemplate} and restored from it between rounds.
+ * <p>
+ * Round UI goes through a {@link RoundBroadcaster}, flushed once at the end of each tick.
+ * Tags and round wins are counted on the leaderboards, batched by {@link LeaderboardModule}.
+ * Tags, a position sample of every player each second and round outcomes are recorded
+ * to {@link AnalyticsModule}, which never blocks the tick.
+ * <p>
+ * Listens on its own instance's event node. Players of one instance can be ticked on
+ * different dispatcher threads, so every callback takes the match lock before touching
+ * the game.
+ */
+public class TagMatch implements Match {
+
+    private static final Logger logger = Logger.getLogger(TagMatch.class.getName());
+
+    public static final int ROUND_TICKS = 20 * 120;
+
+    private static final int GROUND_HEIGHT = 40;
+    public static final Pos SPAWN = new Pos(0.5, GROUND_HEIGHT, 0.5);
+    /* Edge of the square play area centred on spawn */
+    public static final int ARENA_SIZE = 128;
+
+    /* How the arena template is baked */
+    public static final Generator GENERATOR = unit -> unit.modifier().fillHeight(0, GROUND_HEIGHT, Block.GRASS_BLOCK);
+
+    private static final Tag<Integer> SLOT = Tag.Transient("tag:slot");
+
+    private static final int SCOREBOARD_INTERVAL_TICKS = 20;
+    private static final int SCOREBOARD_LINES = 3;
+    private static final int MOVE_SAMPLE_INTERVAL_TICKS = 20;
+
+    private final UUID id;
+    private final InstanceContainer instance;
+    private final MapTemplate template;
+    private final TagGame game;
+    private final Player[] players;
+    private final Object lock = new Object();
+    private final LeaderboardModule leaderboards;
+    private final String winsBoard;
+    private final AnalyticsModule analytics;
+
+    private final RoundBroadcaster broadcaster = new RoundBroadcaster();
+    private final Group everyone = broadcaster.newGroup();
+    private final Group taggers = broadcaster.newGroup();
+    private final Group runners = broadcaster.newGroup();
+
+    private EventNode<Event> node;
+    private long roundTick;
+
+    public TagMatch(
+            @NotNull UUID id,
+            @NotNull InstanceContainer instance,
+            @NotNull MapTemplate template,
+            int capacity,
+            @NotNull LeaderboardModule leaderboards,
+            @NotNull String winsBoard,
+            @NotNull AnalyticsModule analytics
+    ) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be greater than 0");
+        this.id = id;
+        this.instance = instance;
+        this.template = template;
+        this.leaderboards = leaderboards;
+        this.winsBoard = winsBoard;
+        this.analytics = analytics;
+
+        double half = ARENA_SIZE / 2.0;
+        this.game = new TagGame(SPAWN.x() - half, SPAWN.z() - half, ARENA_SIZE, capacity);
+        this.players = new Player[capacity];
+
+        instance.setChunkSupplier(LightingChunk::new);
+        instance.setChunkLoader(template.loader());
+    }
+
+    @Override
+    public void start() {
+        // Timed under the module hosting the matches
+        node = EventNode.all("tag-match-" + id)
+                .addListener(PlayerSpawnEvent.class, HandlerTimer.timed(MatchModule.NAME, this::onSpawn))
+                .addListener(PlayerMoveEvent.class, HandlerTimer.timed(MatchModule.NAME, this::onMove))
+                .addListener(RemoveEntityFromInstanceEvent.class, HandlerTimer.timed(MatchModule.NAME, this::onRemove))
+                .addListener(InstanceTickEvent.class, HandlerTimer.timed(MatchModule.NAME, event -> tick()));
+        instance.eventNode().addChild(node);
+    }
+
+    @Override
+    public void stop() {
+        if (node != null) {
+            instance.eventNode().removeChild(node);
+            node = null;
+        }
+    }
+
+    @Override
+    public @NotNull Pos spawn() {
+        return SPAWN;
+    }
+
+    public @NotNull TagGame getGame() {
+        return game;
+    }
+
+    private void onSpawn(PlayerSpawnEvent event) {
+        Player player = event.getPlayer();
+        if (player.hasTag(SLOT)) {
+            return;
+        }
+
+        Pos position = player.getPosition();
+        synchronized (lock) {
+            int slot = game.join(position.x(), position.y(), position.z());
+            if (slot == TagGame.NO_PLAYER) {
+                player.sendMessage(Component.text("This match is full, you're spectating", NamedTextColor.GRAY));
+                return;
+            }
+
+            player.setTag(SLOT, slot);
+            players[slot] = player;
+            everyone.add(player);
+            if (game.tagger() == slot) {
+                taggers.add(player);
+                broadcaster.set(taggers, Channel.TITLE, Component.text("You're it!", NamedTextColor.RED));
+            } else {
+                runners.add(player);
+            }
+        }
+    }
+
+    private void onMove(PlayerMoveEvent event) {
+        Integer slot = event.getPlayer().getTag(SLOT);
+        if (slot == null) {
+            return;
+        }
+
+        Pos position = event.getNewPosition();
+        synchronized (lock) {
+            game.move(slot, position.x(), position.y(), position.z());
+        }
+    }
+
+    private void onRemove(RemoveEntityFromInstanceEvent event) {
+        if (!(event.getEntity() instanceof Player player)) {
+            return;
+        }
+
+        Integer slot = player.getTag(SLOT);
+        if (slot == null) {
+            return;
+        }
+
+        synchronized (lock) {
+            int tagger = game.tagger();
+            game.leave(slot);
+            players[slot] = null;
+            player.removeTag(SLOT);
+            everyone.remove(player);
+            taggers.remove(player);
+            runners.remove(player);
+
+            if (slot == tagger && game.tagger() != TagGame.NO_PLAYER) {
+                taggerChanged(TagGame.NO_PLAYER);
+                broadcaster.chat(everyone, Component.text("The tagger left, "
+                        + players[game.tagger()].getUsername() + " is it now", NamedTextColor.YELLOW));
+            }
+        }
+    }
+
+    private void tick() {
+        synchronized (lock) {
+            int previous = game.tagger();
+            int tagged = game.tick();
+            if (tagged != TagGame.NO_PLAYER) {
+                taggerChanged(previous);
+                leaderboards.increment(TagMatchModule.TAGS_BOARD, players[previous].getUuid(), 1);
+                Pos at = players[tagged].getPosition();
+                analytics.tag(players[previous].getUuid(), players[tagged].getUuid(), at.x(), at.y(), at.z());
+                broadcaster.chat(everyone, Component.text(players[previous].getUsername() + " tagged "
+                        + players[tagged].getUsername(), NamedTextColor.YELLOW));
+            }
+
+            if (++roundTick >= ROUND_TICKS) {
+                endRound();
+            }
+
+            // Set every tick, but only sent when the shown second changes
+            long secondsLeft = (ROUND_TICKS - roundTick + 19) / 20;
+            broadcaster.set(everyone, Channel.ACTION_BAR, Component.text(
+                    String.format("Round ends in %d:%02d", secondsLeft / 60, secondsLeft % 60), NamedTextColor.WHITE));
+            if (roundTick % SCOREBOARD_INTERVAL_TICKS == 0) {
+                broadcaster.set(everyone, Channel.TAB_FOOTER, scoreboard());
+            }
+            if (roundTick % MOVE_SAMPLE_INTERVAL_TICKS == 0) {
+                sampleMovement();
+            }
+
+            broadcaster.flush();
+        }
+    }
+
+    private void endRound() {
+        roundTick = 0;
+        int winner = game.leastTimeAsTagger();
+        analytics.roundEnd(id, winner == TagGame.NO_PLAYER ? null : players[winner].getUuid(),
+                winner == TagGame.NO_PLAYER ? 0 : game.ticksAsTagger(winner), game.playerCount());
+        if (winner != TagGame.NO_PLAYER) {
+            String name = players[winner].getUsername();
+            leaderboards.increment(winsBoard, players[winner].getUuid(), 1);
+            broadcaster.set(everyone, Channel.TITLE, Component.text("Round over", NamedTextColor.GOLD));
+            broadcaster.set(everyone, Channel.SUBTITLE, Component.text(name + " wins with "
+                    + game.ticksAsTagger(winner) / 20 + "s as the tagger", NamedTextColor.GOLD));
+            logger.info("Round over in match " + id + " with " + game.playerCount() + " players, " + name + " won");
+        }
+
+        int previous = game.tagger();
+        game.newRound();
+        template.reset(instance);
+        if (game.tagger() != previous) {
+            taggerChanged(previous);
+        }
+    }
+
+    private void sampleMovement() {
+        for (Player player : players) {
+            if (player != null) {
+                Pos position = player.getPosition();
+                analytics.move(player.getUuid(), position.x(), position.y(), position.z());
+            }
+        }
+    }
+
+    /**
+     * Moves the previous and current tagger between the role groups and tells the new
+     * tagger.
+     */
+    private void taggerChanged(int previous) {
+        if (previous != TagGame.NO_PLAYER && players[previous] != null) {
+            taggers.remove(players[previous]);
+            runners.add(players[previous]);
+        }
+
+        int current = game.tagger();
+        if (current != TagGame.NO_PLAYER) {
+            runners.remove(players[current]);
+            taggers.add(players[current]);
+            broadcaster.set(taggers, Channel.TITLE, Component.text("You're it!", NamedTextColor.RED));
+        }
+    }
+
+    /**
+     * The players with the least time as the tagger this round, best first.
+     */
+    private Component scoreboard() {
+        int[] best = new int[SCOREBOARD_LINES];
+        int count = 0;
+        for (int slot = 0; slot < players.length; slot++) {
+            if (players[slot] == null) continue;
+
+            int position = Math.min(count, SCOREBOARD_LINES - 1);
+            if (count == SCOREBOARD_LINES && game.ticksAsTagger(slot) >= game.ticksAsTagger(best[position])) {
+                continue;
+            }
+            while (position > 0 && game.ticksAsTagger(slot) < game.ticksAsTagger(best[position - 1])) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = slot;
+            count = Math.min(count + 1, SCOREBOARD_LINES);
+        }
+
+        Component board = Component.text("Least time as the tagger", NamedTextColor.GOLD);
+        for (int i = 0; i < count; i++) {
+            board = board.append(Component.newline()).append(Component.text(
+                    (i + 1) + ". " + players[best[i]].getUsername() + " " + game.ticksAsTagger(best[i]) / 20 + "s",
+                    NamedTextColor.WHITE));
+        }
+        return board;
+    }
+}
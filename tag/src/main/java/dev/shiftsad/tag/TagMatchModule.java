@@ -0,0 +1,61 @@
+package dev.shiftsad.tag;
+
+import dev.shiftsad.core.modules.DependsOn;
+import dev.shiftsad.core.modules.impl.AnalyticsModule;
+import dev.shiftsad.core.modules.impl.LeaderboardModule;
+import dev.shiftsad.core.modules.impl.MapTemplateModule;
+import dev.shiftsad.core.modules.impl.MatchModule;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Tag matches played on the {@link #MAP} template, baked on first boot if missing.
+ * Tags and round wins are counted on the {@link #TAGS_BOARD} and season wins leaderboards,
+ * and tags, movement and round outcomes are recorded to {@link AnalyticsModule}.
+ */
+@DependsOn({MapTemplateModule.class, LeaderboardModule.class, AnalyticsModule.class})
+public class TagMatchModule extends MatchModule {
+
+    public static final String MAP = "tag";
+    public static final String TAGS_BOARD = "tag:tags";
+
+    private static final int LEADERBOARD_SIZE = 10;
+
+    private final MapTemplateModule templates;
+    private final LeaderboardModule leaderboards;
+    private final String winsBoard;
+
+    /**
+     * @param season names the wins leaderboard, which starts over every season
+     */
+    public TagMatchModule(
+            @NotNull MapTemplateModule templates,
+            @NotNull LeaderboardModule leaderboards,
+            @NotNull AnalyticsModule analytics,
+            @NotNull String season,
+            int matchCapacity,
+            int maxMatches
+    ) {
+        super((id, instance) -> new TagMatch(id, instance, templates.get(MAP), matchCapacity,
+                leaderboards, winsBoard(season), analytics), matchCapacity, maxMatches);
+        this.templates = templates;
+        this.leaderboards = leaderboards;
+        this.winsBoard = winsBoard(season);
+    }
+
+    public static @NotNull String winsBoard(@NotNull String season) {
+        return "tag:wins:" + season;
+    }
+
+    public @NotNull String getWinsBoard() {
+        return winsBoard;
+    }
+
+    @Override
+    public void initialize() {
+        // Covers the arena plus one chunk of margin
+        templates.getOrBake(MAP, TagMatch.GENERATOR, TagMatch.ARENA_SIZE / 32 + 1);
+        leaderboards.track(TAGS_BOARD, LEADERBOARD_SIZE);
+        leaderboards.track(winsBoard, LEADERBOARD_SIZE);
+        super.initialize();
+    }
+}
@@ -0,0 +1,69 @@
+package dev.shiftsad.tag.broadcast;
+
+import dev.shiftsad.core.metrics.Histogram;
+import dev.shiftsad.core.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide broadcast counters, shared by every match's {@link RoundBroadcaster}
+ * and exported through the shared {@link MetricsRegistry}.
+ */
+public final class BroadcastStats {
+
+    private static final BroadcastStats SHARED = new BroadcastStats(MetricsRegistry.shared());
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder encodes = new LongAdder();
+    private final LongAdder packets = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    private final Histogram tickPackets;
+    private final Histogram tickBytes;
+
+    /**
+     * @param updates  state changes submitted, before coalescing
+     * @param encodes  packets serialized, one per changed group and channel
+     * @param packets  packets delivered to players
+     * @param bytes    bytes delivered to players
+     */
+    public record Snapshot(long updates, long encodes, long packets, long bytes) {
+    }
+
+    private BroadcastStats(MetricsRegistry registry) {
+        registry.counter("gameserver_broadcast_updates_total", "Round state updates submitted for broadcast", updates::sum);
+        registry.counter("gameserver_broadcast_encodes_total", "Broadcast packets serialized", encodes::sum);
+        registry.counter("gameserver_broadcast_packets_total", "Broadcast packets sent to players", packets::sum);
+        registry.counter("gameserver_broadcast_bytes_total", "Broadcast bytes sent to players", bytes::sum);
+        this.tickPackets = registry.histogram(
+                "gameserver_broadcast_tick_packets", "Broadcast packets sent by one match in one tick", 1
+        );
+        this.tickBytes = registry.histogram(
+                "gameserver_broadcast_tick_bytes", "Broadcast bytes sent by one match in one tick", 1
+        );
+    }
+
+    public static @NotNull BroadcastStats shared() {
+        return SHARED;
+    }
+
+    void updated() {
+        updates.increment();
+    }
+
+    void encoded() {
+        encodes.increment();
+    }
+
+    void flushed(long tickPackets, long tickBytes) {
+        packets.add(tickPackets);
+        bytes.add(tickBytes);
+        this.tickPackets.record(tickPackets);
+        this.tickBytes.record(tickBytes);
+    }
+
+    public @NotNull Snapshot snapshot() {
+        return new Snapshot(updates.sum(), encodes.sum(), packets.sum(), bytes.sum());
+    }
+}
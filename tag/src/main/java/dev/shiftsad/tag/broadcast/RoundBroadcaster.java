@@ -0,0 +1,171 @@
+package dev.shiftsad.tag.broadcast;
+
+import net.kyori.adventure.text.Component;
+import net.minestom.server.entity.Player;
+import net.minestom.server.network.ConnectionState;
+import net.minestom.server.network.NetworkBuffer;
+import net.minestom.server.network.packet.server.CachedPacket;
+import net.minestom.server.network.packet.server.ServerPacket;
+import net.minestom.server.network.packet.server.play.ActionBarPacket;
+import net.minestom.server.network.packet.server.play.PlayerListHeaderAndFooterPacket;
+import net.minestom.server.network.packet.server.play.SetTitleSubTitlePacket;
+import net.minestom.server.network.packet.server.play.SetTitleTextPacket;
+import net.minestom.server.network.packet.server.play.SystemChatPacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects a match's round UI changes during a tick and sends them once at the end.
+ * <p>
+ * Players are split into {@link Group}s that see the same UI. Within a group, each
+ * {@link Channel} keeps only the last value set during the tick, and a value equal to
+ * the one already on screen isn't sent at all, so a timer set every tick goes out once
+ * a second. Each change is serialized once into a {@link CachedPacket} that every
+ * player in the group is sent as-is.
+ * <p>
+ * Not thread-safe, callers serialize access.
+ */
+public final class RoundBroadcaster {
+
+    public enum Channel {
+        ACTION_BAR(true),
+        TITLE(false),
+        SUBTITLE(false),
+        /* The tab list footer, used as the scoreboard */
+        TAB_FOOTER(true);
+
+        /* Whether the value stays on screen, so it's resent to newcomers and never twice in a row */
+        private final boolean persistent;
+
+        Channel(boolean persistent) {
+            this.persistent = persistent;
+        }
+    }
+
+    private static final Channel[] CHANNELS = Channel.values();
+
+    /**
+     * Players sharing the same round UI.
+     */
+    public static final class Group {
+        private final List<Player> players = new ArrayList<>();
+        /* Players added since the last flush, who haven't seen the persistent state yet */
+        private final List<Player> newcomers = new ArrayList<>();
+        private final Component[] pending = new Component[CHANNELS.length];
+        private final Component[] shown = new Component[CHANNELS.length];
+        private final List<Component> chat = new ArrayList<>();
+
+        public void add(@NotNull Player player) {
+            if (!players.contains(player)) {
+                players.add(player);
+                newcomers.add(player);
+            }
+        }
+
+        public void remove(@NotNull Player player) {
+            players.remove(player);
+            newcomers.remove(player);
+        }
+
+        public int size() {
+            return players.size();
+        }
+    }
+
+    private final List<Group> groups = new ArrayList<>();
+    private final BroadcastStats stats;
+
+    private long packetsThisFlush;
+    private long bytesThisFlush;
+
+    public RoundBroadcaster() {
+        this(BroadcastStats.shared());
+    }
+
+    RoundBroadcaster(@NotNull BroadcastStats stats) {
+        this.stats = stats;
+    }
+
+    public @NotNull Group newGroup() {
+        Group group = new Group();
+        groups.add(group);
+        return group;
+    }
+
+    public void set(@NotNull Group group, @NotNull Channel channel, @NotNull Component value) {
+        group.pending[channel.ordinal()] = value;
+        stats.updated();
+    }
+
+    /**
+     * Queues a chat line. Unlike channels, every distinct line is kept, repeated lines
+     * in the same tick are dropped.
+     */
+    public void chat(@NotNull Group group, @NotNull Component message) {
+        stats.updated();
+        if (!group.chat.isEmpty() && group.chat.getLast().equals(message)) {
+            return;
+        }
+        group.chat.add(message);
+    }
+
+    /**
+     * Sends everything that changed this tick. Call once at the end of the tick.
+     */
+    public void flush() {
+        packetsThisFlush = 0;
+        bytesThisFlush = 0;
+
+        for (Group group : groups) {
+            for (int i = 0; i < CHANNELS.length; i++) {
+                Channel channel = CHANNELS[i];
+                Component value = group.pending[i];
+                group.pending[i] = null;
+
+                if (value != null && !(channel.persistent && value.equals(group.shown[i]))) {
+                    send(group.players, packetFor(channel, value));
+                    group.shown[i] = channel.persistent ? value : null;
+                } else if (group.shown[i] != null && !group.newcomers.isEmpty()) {
+                    send(group.newcomers, packetFor(channel, group.shown[i]));
+                }
+            }
+            group.newcomers.clear();
+
+            for (Component message : group.chat) {
+                send(group.players, new SystemChatPacket(message, false));
+            }
+            group.chat.clear();
+        }
+
+        if (packetsThisFlush > 0) {
+            stats.flushed(packetsThisFlush, bytesThisFlush);
+        }
+    }
+
+    private void send(List<Player> players, ServerPacket packet) {
+        if (players.isEmpty()) {
+            return;
+        }
+
+        CachedPacket cached = new CachedPacket(packet);
+        stats.encoded();
+        for (Player player : players) {
+            player.sendPacket(cached);
+        }
+
+        NetworkBuffer body = cached.body(ConnectionState.PLAY);
+        packetsThisFlush += players.size();
+        bytesThisFlush += body == null ? 0 : body.readableBytes() * players.size();
+    }
+
+    private static ServerPacket packetFor(Channel channel, Component value) {
+        return switch (channel) {
+            case ACTION_BAR -> new ActionBarPacket(value);
+            case TITLE -> new SetTitleTextPacket(value);
+            case SUBTITLE -> new SetTitleSubTitlePacket(value);
+            case TAB_FOOTER -> new PlayerListHeaderAndFooterPacket(Component.empty(), value);
+        };
+    }
+}
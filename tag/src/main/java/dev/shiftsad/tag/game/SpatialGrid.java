@@ -0,0 +1,227 @@
+package dev.shiftsad.tag.game;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A uniform grid over the XZ plane indexing player slots by position.
+ * <p>
+ * Each cell holds an intrusive doubly linked list of the slots inside it, so moving a
+ * player within its cell only stores the new coordinates and moving across cells is a
+ * constant-time unlink and relink. A range query only visits the cells overlapping the
+ * query square, so its cost follows the local player density rather than the player
+ * count.
+ * <p>
+ * The grid covers a fixed area. Positions outside it are clamped to the border cells,
+ * which keeps queries correct since clamping never moves two players further apart in
+ * cell terms, only makes the border cells busier. Not thread-safe.
+ */
+public final class SpatialGrid {
+
+    private static final int NONE = -1;
+
+    private final double minX;
+    private final double minZ;
+    private final double inverseCellSize;
+    private final int columns;
+    private final int rows;
+
+    /* First slot of each cell's list */
+    private final int[] heads;
+
+    private final int[] next;
+    private final int[] previous;
+    private final int[] cellOf;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+
+    /**
+     * @param minX     lowest X covered by the grid
+     * @param minZ     lowest Z covered by the grid
+     * @param sizeX    extent of the covered area along X
+     * @param sizeZ    extent of the covered area along Z
+     * @param cellSize edge of a cell, ideally the usual query radius
+     * @param capacity number of slots, slots are {@code 0 .. capacity - 1}
+     */
+    public SpatialGrid(double minX, double minZ, double sizeX, double sizeZ, double cellSize, int capacity) {
+        if (cellSize <= 0) throw new IllegalArgumentException("cellSize must be greater than 0");
+        if (sizeX <= 0 || sizeZ <= 0) throw new IllegalArgumentException("Grid size must be greater than 0");
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be greater than 0");
+
+        this.minX = minX;
+        this.minZ = minZ;
+        this.inverseCellSize = 1 / cellSize;
+        this.columns = (int) Math.ceil(sizeX / cellSize);
+        this.rows = (int) Math.ceil(sizeZ / cellSize);
+
+        this.heads = new int[columns * rows];
+        Arrays.fill(heads, NONE);
+
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.cellOf = new int[capacity];
+        Arrays.fill(cellOf, NONE);
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.zs = new double[capacity];
+    }
+
+    public int capacity() {
+        return cellOf.length;
+    }
+
+    public boolean contains(int slot) {
+        return cellOf[slot] != NONE;
+    }
+
+    public void insert(int slot, double x, double y, double z) {
+        if (cellOf[slot] != NONE) {
+            throw new IllegalStateException("Slot " + slot + " is already in the grid");
+        }
+        store(slot, x, y, z);
+        link(slot, cellIndex(x, z));
+    }
+
+    public void move(int slot, double x, double y, double z) {
+        int from = cellOf[slot];
+        if (from == NONE) {
+            throw new IllegalStateException("Slot " + slot + " is not in the grid");
+        }
+        store(slot, x, y, z);
+
+        int to = cellIndex(x, z);
+        if (to != from) {
+            unlink(slot);
+            link(slot, to);
+        }
+    }
+
+    public void remove(int slot) {
+        if (cellOf[slot] == NONE) {
+            return;
+        }
+        unlink(slot);
+        cellOf[slot] = NONE;
+    }
+
+    public double x(int slot) {
+        return xs[slot];
+    }
+
+    public double y(int slot) {
+        return ys[slot];
+    }
+
+    public double z(int slot) {
+        return zs[slot];
+    }
+
+    /**
+     * Collects the slots within {@code radius} of a point, horizontally and vertically.
+     *
+     * @param out receives the slots, must be large enough for every match
+     * @return how many slots were written to {@code out}
+     */
+    public int query(double x, double y, double z, double radius, int[] out) {
+        double radiusSquared = radius * radius;
+        int count = 0;
+
+        int minColumn = column(x - radius), maxColumn = column(x + radius);
+        int minRow = row(z - radius), maxRow = row(z + radius);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int slot = heads[row * columns + column]; slot != NONE; slot = next[slot]) {
+                    if (within(slot, x, y, z, radius, radiusSquared)) {
+                        out[count++] = slot;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the closest slot within {@code radius} of a point that passes
+     * {@code filter}.
+     *
+     * @return the slot, or {@code -1} if none qualifies
+     */
+    public int nearest(double x, double y, double z, double radius, IntPredicate filter) {
+        double radiusSquared = radius * radius;
+        int best = NONE;
+        double bestDistance = Double.MAX_VALUE;
+
+        int minColumn = column(x - radius), maxColumn = column(x + radius);
+        int minRow = row(z - radius), maxRow = row(z + radius);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int slot = heads[row * columns + column]; slot != NONE; slot = next[slot]) {
+                    if (!within(slot, x, y, z, radius, radiusSquared)) {
+                        continue;
+                    }
+                    double dx = xs[slot] - x;
+                    double dz = zs[slot] - z;
+                    double distance = dx * dx + dz * dz;
+                    if (distance < bestDistance && filter.test(slot)) {
+                        best = slot;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean within(int slot, double x, double y, double z, double radius, double radiusSquared) {
+        double dx = xs[slot] - x;
+        double dz = zs[slot] - z;
+        return dx * dx + dz * dz <= radiusSquared && Math.abs(ys[slot] - y) <= radius;
+    }
+
+    private void store(int slot, double x, double y, double z) {
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+    }
+
+    private void link(int slot, int cell) {
+        int head = heads[cell];
+        next[slot] = head;
+        previous[slot] = NONE;
+        if (head != NONE) {
+            previous[head] = slot;
+        }
+        heads[cell] = slot;
+        cellOf[slot] = cell;
+    }
+
+    private void unlink(int slot) {
+        int before = previous[slot];
+        int after = next[slot];
+        if (before == NONE) {
+            heads[cellOf[slot]] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+
+    private int cellIndex(double x, double z) {
+        return row(z) * columns + column(x);
+    }
+
+    private int column(double x) {
+        return clamp((int) Math.floor((x - minX) * inverseCellSize), columns);
+    }
+
+    private int row(double z) {
+        return clamp((int) Math.floor((z - minZ) * inverseCellSize), rows);
+    }
+
+    private static int clamp(int index, int size) {
+        return index < 0 ? 0 : Math.min(index, size - 1);
+    }
+}
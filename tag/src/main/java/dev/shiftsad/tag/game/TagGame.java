@@ -0,0 +1,195 @@
+package dev.shiftsad.tag.game;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Rules and per-round state of one tag match, independent of Minestom.
+ * <p>
+ * Players occupy numbered slots. Their positions live in a {@link SpatialGrid} and
+ * their round state in parallel primitive arrays indexed by slot, so a tick allocates
+ * nothing and only looks at the players around the tagger. Each tick the tagger tags
+ * the closest player in {@link #TAG_RANGE} that isn't immune, and whoever was just
+ * tagged can't tag their tagger straight back for {@link #TAG_BACK_COOLDOWN_TICKS}.
+ * <p>
+ * Not thread-safe, callers serialize access.
+ */
+public final class TagGame {
+
+    public static final double TAG_RANGE = 2.0;
+    public static final int TAG_BACK_COOLDOWN_TICKS = 60;
+
+    public static final int NO_PLAYER = -1;
+
+    private final SpatialGrid grid;
+
+    private final int[] freeSlots;
+    private int freeCount;
+    private int playerCount;
+
+    /* Per-round state, indexed by slot */
+    private final int[] tagsMade;
+    private final long[] ticksAsTagger;
+    private final long[] immuneUntil;
+
+    private int tagger = NO_PLAYER;
+    private long tick;
+
+    private final IntPredicate taggable = this::isTaggable;
+
+    /**
+     * @param arenaMinX  lowest X of the play area
+     * @param arenaMinZ  lowest Z of the play area
+     * @param arenaSize  edge of the square play area
+     * @param capacity   most players in the match at once
+     */
+    public TagGame(double arenaMinX, double arenaMinZ, double arenaSize, int capacity) {
+        this.grid = new SpatialGrid(arenaMinX, arenaMinZ, arenaSize, arenaSize, TAG_RANGE, capacity);
+        this.freeSlots = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[i] = capacity - 1 - i;
+        }
+        this.freeCount = capacity;
+        this.tagsMade = new int[capacity];
+        this.ticksAsTagger = new long[capacity];
+        this.immuneUntil = new long[capacity];
+    }
+
+    /**
+     * Adds a player. The first player to join a match without a tagger becomes it.
+     *
+     * @return the player's slot, or {@link #NO_PLAYER} if the match is full
+     */
+    public int join(double x, double y, double z) {
+        if (freeCount == 0) {
+            return NO_PLAYER;
+        }
+
+        int slot = freeSlots[--freeCount];
+        tagsMade[slot] = 0;
+        ticksAsTagger[slot] = 0;
+        immuneUntil[slot] = 0;
+        grid.insert(slot, x, y, z);
+        playerCount++;
+
+        if (tagger == NO_PLAYER) {
+            tagger = slot;
+        }
+        return slot;
+    }
+
+    public void leave(int slot) {
+        if (!grid.contains(slot)) {
+            return;
+        }
+
+        grid.remove(slot);
+        freeSlots[freeCount++] = slot;
+        playerCount--;
+
+        if (slot == tagger) {
+            tagger = randomPlayer();
+        }
+    }
+
+    public void move(int slot, double x, double y, double z) {
+        grid.move(slot, x, y, z);
+    }
+
+    /**
+     * Advances the match by one tick.
+     *
+     * @return the slot tagged this tick, or {@link #NO_PLAYER}
+     */
+    public int tick() {
+        tick++;
+        if (tagger == NO_PLAYER) {
+            return NO_PLAYER;
+        }
+        ticksAsTagger[tagger]++;
+
+        int tagged = grid.nearest(grid.x(tagger), grid.y(tagger), grid.z(tagger), TAG_RANGE, taggable);
+        if (tagged == NO_PLAYER) {
+            return NO_PLAYER;
+        }
+
+        tagsMade[tagger]++;
+        immuneUntil[tagger] = tick + TAG_BACK_COOLDOWN_TICKS;
+        tagger = tagged;
+        return tagged;
+    }
+
+    /**
+     * Collects the players within tag range of {@code slot}, including {@code slot}.
+     *
+     * @return how many slots were written to {@code out}
+     */
+    public int playersInRange(int slot, int[] out) {
+        return grid.query(grid.x(slot), grid.y(slot), grid.z(slot), TAG_RANGE, out);
+    }
+
+    /**
+     * Clears the round state and hands the tagger role to a random player.
+     */
+    public void newRound() {
+        Arrays.fill(tagsMade, 0);
+        Arrays.fill(ticksAsTagger, 0);
+        Arrays.fill(immuneUntil, 0);
+        tick = 0;
+        tagger = randomPlayer();
+    }
+
+    /**
+     * The player who spent the least time as the tagger this round.
+     *
+     * @return the slot, or {@link #NO_PLAYER} if the match is empty
+     */
+    public int leastTimeAsTagger() {
+        int best = NO_PLAYER;
+        for (int slot = 0; slot < grid.capacity(); slot++) {
+            if (grid.contains(slot) && (best == NO_PLAYER || ticksAsTagger[slot] < ticksAsTagger[best])) {
+                best = slot;
+            }
+        }
+        return best;
+    }
+
+    public int tagger() {
+        return tagger;
+    }
+
+    public int playerCount() {
+        return playerCount;
+    }
+
+    public int capacity() {
+        return grid.capacity();
+    }
+
+    public int tagsMade(int slot) {
+        return tagsMade[slot];
+    }
+
+    public long ticksAsTagger(int slot) {
+        return ticksAsTagger[slot];
+    }
+
+    private boolean isTaggable(int slot) {
+        return slot != tagger && immuneUntil[slot] <= tick;
+    }
+
+    private int randomPlayer() {
+        if (playerCount == 0) {
+            return NO_PLAYER;
+        }
+
+        int skip = ThreadLocalRandom.current().nextInt(playerCount);
+        for (int slot = 0; slot < grid.capacity(); slot++) {
+            if (grid.contains(slot) && skip-- == 0) {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("Player count is out of sync with the grid");
+    }
+}
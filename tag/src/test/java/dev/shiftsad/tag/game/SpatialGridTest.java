@@ -0,0 +1,110 @@
+package dev.shiftsad.tag.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridTest {
+
+    // 10 x 10 cells of 10 blocks
+    private final SpatialGrid grid = new SpatialGrid(0, 0, 100, 100, 10, 8);
+    private final int[] out = new int[8];
+
+    @Test
+    void insertsMovesAndRemoves() {
+        grid.insert(0, 5, 64, 5);
+        assertTrue(grid.contains(0));
+        assertArrayEquals(new int[]{0}, query(5, 64, 5, 1));
+
+        grid.move(0, 6, 64, 6); // Same cell
+        assertArrayEquals(new int[]{0}, query(6, 64, 6, 1));
+        assertArrayEquals(new int[0], query(5, 64, 5, 1));
+
+        grid.move(0, 15, 64, 5); // Next cell along X
+        assertEquals(15, grid.x(0));
+        assertArrayEquals(new int[]{0}, query(15, 64, 5, 1));
+        assertArrayEquals(new int[0], query(6, 64, 6, 1));
+
+        grid.remove(0);
+        assertFalse(grid.contains(0));
+        assertArrayEquals(new int[0], query(15, 64, 5, 1));
+
+        grid.insert(0, 5, 64, 5); // The slot can be reused
+        assertArrayEquals(new int[]{0}, query(5, 64, 5, 1));
+    }
+
+    @Test
+    void keepsOtherSlotsOfCellLinked() {
+        grid.insert(0, 1, 64, 1);
+        grid.insert(1, 2, 64, 2);
+        grid.insert(2, 3, 64, 3);
+
+        grid.move(1, 25, 64, 25); // Unlinks from the middle of the list
+        assertArrayEquals(new int[]{0, 2}, query(2, 64, 2, 5));
+        grid.remove(2); // Then from its head
+        assertArrayEquals(new int[]{0}, query(2, 64, 2, 5));
+        assertArrayEquals(new int[]{1}, query(25, 64, 25, 1));
+    }
+
+    @Test
+    void rejectsInsertOfPresentSlotAndMoveOfAbsentSlot() {
+        grid.insert(0, 5, 64, 5);
+
+        assertThrows(IllegalStateException.class, () -> grid.insert(0, 6, 64, 6));
+        assertThrows(IllegalStateException.class, () -> grid.move(1, 6, 64, 6));
+    }
+
+    @Test
+    void queriesAcrossCellEdges() {
+        // One player in each of the four cells meeting at (10, 10)
+        grid.insert(0, 9.5, 64, 9.5);
+        grid.insert(1, 10.5, 64, 9.5);
+        grid.insert(2, 9.5, 64, 10.5);
+        grid.insert(3, 10.5, 64, 10.5);
+        grid.insert(4, 10, 64, 12); // Just out of range
+
+        assertArrayEquals(new int[]{0, 1, 2, 3}, query(10, 64, 10, 1));
+
+        // Exactly on the edge of the cell and of the radius
+        grid.insert(5, 20, 64, 5);
+        assertArrayEquals(new int[]{5}, query(19.5, 64, 5, 0.5));
+        assertArrayEquals(new int[0], query(19.4, 64, 5, 0.5));
+    }
+
+    @Test
+    void queryChecksHeight() {
+        grid.insert(0, 5, 64, 5);
+        grid.insert(1, 5, 70, 5);
+
+        assertArrayEquals(new int[]{0}, query(5, 64, 5, 2));
+    }
+
+    @Test
+    void clampsPositionsOutsideGrid() {
+        grid.insert(0, -5, 64, -5);
+        grid.insert(1, 105, 64, 105);
+
+        assertArrayEquals(new int[]{0}, query(-5, 64, -5, 1));
+        assertArrayEquals(new int[]{1}, query(105, 64, 105, 1));
+    }
+
+    @Test
+    void findsNearestPassingFilter() {
+        grid.insert(0, 10, 64, 10);
+        grid.insert(1, 10.5, 64, 10);
+        grid.insert(2, 9, 64, 10);
+        grid.insert(3, 15, 64, 10); // Out of range
+
+        assertEquals(1, grid.nearest(10, 64, 10, 2, slot -> slot != 0));
+        assertEquals(2, grid.nearest(10, 64, 10, 2, slot -> slot != 0 && slot != 1));
+        assertEquals(-1, grid.nearest(10, 64, 10, 2, slot -> slot == 3));
+    }
+
+    private int[] query(double x, double y, double z, double radius) {
+        int[] found = Arrays.copyOf(out, grid.query(x, y, z, radius, out));
+        Arrays.sort(found);
+        return found;
+    }
+}
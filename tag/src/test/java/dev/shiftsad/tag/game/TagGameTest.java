@@ -0,0 +1,81 @@
+package dev.shiftsad.tag.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagGameTest {
+
+    private final TagGame game = new TagGame(0, 0, 100, 8);
+
+    @Test
+    void firstPlayerIsTagger() {
+        int first = game.join(50, 64, 50);
+        game.join(60, 64, 60);
+
+        assertEquals(first, game.tagger());
+        assertEquals(2, game.playerCount());
+    }
+
+    @Test
+    void tagsClosestOfSeveralPlayersInRange() {
+        int tagger = game.join(50, 64, 50);
+        int far = game.join(51.5, 64, 50);
+        int closest = game.join(50.5, 64, 50.5);
+        int farthest = game.join(50, 64, 51.9);
+        int outOfRange = game.join(53, 64, 50);
+
+        int[] inRange = new int[8];
+        int count = game.playersInRange(tagger, inRange);
+        int[] found = Arrays.copyOf(inRange, count);
+        Arrays.sort(found);
+        assertArrayEquals(new int[]{tagger, far, closest, farthest}, found);
+
+        assertEquals(closest, game.tick());
+        assertEquals(closest, game.tagger());
+        assertEquals(1, game.tagsMade(tagger));
+
+        // The old tagger is closest but immune, so the next closest is tagged
+        assertEquals(far, game.tick());
+        assertEquals(far, game.tagger());
+        assertNotEquals(outOfRange, game.tagger());
+    }
+
+    @Test
+    void waitsForCooldownBeforeTaggingBack() {
+        int first = game.join(50, 64, 50);
+        int second = game.join(51, 64, 50);
+
+        assertEquals(second, game.tick());
+        for (int i = 1; i < TagGame.TAG_BACK_COOLDOWN_TICKS; i++) {
+            assertEquals(TagGame.NO_PLAYER, game.tick());
+        }
+        assertEquals(first, game.tick());
+    }
+
+    @Test
+    void tagsNobodyOutOfRange() {
+        int tagger = game.join(50, 64, 50);
+        int other = game.join(50 + TagGame.TAG_RANGE + 0.1, 64, 50);
+
+        assertEquals(TagGame.NO_PLAYER, game.tick());
+        game.move(other, 51, 64, 50);
+        assertEquals(other, game.tick());
+        assertEquals(2, game.ticksAsTagger(tagger));
+    }
+
+    @Test
+    void passesTaggerOnWhenItLeaves() {
+        int tagger = game.join(50, 64, 50);
+        int other = game.join(60, 64, 60);
+
+        game.leave(tagger);
+
+        assertEquals(other, game.tagger());
+        assertEquals(1, game.playerCount());
+        game.leave(other);
+        assertEquals(TagGame.NO_PLAYER, game.tagger());
+    }
+}